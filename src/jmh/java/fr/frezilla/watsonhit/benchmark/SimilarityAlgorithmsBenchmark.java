@@ -0,0 +1,149 @@
+package fr.frezilla.watsonhit.benchmark;
+
+import fr.frezilla.watsonhit.business.similarity.SimilarityAlgorithm;
+import fr.frezilla.watsonhit.business.similarity.SimilarityAlgorithms;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Micro-benchmark des algorithmes de similarité.
+ * <p>
+ * Chaque algorithme de {@link SimilarityAlgorithms}, y compris ceux ajoutés
+ * par la suite, est mesuré pour des chaines de 4 à 256 caractères, ASCII ou
+ * accentuées, identiques ou sans caractère commun ; le taux est calculé sans
+ * seuil et avec le seuil utilisé par le moteur de comparaison.
+ * <p>
+ * La méthode {@link #main(java.lang.String[])} ajoute le profileur gc aux
+ * options JMH passées en argument : le débit est complété par le volume
+ * alloué par opération. Par exemple, pour un seul algorithme :
+ * <pre>
+ * java -cp target/WatsonHit-jar-with-dependencies.jar fr.frezilla.watsonhit.benchmark.SimilarityAlgorithmsBenchmark -p algorithm=JARO
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 3, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 2, time = 1)
+public class SimilarityAlgorithmsBenchmark {
+
+    /**
+     * Jeux de caractères des chaines : chaque jeu est découpé en deux moitiés
+     * sans caractère commun.
+     */
+    public enum Charset {
+        ASCII("ABCDEFGHIJKLM", "NOPQRSTUVWXYZ"),
+        ACCENTED("AÀÂÄBCÇDEÉÈÊË", "IÎÏNOÔÖUÙÛÜYŸ");
+
+        private final String left;
+        private final String right;
+
+        private Charset(String left, String right) {
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    /**
+     * Relation entre les deux chaines comparées.
+     */
+    public enum Pair {
+        /**
+         * Chaines identiques, mais distinctes en mémoire.
+         */
+        EQUAL,
+        /**
+         * Chaines sans caractère commun.
+         */
+        DISJOINT
+    }
+
+    /**
+     * Seuil de similarité passé à
+     * {@link SimilarityAlgorithm#getHitRate(java.lang.String, java.lang.String, double)}.
+     */
+    private static final double MIN_HIT_RATE = 0.8;
+
+    /**
+     * Lance le benchmark avec le profileur gc.
+     *
+     * @param args options JMH
+     * @throws CommandLineOptionException
+     * @throws RunnerException
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(SimilarityAlgorithmsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /**
+     * Algorithmes mesurés : tous les algorithmes de l'énumération par défaut.
+     */
+    @Param
+    public SimilarityAlgorithms algorithm;
+
+    @Param
+    public Charset charset;
+
+    @Param({"4", "8", "16", "32", "64", "128", "256"})
+    public int length;
+
+    @Param
+    public Pair pair;
+
+    private SimilarityAlgorithm algo;
+    private String s1;
+    private String s2;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(length);
+        algo = algorithm.getAlgorithm();
+        if (pair == Pair.EQUAL) {
+            s1 = randomString(random, charset.left + charset.right);
+            s2 = new String(s1.toCharArray());
+        } else {
+            s1 = randomString(random, charset.left);
+            s2 = randomString(random, charset.right);
+        }
+    }
+
+    private String randomString(Random random, String alphabet) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(chars);
+    }
+
+    @Benchmark
+    public double hitRate() {
+        return algo.getHitRate(s1, s2);
+    }
+
+    @Benchmark
+    public double hitRateWithThreshold() {
+        return algo.getHitRate(s1, s2, MIN_HIT_RATE);
+    }
+}
@@ -2,6 +2,7 @@ package fr.frezilla.watsonhit;
 
 enum BusinessExceptions {
     argumentsError("les arguments passés en ligne de commande ne peuvent pas être lues"),
+    binaryResultFileError("le fichier %s n'est pas un résultat au format BINARY valide"),
     csvDescriptionError("erreur au traitement de la description du fichier csv"),
     csvDescriptionNotValid("la description du fichier csv n'est pas valide : <%s>"),
     csvFileError("erreur au traitement du fichier csv"),
@@ -10,7 +11,8 @@ enum BusinessExceptions {
     fileInNotValid("le fichier d'entrée n'est pas un fichier valide"),
     ioError("erreur d'écriture et/ou de lecture des fichiers"),
     parametersError("les paramètres d'entrée du traitement ne sont pas valides \n%s"),
-    resultFileError("le fichier de résultat %s ne peut pas être créé");
+    resultFileError("le fichier de résultat %s ne peut pas être créé"),
+    snapshotFileError("l'instantané %s ne peut pas être enregistré");
 
     private final String businessExceptionMsg;
 
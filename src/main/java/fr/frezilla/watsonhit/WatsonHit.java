@@ -1,18 +1,40 @@
 package fr.frezilla.watsonhit;
 
+import fr.frezilla.watsonhit.business.blocking.BlockingIndex;
+import fr.frezilla.watsonhit.business.blocking.MinHashIndex;
+import fr.frezilla.watsonhit.business.blocking.SortedNeighbourhoodIndex;
+import fr.frezilla.watsonhit.business.csv.CsvBlockingKeyDescription;
 import fr.frezilla.watsonhit.business.csv.CsvColumnDescription;
 import fr.frezilla.watsonhit.business.csv.CsvDescription;
-import fr.frezilla.watsonhit.business.similarity.SimilarityAlgorithm;
-import fr.frezilla.watsonhit.business.similarity.SimilarityAlgorithms;
-import fr.frezilla.watsonhit.business.values.ValuesUtils;
-import fr.frezilla.watsonhit.reader.file.CsvReader;
-import java.io.BufferedWriter;
+import fr.frezilla.watsonhit.business.data.ColumnStatistics;
+import fr.frezilla.watsonhit.business.data.CsvFormatException;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import fr.frezilla.watsonhit.business.data.DataSetSnapshot;
+import fr.frezilla.watsonhit.business.engine.BlockNestedLoop;
+import fr.frezilla.watsonhit.business.engine.CacheEvictionPolicy;
+import fr.frezilla.watsonhit.business.engine.ComparisonEngine;
+import fr.frezilla.watsonhit.business.engine.DeltaPairSpace;
+import fr.frezilla.watsonhit.business.engine.PairScorer;
+import fr.frezilla.watsonhit.business.engine.PairSpace;
+import fr.frezilla.watsonhit.business.engine.ShardPairSpace;
+import fr.frezilla.watsonhit.business.engine.TriangularPairSpace;
+import fr.frezilla.watsonhit.business.result.BinaryResultReader;
+import fr.frezilla.watsonhit.business.result.MergingResultSink;
+import fr.frezilla.watsonhit.business.result.ResultFormat;
+import fr.frezilla.watsonhit.business.result.ResultMerger;
+import fr.frezilla.watsonhit.business.result.ResultSink;
+import fr.frezilla.watsonhit.reader.file.MappedCsvReader;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
-import java.io.Writer;
-import java.util.Date;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import lombok.NonNull;
 import me.tongfei.progressbar.ProgressBar;
@@ -26,8 +48,8 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.EnumUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.time.DateFormatUtils;
 import org.apache.log4j.Logger;
 import org.jdom2.JDOMException;
 
@@ -36,22 +58,56 @@ public final class WatsonHit {
     private static final int LINELENGTH = 80;
     private static final Logger LOGGER = Logger.getLogger(WatsonHit.class);
 
+    /**
+     * Nom du fichier de résultat désignant la sortie standard.
+     */
+    private static final String STANDARD_OUTPUT = "-";
+
+    /**
+     * Commande de fusion des résultats des lots, en premier argument.
+     */
+    private static final String MERGE_COMMAND = "merge";
+
+    /**
+     * Indique si le résultat doit être écrit sur la sortie standard.
+     * <p>
+     * Les arguments sont examinés avant leur analyse complète afin que les
+     * messages du traitement soient, dans ce cas, tous écrits sur la sortie
+     * d'erreur.
+     *
+     * @param args
+     * @return
+     */
+    private static boolean isResultOnStandardOutput(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (("-res".equals(args[i]) || "--resultFile".equals(args[i])) && i + 1 < args.length && STANDARD_OUTPUT.equals(args[i + 1])) {
+                return true;
+            }
+            if (("--resultFile=" + STANDARD_OUTPUT).equals(args[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Méthode main
      *
      * @param args
      */
     public static void main(String[] args) {
-        new WatsonHit().doMain(args);
+        new WatsonHit(isResultOnStandardOutput(args) ? System.err : System.out).doMain(args);
     }
 
     private final PrintStream outputStream;
 
     /**
      * Constructeur
+     *
+     * @param outputStream flux des messages du traitement
      */
-    private WatsonHit() {
-        outputStream = System.out;
+    private WatsonHit(@NonNull PrintStream outputStream) {
+        this.outputStream = outputStream;
     }
 
     /**
@@ -91,45 +147,31 @@ public final class WatsonHit {
     }
 
     /**
-     * Contrôle le fichier csv.
-     * <p>
-     * Le nombre de colonnes présentes dans le fichier doit être égal au nombre
-     * de colonnes définies dans le fichier de description lu au préalable.
+     * Vérifie la cohérence des paramètres du traitement
      *
-     * @param fileName nom du fichier csv
-     * @param csvDescription description du fichier csv
-     * @return Nombre de lignes du fichier
-     * @throws BusinessException
+     * @param parameters
      */
-    private int checkCsvFile(@NonNull String fileName, @NonNull CsvDescription csvDescription, @NonNull String csvDelimiter) throws BusinessException {
-        final int nbColumns = csvDescription.getColumnsDescription().size();
-        int nbLines = 0;
-        try {
-            CsvReader reader = CsvReader.builder(fileName).setDelimiter(csvDelimiter).build();
-            while (reader.hasNext()) {
-                nbLines++;
-                String[] row = reader.next();
-                if (nbColumns != row.length) {
-                    throw BusinessExceptions.csvFileFormatError.build(nbLines, nbColumns, row.length);
-                }
-            }
-
-            reader.close();
-        } catch (BusinessException | IOException e) {
-            LOGGER.error(e);
-            throw BusinessExceptions.csvFileError.build();
-        }
-        return nbLines;
+    private void checkParameters(@NonNull WatsonHitParameters parameters) throws BusinessException {
+        checkErrorMessages(WatsonHitParametersChecker.check(parameters));
     }
 
     /**
-     * Vérifie la cohérence des paramètres du traitement
+     * Vérifie la cohérence des paramètres du traitement avec la description
+     * du fichier csv
      *
      * @param parameters
+     * @param csvDescription
      */
-    private void checkParameters(@NonNull WatsonHitParameters parameters) throws BusinessException {
-        List<String> errorMessages = WatsonHitParametersChecker.check(parameters);
+    private void checkParameters(@NonNull WatsonHitParameters parameters, @NonNull CsvDescription csvDescription) throws BusinessException {
+        checkErrorMessages(WatsonHitParametersChecker.check(parameters, csvDescription));
+    }
 
+    /**
+     * Lève l'erreur des paramètres qui réunit les messages d'erreur.
+     *
+     * @param errorMessages messages d'erreur, aucune erreur si vide
+     */
+    private void checkErrorMessages(@NonNull List<String> errorMessages) throws BusinessException {
         if (!errorMessages.isEmpty()) {
             StringBuilder sb = new StringBuilder();
             errorMessages.forEach((msg) -> {
@@ -140,14 +182,72 @@ public final class WatsonHit {
     }
 
     /**
-     * Copie le fichier de travail vers le fichier de résultat
+     * Enregistre l'instantané du jeu de données.
+     * <p>
+     * Un instantané qui ne peut pas être enregistré n'interrompt pas le
+     * traitement : le jeu de données est déjà chargé, le fichier csv sera
+     * relu au prochain traitement.
+     *
+     * @param snapshot
+     * @param dataSet
+     * @return true si l'instantané est enregistré
+     */
+    private boolean saveSnapshot(@NonNull DataSetSnapshot snapshot, @NonNull DataSet dataSet) {
+        try {
+            snapshot.save(dataSet);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error(BusinessExceptions.snapshotFileError.build(snapshot.getFile().getPath()));
+            LOGGER.error(e);
+            return false;
+        }
+    }
+
+    /**
+     * Renomme le fichier de travail en fichier de résultat.
+     * <p>
+     * Le fichier de travail étant dans le même répertoire que le fichier de
+     * résultat, le renommage est atomique : le fichier de résultat n'est
+     * jamais visible partiellement écrit.
      *
-     * @param tempFile
+     * @param workingFile
      * @param resultFile
-     * @throws IOException
+     * @throws BusinessException
      */
-    private void copyFile(@NonNull File tempFile, @NonNull File resultFile) throws IOException {
-        FileUtils.copyFile(tempFile, resultFile);
+    private void moveFile(@NonNull File workingFile, @NonNull File resultFile) throws BusinessException {
+        try {
+            try {
+                Files.move(workingFile.toPath(), resultFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(workingFile.toPath(), resultFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOGGER.error(e);
+            throw BusinessExceptions.resultFileError.build(resultFile.getPath());
+        }
+    }
+
+    /**
+     * Découpe le fichier csv en blocs qui tiennent dans le budget mémoire.
+     *
+     * @param fileName nom du fichier csv
+     * @param csvDescription description du fichier csv
+     * @param csvDelimiter délimiteur des zones du fichier csv
+     * @param threads nombre de threads de lecture
+     * @param memoryBudget budget mémoire en Mo
+     * @return
+     * @throws BusinessException
+     */
+    private BlockNestedLoop createBlockNestedLoop(@NonNull String fileName, @NonNull CsvDescription csvDescription, @NonNull String csvDelimiter, int threads, int memoryBudget) throws BusinessException {
+        try {
+            return BlockNestedLoop.builder(fileName).setCsvDescription(csvDescription).setDelimiter(csvDelimiter).setThreads(threads).setMemoryBudget((long) memoryBudget << 20).build();
+        } catch (CsvFormatException e) {
+            LOGGER.error(BusinessExceptions.csvFileFormatError.build(e.getLineNumber(), e.getExpectedColumns(), e.getActualColumns()));
+            throw BusinessExceptions.csvFileError.build();
+        } catch (IOException e) {
+            LOGGER.error(e);
+            throw BusinessExceptions.csvFileError.build();
+        }
     }
 
     /**
@@ -162,26 +262,177 @@ public final class WatsonHit {
         options.addOption(Option.builder("desc").longOpt("csvDescriptorFile").desc("fichier de description du fichier csv").hasArg().required().build());
         options.addOption(Option.builder("csvin").longOpt("csvFile").desc("fichier csv à traiter").hasArg().required().build());
         options.addOption(Option.builder("taux").longOpt("minSimilarity").desc("taux de similarité au delà duquel on sauvegarde le résultat").hasArg().build());
-        options.addOption(Option.builder("res").longOpt("resultFile").desc("fichier de résultat").hasArg().required().build());
+        options.addOption(Option.builder("res").longOpt("resultFile").desc("fichier de résultat, " + STANDARD_OUTPUT + " pour écrire sur la sortie standard").hasArg().required().build());
+        options.addOption(Option.builder("fmt").longOpt("resultFormat").desc("format du fichier de résultat : HTML, CSV, JSONL ou BINARY (par défaut : HTML)").hasArg().build());
+        options.addOption(Option.builder("th").longOpt("threads").desc("nombre de threads utilisés pour la comparaison (par défaut : nombre de processeurs)").hasArg().build());
+        options.addOption(Option.builder("cache").longOpt("cacheSize").desc("nombre de paires de valeurs en cache par colonne, 0 pour désactiver le cache (par défaut : " + PairScorer.DEFAULT_CACHE_SIZE + ")").hasArg().build());
+        options.addOption(Option.builder("topk").longOpt("topK").desc("nombre de meilleurs partenaires conservés pour chaque ligne, 0 pour tout conserver (par défaut : 0)").hasArg().build());
+        options.addOption(Option.builder("topn").longOpt("topN").desc("nombre de meilleures paires conservées au total, 0 pour tout conserver (par défaut : 0)").hasArg().build());
+        options.addOption(Option.builder("delta").longOpt("deltaCsvFile").desc("fichier csv des nouvelles lignes : seules les paires qui comportent une nouvelle ligne sont comparées, les nouvelles lignes suivent celles du fichier csv à traiter").hasArg().build());
+        options.addOption(Option.builder("prev").longOpt("previousResultFile").desc("fichier de résultat au format BINARY du traitement précédent, fusionné avec les nouvelles paires en mode delta").hasArg().build());
+        options.addOption(Option.builder("snap").longOpt("snapshot").desc("charge le jeu de données depuis son instantané (fichier csv suivi de " + DataSetSnapshot.EXTENSION + ") s'il est à jour, sinon l'enregistre après la lecture du fichier csv").build());
+        options.addOption(Option.builder("mem").longOpt("memoryBudget").desc("budget mémoire en Mo : le fichier csv est comparé par blocs qui tiennent dans ce budget au lieu d'être chargé intégralement, 0 pour désactiver (par défaut : 0)").hasArg().build());
+        options.addOption(Option.builder("shard").longOpt("shard").desc("lot i/N traité par ce processus : seules les paires du i-ème des N lots de taille équivalente sont comparées ; les résultats BINARY des lots sont réunis par la commande " + MERGE_COMMAND + " (par défaut : 1/1)").hasArg().build());
+        options.addOption(Option.builder("clu").longOpt("clusters").desc("écrit les groupes de lignes similaires (lignes reliées par des paires similaires) avec leurs taux minimal et maximal au lieu des paires ; formats HTML, CSV ou JSONL").build());
+        options.addOption(Option.builder("evict").longOpt("cacheEvictionPolicy").desc("politique d'éviction du cache : LRU ou CLOCK (par défaut : CLOCK)").hasArg().build());
 
         return options;
     }
 
     /**
-     * Créé le fichier de résultat
+     * Créé l'ensemble des paires de lignes à comparer.
+     * <p>
+     * Lorsque la description définit des clés de blocage, seules les lignes
+     * qui partagent au moins une clé sont comparées ; lorsqu'elle définit un
+     * voisinage trié, seules les lignes proches dans l'ordre de tri d'une passe
+     * sont comparées ; lorsqu'elle définit MinHash, seules les lignes qui
+     * partagent une bande de leur signature sont comparées ; sinon toutes les
+     * paires de lignes sont comparées.
+     * <p>
+     * En mode delta, seules les paires qui comportent au moins une nouvelle
+     * ligne sont comparées.
+     *
+     * @param dataSet
+     * @param csvDescription
+     * @param firstNewRow index de la première nouvelle ligne, 0 hors mode
+     * delta
+     * @return
+     */
+    private PairSpace createPairSpace(@NonNull DataSet dataSet, @NonNull CsvDescription csvDescription, int firstNewRow) {
+        long nbRows = dataSet.size();
+
+        if (csvDescription.getSortedNeighbourhoodDescription() != null) {
+            printPadded("Tri des lignes pour le voisinage trié...");
+            SortedNeighbourhoodIndex sortedNeighbourhoodIndex = SortedNeighbourhoodIndex.builder(dataSet).setCsvDescription(csvDescription).build();
+            outputStream.println("[OK]");
+            outputStream.println(String.format("-> %d passes, fenêtre de %d lignes : %d paires candidates au plus (%d paires sans voisinage trié)", sortedNeighbourhoodIndex.getPassCount(), sortedNeighbourhoodIndex.getWindow(), sortedNeighbourhoodIndex.countCandidatePairs(), nbRows * (nbRows - 1) / 2));
+            return restrictToNewRows(sortedNeighbourhoodIndex, firstNewRow);
+        }
+        if (csvDescription.getMinHashDescription() != null) {
+            printPadded("Calcul des signatures MinHash...");
+            MinHashIndex minHashIndex = MinHashIndex.builder(dataSet).setCsvDescription(csvDescription).build();
+            outputStream.println("[OK]");
+            outputStream.println(String.format("-> %d bandes de %d valeurs : %d paires candidates au plus (%d paires sans MinHash)", minHashIndex.getBands(), minHashIndex.getRows(), minHashIndex.countCandidatePairs(), nbRows * (nbRows - 1) / 2));
+            outputStream.println(String.format("-> seuil de similarité de Jaccard des q-grammes : %.2f", minHashIndex.getThreshold()));
+            StringBuilder sb = new StringBuilder("-> probabilité de comparaison selon la similarité de Jaccard :");
+            for (double jaccard = 0.2; jaccard < 0.95; jaccard += 0.1) {
+                sb.append(String.format(" %.1f=%.1f%%", jaccard, minHashIndex.candidateProbability(jaccard) * 100.0));
+            }
+            outputStream.println(sb.toString());
+            return restrictToNewRows(minHashIndex, firstNewRow);
+        }
+        if (csvDescription.getBlockingKeysDescription().isEmpty()) {
+            return new TriangularPairSpace(dataSet.size(), firstNewRow);
+        }
+
+        printPadded("Construction des clés de blocage...");
+        BlockingIndex blockingIndex = BlockingIndex.builder(dataSet).setCsvDescription(csvDescription).build();
+        outputStream.println("[OK]");
+
+        List<CsvBlockingKeyDescription> keysDescriptions = csvDescription.getBlockingKeysDescription();
+        for (int k = 0; k < blockingIndex.getKeyCount(); k++) {
+            outputStream.println(String.format("-> clé %s : %d blocs, %d lignes dans le plus grand bloc", keysDescriptions.get(k), blockingIndex.getBlockCount(k), blockingIndex.getMaxBlockSize(k)));
+        }
+        outputStream.println(String.format("-> %d paires candidates au plus (%d paires sans blocage)", blockingIndex.countCandidatePairs(), nbRows * (nbRows - 1) / 2));
+
+        return restrictToNewRows(blockingIndex, firstNewRow);
+    }
+
+    /**
+     * Créé l'index des paires de lignes à comparer d'une paire de blocs, sans
+     * affichage.
+     * <p>
+     * En mode par blocs, les clés de blocage, le voisinage trié et MinHash
+     * sont appliqués à chaque paire de blocs : la fenêtre du voisinage trié
+     * porte sur les lignes des deux blocs et non sur l'ensemble du fichier.
+     *
+     * @param dataSet lignes de la paire de blocs
+     * @param csvDescription
+     * @return l'index, ou null pour comparer toutes les paires
+     */
+    private static PairSpace createIndex(@NonNull DataSet dataSet, @NonNull CsvDescription csvDescription) {
+        if (csvDescription.getSortedNeighbourhoodDescription() != null) {
+            return SortedNeighbourhoodIndex.builder(dataSet).setCsvDescription(csvDescription).build();
+        }
+        if (csvDescription.getMinHashDescription() != null) {
+            return MinHashIndex.builder(dataSet).setCsvDescription(csvDescription).build();
+        }
+        if (csvDescription.getBlockingKeysDescription().isEmpty()) {
+            return null;
+        }
+        return BlockingIndex.builder(dataSet).setCsvDescription(csvDescription).build();
+    }
+
+    /**
+     * Restreint un ensemble de paires au lot traité par ce processus.
+     *
+     * @param pairSpace
+     * @param shard numéro du lot, de 1 à <code>shardCount</code>
+     * @param shardCount nombre de lots
+     * @return
+     */
+    private PairSpace createShard(@NonNull PairSpace pairSpace, int shard, int shardCount) {
+        printPadded("Découpage des paires en lots...");
+        ShardPairSpace shardPairSpace = new ShardPairSpace(pairSpace, shard - 1, shardCount);
+        outputStream.println("[OK]");
+        outputStream.println(String.format("-> lot %d/%d : lignes %d à %d, %d paires au plus", shard, shardCount, shardPairSpace.getFirstRow(), shardPairSpace.getEndRow() - 1, shardPairSpace.countPairs()));
+        return shardPairSpace;
+    }
+
+    /**
+     * Créé l'instantané du jeu de données lié au fichier csv et à sa
+     * description.
+     *
+     * @param csvFile
+     * @param csvDescriptorFile
+     * @param csvDelimiter
+     * @return
+     * @throws BusinessException
+     */
+    private DataSetSnapshot createSnapshot(@NonNull String csvFile, @NonNull String csvDescriptorFile, @NonNull String csvDelimiter) throws BusinessException {
+        try {
+            return DataSetSnapshot.builder(csvFile).setDescriptionFileName(csvDescriptorFile).setDelimiter(csvDelimiter).build();
+        } catch (IOException e) {
+            LOGGER.error(e);
+            throw BusinessExceptions.csvFileError.build();
+        }
+    }
+
+    /**
+     * Créé la destination du résultat : les paires de lignes similaires, ou
+     * les groupes qu'elles forment.
+     *
+     * @param out flux de sortie, fermé par la destination
+     * @param dataSet
+     * @param csvDescription
+     * @param resultFormat format du fichier de résultat
+     * @param clusters écrit les groupes de lignes similaires au lieu des
+     * paires
+     * @param csvDelimiter délimiteur du fichier csv
+     * @param shard numéro du lot, de 1 à <code>shardCount</code>
+     * @param shardCount nombre de lots
+     * @return
+     */
+    private static ResultSink createResultSink(@NonNull OutputStream out, @NonNull DataSet dataSet, @NonNull CsvDescription csvDescription, @NonNull ResultFormat resultFormat, boolean clusters, @NonNull String csvDelimiter, int shard, int shardCount) {
+        return clusters ? resultFormat.createClusters(out, csvDescription, dataSet, dataSet.size(), csvDelimiter) : resultFormat.create(out, csvDescription, dataSet, dataSet.size(), shard - 1, shardCount, csvDelimiter);
+    }
+
+    /**
+     * Créé le fichier de travail dans lequel le résultat est écrit.
+     * <p>
+     * Le fichier de travail est créé dans le répertoire du fichier de
+     * résultat, il est renommé en fichier de résultat à la fin du traitement.
+     * Son nom est unique : plusieurs traitements peuvent écrire le même
+     * fichier de résultat sans partager leur fichier de travail.
      *
      * @param resultFile
      * @return
      * @throws BusinessException
      */
-    private File createResultFile(String resultFile) throws BusinessException {
+    private File createWorkingFile(String resultFile) throws BusinessException {
         try {
-            File f = new File(resultFile);
-            if (f.exists()) {
-                f.delete();
-            }
-            f.createNewFile();
-            return f;
+            File f = new File(resultFile).getAbsoluteFile();
+            return Files.createTempFile(f.getParentFile().toPath(), "." + f.getName(), ".tmp").toFile();
         } catch (IOException e) {
             LOGGER.error(e);
             throw BusinessExceptions.resultFileError.build(resultFile);
@@ -195,7 +446,7 @@ public final class WatsonHit {
      */
     private void displayHelp(@NonNull Options options) {
         final HelpFormatter formatter = new HelpFormatter();
-        formatter.printHelp(getClass().getName(), options, true);
+        formatter.printHelp(getClass().getName(), null, options, "\nFusion des résultats BINARY des lots : " + getClass().getName() + " " + MERGE_COMMAND + " [options] <fichier résultat du lot>...", true);
         System.exit(0);
     }
 
@@ -205,6 +456,7 @@ public final class WatsonHit {
      * @param args
      */
     private void doMain(String[] args) {
+        File workingFile = null;
         try {
             final Option helpOption = Option.builder("h").longOpt("help").desc("affiche l'aide").build();
             final Options helpOptions = new Options();
@@ -229,163 +481,230 @@ public final class WatsonHit {
 
             printPadded("Contrôle de la description du fichier csv...");
             checkCsvDescription(csvDescription);
+            checkParameters(parameters, csvDescription);
             outputStream.println("[OK]");
 
-            printPadded("Initialisation du fichier de résultat...");
-            File resultFile = createResultFile(parameters.getResultFile());
-            outputStream.println("[OK]");
+            final boolean standardOutput = STANDARD_OUTPUT.equals(parameters.getResultFile());
+            if (!standardOutput) {
+                printPadded("Initialisation du fichier de résultat...");
+                workingFile = createWorkingFile(parameters.getResultFile());
+                outputStream.println("[OK]");
+            }
 
-            printPadded("Vérification du fichier csv...");
-            int nbCsvLines = checkCsvFile(parameters.getCsvFile(), csvDescription, parameters.getCsvDelimiter());
-            outputStream.println("[OK]");
+            if (parameters.getMemoryBudget() > 0) {
+                printPadded("Découpage du fichier csv en blocs...");
+                BlockNestedLoop blockNestedLoop = createBlockNestedLoop(parameters.getCsvFile(), csvDescription, parameters.getCsvDelimiter(), parameters.getThreads(), parameters.getMemoryBudget());
+                outputStream.println("[OK]");
+                outputStream.println(String.format("-> %d blocs, %d paires de blocs à comparer", blockNestedLoop.getBlockCount(), blockNestedLoop.getBlockPairCount()));
+
+                outputStream.println("Comparaison des données par blocs...");
+                runBlocks(workingFile, blockNestedLoop, csvDescription, parameters.getMinSimilarity(), parameters.getThreads(), parameters.getCacheSize(), parameters.getCacheEvictionPolicy(), parameters.getResultFormat(), parameters.getCsvDelimiter());
+            } else {
+                DataSet dataSet = null;
+                DataSetSnapshot snapshot = null;
+                if (parameters.isSnapshot()) {
+                    printPadded("Chargement de l'instantané du jeu de données...");
+                    snapshot = createSnapshot(parameters.getCsvFile(), parameters.getCsvDescriptorFile(), parameters.getCsvDelimiter());
+                    dataSet = loadSnapshot(snapshot);
+                    outputStream.println(dataSet == null ? "[ABSENT]" : "[OK]");
+                }
+                if (dataSet == null) {
+                    printPadded("Chargement du fichier csv en mémoire...");
+                    dataSet = loadCsvFile(parameters.getCsvFile(), csvDescription, parameters.getCsvDelimiter(), parameters.getThreads());
+                    outputStream.println("[OK]");
+                    if (snapshot != null) {
+                        printPadded("Enregistrement de l'instantané du jeu de données...");
+                        outputStream.println(saveSnapshot(snapshot, dataSet) ? "[OK]" : "[ECHEC]");
+                    }
+                }
+                int firstNewRow = 0;
+                if (parameters.getDeltaCsvFile() != null) {
+                    printPadded("Chargement des nouvelles lignes en mémoire...");
+                    DataSet delta = loadCsvFile(parameters.getDeltaCsvFile(), csvDescription, parameters.getCsvDelimiter(), parameters.getThreads());
+                    firstNewRow = dataSet.size();
+                    dataSet = dataSet.append(delta);
+                    outputStream.println("[OK]");
+                    outputStream.println(String.format("-> %d nouvelles lignes ajoutées aux %d lignes déjà traitées", delta.size(), firstNewRow));
+                }
+                outputStream.println(String.format("-> %d lignes chargées, empreinte mémoire estimée : %s", dataSet.size(), FileUtils.byteCountToDisplaySize(dataSet.getMemoryFootprint())));
+                if (parameters.getMergedResultFiles() != null) {
+                    printPadded("Fusion des résultats des lots...");
+                    merge(workingFile, dataSet, parameters.getMergedResultFiles(), csvDescription, parameters.getResultFormat(), parameters.isClusters(), parameters.getCsvDelimiter());
+                    outputStream.println("[OK]");
+                } else {
+                    PairScorer scorer = new PairScorer(csvDescription, dataSet, parameters.getCacheSize(), parameters.getCacheEvictionPolicy());
+                    List<CsvColumnDescription> columnsDescriptions = csvDescription.getColumnsDescription();
+                    for (int i = 0; i < columnsDescriptions.size(); i++) {
+                        CsvColumnDescription d = columnsDescriptions.get(i);
+                        ColumnStatistics statistics = dataSet.getColumnStatistics(i);
+                        StringBuilder sb = new StringBuilder(String.format("-> colonne %s : longueur maximale %d, environ %d valeurs distinctes, %.1f%% de valeurs vides", d.getName(), statistics.getMaxLength(), statistics.getDistinctEstimate(), statistics.getEmptyRatio() * 100.0));
+                        if (!d.isId() && d.getWeight() != 0.0) {
+                            sb.append(String.format(", %d valeurs comparées distinctes%s", dataSet.getDictionary(i).length, scorer.isCacheComplete(i) ? " (toutes les paires en cache)" : scorer.isCached(i) ? " (cache borné)" : ""));
+                        }
+                        outputStream.println(sb.toString());
+                    }
 
-            outputStream.println("Comparaison des données...");
-            File tempFile = run(parameters.getCsvFile(), csvDescription, parameters.getCsvDelimiter(), nbCsvLines, parameters.getMinSimilarity());
+                    PairSpace pairSpace = createPairSpace(dataSet, csvDescription, firstNewRow);
+                    if (parameters.getShardCount() > 1) {
+                        pairSpace = createShard(pairSpace, parameters.getShard(), parameters.getShardCount());
+                    }
 
-            printPadded("Ecriture des résultats dans le fichier...");
-            copyFile(tempFile, resultFile);
-            outputStream.println("[OK]");
+                    outputStream.println("Comparaison des données...");
+                    run(workingFile, dataSet, pairSpace, scorer, csvDescription, parameters.getMinSimilarity(), parameters.getThreads(), parameters.getTopK(), parameters.getTopN(), parameters.getResultFormat(), parameters.isClusters(), parameters.getCsvDelimiter(), parameters.getPreviousResultFile(), firstNewRow, parameters.getShard(), parameters.getShardCount());
+                    for (int i = 0; i < columnsDescriptions.size(); i++) {
+                        if (scorer.isCached(i)) {
+                            long hits = scorer.getCacheHits(i);
+                            long misses = scorer.getCacheMisses(i);
+                            outputStream.println(String.format("-> cache de la colonne %s : %d succès, %d échecs (%.1f%% de succès)", columnsDescriptions.get(i).getName(), hits, misses, (hits + misses == 0) ? 0.0 : hits * 100.0 / (hits + misses)));
+                        }
+                    }
+                }
+            }
 
-            printPadded("Nettoyage des fichiers de travail...");
-            tempFile.delete();
-            outputStream.println("[OK]");
+            if (standardOutput) {
+                outputStream.println("Fin du traitement, le résultat a été écrit sur la sortie standard");
+            } else {
+                printPadded("Ecriture des résultats dans le fichier...");
+                moveFile(workingFile, new File(parameters.getResultFile()));
+                workingFile = null;
+                outputStream.println("[OK]");
 
-            outputStream.println("Fin du traitement, consultez le fichier <" + parameters.getResultFile() + "> pour visualiser le résultat du traitement");
+                outputStream.println("Fin du traitement, consultez le fichier <" + parameters.getResultFile() + "> pour visualiser le résultat du traitement");
+            }
         } catch (BusinessException e) {
             outputStream.println("[KO]\nL'erreur ci-dessous a été détectée, activez le mode debug pour avoir plus d'informations sur l'origine du problème.");
             outputStream.println("-> " + e.getMessage());
         } catch (Exception e) {
             outputStream.println("[KO]\nErreur bloquante non gérée, activez le mode debug pour avoir plus d'informations sur l'origine du problème.");
             outputStream.println(e);
+        } finally {
+            if (workingFile != null) {
+                workingFile.delete();
+            }
         }
     }
 
     /**
-     * Filtre et formatte le contenu des colonnes en fonction de leur
-     * description.
+     * Charge la description du fichier csv depuis un fichier au format xml.
      *
-     * @param wkColumns
-     * @param csvDescription
-     * @return
+     * @param fileName nom du fichier xml qui décrit le fichier csv
+     * @return Description
+     * @throws BusinessException
      */
-    private String[] filterAndFormatColumns(@NonNull String[] wkColumns, @NonNull CsvDescription csvDescription) {
-        List<CsvColumnDescription> columnsDescriptions = csvDescription.getColumnsDescription();
-        String[] columns = new String[wkColumns.length];
-
-        for (int i = 0; i < wkColumns.length; i++) {
-            CsvColumnDescription d = columnsDescriptions.get(i);
-            String value = null;
-            if (!d.isId()) {
-                value = wkColumns[i];
-                if (d.isIgnoreSpecialCharacters()) {
-                    value = ValuesUtils.replaceSpecialsCharacters(value);
-                }
-                if (!d.isMatchCase()) {
-                    value = ValuesUtils.toUppercase(value);
-                }
-            }
-            columns[i] = value;
+    private CsvDescription loadCsvDescription(@NonNull String fileName) throws BusinessException {
+        try {
+            return CsvDescription.builder(fileName).load();
+        } catch (ConfigurationException | IOException | JDOMException e) {
+            LOGGER.error(e);
+            throw BusinessExceptions.csvDescriptionError.build();
         }
-
-        return columns;
     }
 
     /**
-     * Finalise le fichier de travail.
+     * Charge le contenu du fichier csv en mémoire.
+     * <p>
+     * Le fichier est lu en une seule passe : le nombre de colonnes de chaque
+     * ligne doit être égal au nombre de colonnes définies dans le fichier de
+     * description lu au préalable.
      *
-     * @param writer
-     * @throws IOException
+     * @param fileName nom du fichier csv
+     * @param csvDescription description du fichier csv
+     * @param csvDelimiter délimiteur des zones du fichier csv
+     * @param threads nombre de threads de lecture
+     * @return Jeu de données
+     * @throws BusinessException
      */
-    private void finalizeWorkingFile(@NonNull Writer writer) throws IOException {
-        writer.write(String.format("</table></div><p>Document généré le %s</p></body>", DateFormatUtils.format(new Date(), "dd/MM/yyyy à HH:mm:ss")));
+    private DataSet loadCsvFile(@NonNull String fileName, @NonNull CsvDescription csvDescription, @NonNull String csvDelimiter, int threads) throws BusinessException {
+        try {
+            DataSet dataSet = DataSet.builder(fileName).setCsvDescription(csvDescription).setDelimiter(csvDelimiter).setThreads(threads).load();
+            LOGGER.info(String.format("%d lignes chargées en mémoire (%d octets estimés)", dataSet.size(), dataSet.getMemoryFootprint()));
+            return dataSet;
+        } catch (CsvFormatException e) {
+            LOGGER.error(BusinessExceptions.csvFileFormatError.build(e.getLineNumber(), e.getExpectedColumns(), e.getActualColumns()));
+            throw BusinessExceptions.csvFileError.build();
+        } catch (IOException e) {
+            LOGGER.error(e);
+            throw BusinessExceptions.csvFileError.build();
+        }
     }
 
     /**
-     * Insère le résultats des comparaisons dans le fichier.
+     * Charge le jeu de données depuis son instantané.
+     * <p>
+     * Un instantané illisible est ignoré : le fichier csv est alors relu et
+     * l'instantané remplacé.
      *
-     * @param writer
-     * @param csvDescription
-     * @param columns1
-     * @param columns2
-     * @param similarity
-     * @throws IOException
+     * @param snapshot
+     * @return Jeu de données ou null si l'instantané n'est pas utilisable
      */
-    private void insertResultInWorkingFile(Writer writer, CsvDescription csvDescription, String[] columns1, String[] columns2, double similarity) throws IOException {
-        StringBuilder sb1 = new StringBuilder();
-        StringBuilder sb2 = new StringBuilder();
-
-        List<CsvColumnDescription> columnsDescriptions = csvDescription.getColumnsDescription();
-
-        int i = 0;
-        for (CsvColumnDescription d : columnsDescriptions) {
-            if (d.isId() || d.isDisplayed()) {
-                sb1.append("<td>").append(columns1[i]).append("</td>");
-                sb2.append("<td>").append(columns2[i]).append("</td>");
-            }
-            i++;
+    private DataSet loadSnapshot(@NonNull DataSetSnapshot snapshot) {
+        try {
+            return snapshot.load();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error(e);
+            return null;
         }
-        writer.write("<tr>" + sb1.toString() + sb2.toString() + String.format("<td>%.2f</td>", similarity) + "</tr>");
     }
 
     /**
-     * Initialise le contenu du fichier de travail
+     * Restreint un ensemble de paires aux paires qui comportent au moins une
+     * nouvelle ligne.
      *
-     * @param workingFile
-     * @param csvDescription
+     * @param pairSpace
+     * @param firstNewRow index de la première nouvelle ligne, 0 hors mode
+     * delta
+     * @return
      */
-    private void intializeWorkingFile(@NonNull Writer writer, @NonNull CsvDescription csvDescription) throws IOException {
-        writer.write("<!DOCTYPE html>"
-                + "<html>"
-                + "<head>"
-                + "<meta name=\"viewport\" content=\"width=device-width, initial-scale=1\">"
-                + "<style>"
-                + "table {"
-                + "border-collapse: collapse;"
-                + "border-spacing: 0;"
-                + "width: 100%;"
-                + "border: 1px solid #ddd;"
-                + "}"
-                + " "
-                + "th, td {"
-                + "text-align: left;"
-                + "padding: 8px;"
-                + "}"
-                + " "
-                + "tr:nth-child(even){background-color: #f2f2f2}"
-                + "</style>"
-                + "</head>"
-                + "<body>"
-                + " "
-                + "<h2>Résultat de la recherche lignes similaires</h2>"
-                + " "
-                + "<div style=\"overflow-x:auto;\">"
-                + "<table>"
-                + "<tr>");
-        List<CsvColumnDescription> columnsDescriptions = csvDescription.getColumnsDescription();
-        StringBuilder sb1 = new StringBuilder();
-        StringBuilder sb2 = new StringBuilder();
-        columnsDescriptions.forEach(d -> {
-            if (d.isDisplayed() || d.isId()) {
-                sb1.append("<th>").append(d.getName()).append("&nbsp;<small>(1)</small></th>");
-                sb2.append("<th>").append(d.getName()).append("&nbsp;<small>(2)</small></th>");
-            }
-        });
-        writer.write(sb1.toString() + sb2.toString() + "<th>Taux</th></tr>");
+    private static PairSpace restrictToNewRows(@NonNull PairSpace pairSpace, int firstNewRow) {
+        return (firstNewRow == 0) ? pairSpace : new DeltaPairSpace(pairSpace, firstNewRow);
     }
 
     /**
-     * Charge la description du fichier csv depuis un fichier au format xml.
+     * Fusionne les résultats binaires des lots.
+     * <p>
+     * Le résultat est écrit dans le fichier de travail, ou sur la sortie
+     * standard, dans l'ordre d'un traitement unique.
      *
-     * @param fileName nom du fichier xml qui décrit le fichier csv
-     * @return Description
+     * @param workingFile fichier de travail, null pour écrire sur la sortie
+     * standard
+     * @param dataSet
+     * @param resultFiles résultats des lots au format BINARY
+     * @param csvDescription
+     * @param resultFormat format du fichier de résultat
+     * @param clusters écrit les groupes de lignes similaires au lieu des
+     * paires
+     * @param csvDelimiter délimiteur du fichier csv
      * @throws BusinessException
      */
-    private CsvDescription loadCsvDescription(@NonNull String fileName) throws BusinessException {
+    private void merge(File workingFile, @NonNull DataSet dataSet, @NonNull List<String> resultFiles, @NonNull CsvDescription csvDescription, @NonNull ResultFormat resultFormat, boolean clusters, @NonNull String csvDelimiter) throws BusinessException {
+        List<BinaryResultReader> readers = new ArrayList<>();
         try {
-            return CsvDescription.builder(fileName).load();
-        } catch (ConfigurationException | IOException | JDOMException e) {
+            for (String resultFile : resultFiles) {
+                try {
+                    readers.add(new BinaryResultReader(resultFile));
+                } catch (IOException e) {
+                    LOGGER.error(e);
+                    throw BusinessExceptions.binaryResultFileError.build(resultFile);
+                }
+            }
+
+            OutputStream out = workingFile == null ? new FileOutputStream(FileDescriptor.out) : new FileOutputStream(workingFile);
+            try (ResultSink sink = createResultSink(out, dataSet, csvDescription, resultFormat, clusters, csvDelimiter, 1, 1)) {
+                sink.begin();
+                ResultMerger.merge(readers, dataSet.size(), sink);
+                sink.end();
+            }
+        } catch (IOException e) {
             LOGGER.error(e);
-            throw BusinessExceptions.csvDescriptionError.build();
+            throw BusinessExceptions.ioError.build();
+        } finally {
+            for (BinaryResultReader reader : readers) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    LOGGER.error(e);
+                }
+            }
         }
     }
 
@@ -401,20 +720,38 @@ public final class WatsonHit {
         try {
             CommandLineParser parser = new DefaultParser();
 
-            CommandLine cmd = parser.parse(helpOptions, args, true);
+            final boolean merge = args.length > 0 && MERGE_COMMAND.equals(args[0]);
+            final String[] arguments = merge ? Arrays.copyOfRange(args, 1, args.length) : args;
+
+            CommandLine cmd = parser.parse(helpOptions, arguments, true);
 
             WatsonHitParameters parameters;
 
             if (cmd.hasOption("help")) {
                 parameters = new WatsonHitParameters(true);
             } else {
-                cmd = parser.parse(options, args);
+                cmd = parser.parse(options, arguments);
+                String[] shard = StringUtils.split(cmd.hasOption("shard") ? cmd.getOptionValue("shard") : "1/1", '/');
                 parameters = new WatsonHitParameters(
-                        cmd.hasOption("csvDelimiter") ? cmd.getOptionValue("csvDelimiter") : CsvReader.DEFAULT_DELIMITER,
+                        cmd.hasOption("csvDelimiter") ? cmd.getOptionValue("csvDelimiter") : MappedCsvReader.DEFAULT_DELIMITER,
                         cmd.getOptionValue("csvDescriptorFile"),
                         cmd.getOptionValue("csvFile"),
                         cmd.hasOption("minSimilarity") ? Double.parseDouble(cmd.getOptionValue("minSimilarity")) : 0.0,
-                        cmd.getOptionValue("resultFile"));
+                        cmd.getOptionValue("resultFile"),
+                        cmd.hasOption("resultFormat") ? EnumUtils.getEnumIgnoreCase(ResultFormat.class, cmd.getOptionValue("resultFormat")) : ResultFormat.HTML,
+                        cmd.hasOption("threads") ? Integer.parseInt(cmd.getOptionValue("threads")) : Runtime.getRuntime().availableProcessors(),
+                        cmd.hasOption("cacheSize") ? Integer.parseInt(cmd.getOptionValue("cacheSize")) : PairScorer.DEFAULT_CACHE_SIZE,
+                        cmd.hasOption("cacheEvictionPolicy") ? EnumUtils.getEnumIgnoreCase(CacheEvictionPolicy.class, cmd.getOptionValue("cacheEvictionPolicy")) : CacheEvictionPolicy.CLOCK,
+                        cmd.hasOption("topK") ? Integer.parseInt(cmd.getOptionValue("topK")) : 0,
+                        cmd.hasOption("topN") ? Integer.parseInt(cmd.getOptionValue("topN")) : 0,
+                        cmd.hasOption("snapshot"),
+                        cmd.getOptionValue("deltaCsvFile"),
+                        cmd.getOptionValue("previousResultFile"),
+                        cmd.hasOption("memoryBudget") ? Integer.parseInt(cmd.getOptionValue("memoryBudget")) : 0,
+                        shard.length == 2 ? Integer.parseInt(shard[0]) : 0,
+                        shard.length == 2 ? Integer.parseInt(shard[1]) : 0,
+                        merge ? cmd.getArgList() : null,
+                        cmd.hasOption("clusters"));
             }
             return parameters;
         } catch (ParseException e) {
@@ -437,84 +774,109 @@ public final class WatsonHit {
 
     /**
      * Exécute le traitement de comparaison des lignes du fichier.
+     * <p>
+     * Les lignes sont lues depuis le jeu de données chargé en mémoire ; les
+     * paires de lignes sont comparées par le moteur de comparaison parallèle.
+     * Le résultat est écrit au fil de l'eau dans le fichier de travail, ou
+     * sur la sortie standard.
      *
-     * @param fileName
+     * @param workingFile fichier de travail, null pour écrire sur la sortie
+     * standard
+     * @param dataSet
+     * @param pairSpace
+     * @param scorer
      * @param csvDescription
-     * @param csvDelimiter
-     * @param nbCsvLines
      * @param minSimilarity
-     * @return
+     * @param threads
+     * @param topK nombre de partenaires conservés par ligne, 0 pour tout
+     * conserver
+     * @param topN nombre de paires conservées au total, 0 pour tout conserver
+     * @param resultFormat format du fichier de résultat
+     * @param clusters écrit les groupes de lignes similaires au lieu des
+     * paires
+     * @param csvDelimiter délimiteur du fichier csv
+     * @param previousResultFile résultat binaire du traitement précédent,
+     * fusionné avec les nouvelles paires en mode delta (null si absent)
+     * @param firstNewRow index de la première nouvelle ligne, 0 hors mode
+     * delta
+     * @param shard numéro du lot comparé, de 1 à <code>shardCount</code>
+     * @param shardCount nombre de lots
      * @throws BusinessException
      */
-    private File run(@NonNull String fileName, @NonNull CsvDescription csvDescription, @NonNull String csvDelimiter, int nbCsvLines, double minSimilarity) throws BusinessException {
+    private void run(File workingFile, @NonNull DataSet dataSet, @NonNull PairSpace pairSpace, @NonNull PairScorer scorer, @NonNull CsvDescription csvDescription, double minSimilarity, int threads, int topK, int topN, @NonNull ResultFormat resultFormat, boolean clusters, @NonNull String csvDelimiter, String previousResultFile, int firstNewRow, int shard, int shardCount) throws BusinessException {
         try {
-            File workingFile = File.createTempFile("watsonHit", ".temp");
-
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(workingFile))) {
-                intializeWorkingFile(writer, csvDescription);
-
-                CsvReader.Builder builder = CsvReader.builder(fileName).setDelimiter(csvDelimiter);
-                CsvReader mainReader = builder.build();
-
-                SimilarityAlgorithm jaroAlgo = SimilarityAlgorithms.JARO.getAlgorithm();
-                SimilarityAlgorithm jaroWinklerAlgo = SimilarityAlgorithms.JARO_WINKLER.getAlgorithm();
-
-                List<CsvColumnDescription> columnsDescriptions = csvDescription.getColumnsDescription();
-
-                int currentLineMainReader = 0;
-
-                try (ProgressBar progressBar = new ProgressBar("", nbCsvLines, ProgressBarStyle.ASCII)) {
-
-                    while (mainReader.hasNext()) {
-                        currentLineMainReader++;
-                        String[] mainColumns = mainReader.next();
-                        String[] mainColumnsToCompare = filterAndFormatColumns(mainColumns, csvDescription);
-
-                        CsvReader reader = builder.build();
-                        int currentLine = 0;
-                        while (reader.hasNext()) {
-                            currentLine++;
-                            String[] wkColumns = reader.next();
-                            if (currentLine > currentLineMainReader) {
-                                String[] currentColumns = wkColumns;
-                                String[] currentColumnsToCompare = filterAndFormatColumns(currentColumns, csvDescription);
-
-                                double similarity = 0.0;
-                                double totalWeight = 0.0;
-                                for (int i = 0; i < mainColumnsToCompare.length; i++) {
-                                    double weight = columnsDescriptions.get(i).getWeight();
-                                    if (weight != 0.0 && mainColumnsToCompare[i] != null && currentColumnsToCompare[i] != null) {
-                                        if (mainColumnsToCompare[i].length() == 0 || currentColumnsToCompare[i].length() == 0) {
-                                            similarity += 0.0;
-                                        } else if (mainColumnsToCompare[i].equals(currentColumns[i])) {
-                                            similarity += 1.0 * weight;
-                                        } else {
-                                            double d1 = jaroAlgo.getHitRate(mainColumnsToCompare[i], currentColumnsToCompare[i]);
-                                            double d2 = jaroWinklerAlgo.getHitRate(mainColumnsToCompare[i], currentColumnsToCompare[i]);
-
-                                            similarity += weight * (d1 + d2) / 2;
-                                        }
-                                        totalWeight += weight;
-                                    }
-                                }
-                                similarity = (totalWeight == 0.0) ? 0.0 : similarity / totalWeight * 100.0;
-                                if (similarity >= minSimilarity) {
-                                    insertResultInWorkingFile(writer, csvDescription, mainColumns, currentColumns, similarity);
-                                }
-                            }
-                        }
-                        reader.close();
-                        progressBar.step();
-                    }
+            OutputStream out = workingFile == null ? new FileOutputStream(FileDescriptor.out) : new FileOutputStream(workingFile);
+
+            ResultSink resultSink = createResultSink(out, dataSet, csvDescription, resultFormat, clusters, csvDelimiter, shard, shardCount);
+            if (previousResultFile != null) {
+                try {
+                    resultSink = new MergingResultSink(resultSink, new BinaryResultReader(previousResultFile), firstNewRow);
+                } catch (IOException e) {
+                    resultSink.close();
+                    LOGGER.error(e);
+                    throw BusinessExceptions.binaryResultFileError.build(previousResultFile);
+                }
+            }
+
+            try (ResultSink sink = resultSink) {
+                sink.begin();
+
+                ComparisonEngine engine = ComparisonEngine.builder().setMinSimilarity(minSimilarity).setThreads(threads).setTopK(topK).setTopN(topN).build();
+
+                try (ProgressBar progressBar = new ProgressBar("", dataSet.size(), ProgressBarStyle.ASCII)) {
+                    engine.run(pairSpace, scorer, sink, progressBar::stepBy);
                 }
                 outputStream.println();
-                mainReader.close();
 
-                finalizeWorkingFile(writer);
+                sink.end();
+            }
+        } catch (IOException e) {
+            LOGGER.error(e);
+            throw BusinessExceptions.ioError.build();
+        }
+    }
 
-                writer.flush();
+    /**
+     * Exécute le traitement de comparaison des lignes du fichier par blocs.
+     * <p>
+     * Seuls les blocs de la paire de blocs en cours sont chargés en mémoire.
+     * Le résultat est écrit au fil de l'eau, par paire de blocs, dans le
+     * fichier de travail ou sur la sortie standard.
+     *
+     * @param workingFile fichier de travail, null pour écrire sur la sortie
+     * standard
+     * @param blockNestedLoop
+     * @param csvDescription
+     * @param minSimilarity
+     * @param threads
+     * @param cacheSize nombre de paires de valeurs en cache par colonne
+     * @param cacheEvictionPolicy politique d'éviction du cache
+     * @param resultFormat format du fichier de résultat
+     * @param csvDelimiter délimiteur du fichier csv
+     * @throws BusinessException
+     */
+    private void runBlocks(File workingFile, @NonNull BlockNestedLoop blockNestedLoop, @NonNull CsvDescription csvDescription, double minSimilarity, int threads, int cacheSize, @NonNull CacheEvictionPolicy cacheEvictionPolicy, @NonNull ResultFormat resultFormat, @NonNull String csvDelimiter) throws BusinessException {
+        try {
+            OutputStream out = workingFile == null ? new FileOutputStream(FileDescriptor.out) : new FileOutputStream(workingFile);
+
+            try (ResultSink sink = resultFormat.create(out, csvDescription, blockNestedLoop.getRows(), csvDelimiter)) {
+                sink.begin();
+
+                ComparisonEngine engine = ComparisonEngine.builder().setMinSimilarity(minSimilarity).setThreads(threads).build();
+
+                try (ProgressBar progressBar = new ProgressBar("", blockNestedLoop.getBlockPairCount(), ProgressBarStyle.ASCII)) {
+                    blockNestedLoop.run(engine,
+                            dataSet -> new PairScorer(csvDescription, dataSet, cacheSize, cacheEvictionPolicy),
+                            dataSet -> createIndex(dataSet, csvDescription),
+                            sink, progressBar::stepBy);
+                }
+                outputStream.println();
+
+                sink.end();
             }
-            return workingFile;
+        } catch (CsvFormatException e) {
+            LOGGER.error(BusinessExceptions.csvFileFormatError.build(e.getLineNumber(), e.getExpectedColumns(), e.getActualColumns()));
+            throw BusinessExceptions.csvFileError.build();
         } catch (IOException e) {
             LOGGER.error(e);
             throw BusinessExceptions.ioError.build();
@@ -1,5 +1,8 @@
 package fr.frezilla.watsonhit;
 
+import fr.frezilla.watsonhit.business.engine.CacheEvictionPolicy;
+import fr.frezilla.watsonhit.business.result.ResultFormat;
+import java.util.List;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
@@ -7,6 +10,12 @@ import lombok.NonNull;
 @Getter(AccessLevel.PACKAGE)
 class WatsonHitParameters {
 
+    private final CacheEvictionPolicy cacheEvictionPolicy;
+
+    private int cacheSize;
+
+    private boolean clusters;
+
     @NonNull
     private final String csvDelimiter;
 
@@ -15,31 +24,72 @@ class WatsonHitParameters {
 
     @NonNull
     private final String csvFile;
+
+    private final String deltaCsvFile;
     
     private boolean helpMode;
 
+    private int memoryBudget;
+
+    private final List<String> mergedResultFiles;
+
     private double minSimilarity;
+
+    private final String previousResultFile;
     
     @NonNull
     private final String resultFile;
 
+    private final ResultFormat resultFormat;
+
+    private int shard;
+
+    private int shardCount;
+
+    private boolean snapshot;
+
+    private int threads;
+
+    private int topK;
+
+    private int topN;
+
     WatsonHitParameters(boolean helpMode) {
+        this.cacheEvictionPolicy = null;
         this.csvDelimiter = null;
         this.csvDescriptorFile = null;
         this.csvFile = null;
+        this.deltaCsvFile = null;
         this.helpMode = helpMode;
+        this.mergedResultFiles = null;
+        this.previousResultFile = null;
         this.resultFile = null;
+        this.resultFormat = null;
     }
 
-    WatsonHitParameters(String csvDelimiter, String csvDescriptorFile, String csvFile, double minSimilarity, String resultFile) {
+    WatsonHitParameters(String csvDelimiter, String csvDescriptorFile, String csvFile, double minSimilarity, String resultFile, ResultFormat resultFormat, int threads, int cacheSize, CacheEvictionPolicy cacheEvictionPolicy, int topK, int topN, boolean snapshot, String deltaCsvFile, String previousResultFile, int memoryBudget, int shard, int shardCount, List<String> mergedResultFiles, boolean clusters) {
         if (minSimilarity < 0.0 || minSimilarity > 100.0) {
             throw new IllegalArgumentException();
         }
+        this.cacheEvictionPolicy = cacheEvictionPolicy;
+        this.cacheSize = cacheSize;
+        this.clusters = clusters;
         this.csvDelimiter = csvDelimiter;
         this.csvDescriptorFile = csvDescriptorFile;
         this.csvFile = csvFile;
+        this.deltaCsvFile = deltaCsvFile;
+        this.memoryBudget = memoryBudget;
+        this.mergedResultFiles = mergedResultFiles;
         this.minSimilarity = minSimilarity;
+        this.previousResultFile = previousResultFile;
         this.resultFile = resultFile;
+        this.resultFormat = resultFormat;
+        this.shard = shard;
+        this.shardCount = shardCount;
+        this.snapshot = snapshot;
+        this.threads = threads;
+        this.topK = topK;
+        this.topN = topN;
     }
 
     @Override
@@ -47,7 +97,20 @@ class WatsonHitParameters {
         return String.format("-> délimiteur csv : <%s>\n"
                 + "-> fichier de description : <%s>\n"
                 + "-> fichier csv : <%s>\n"
-                + "-> fichier résultat : <%s>",
-                csvDelimiter, csvDescriptorFile, csvFile, resultFile);
+                + "-> fichier résultat : <%s>\n"
+                + "-> format du fichier résultat : <%s>\n"
+                + "-> nombre de threads : <%d>\n"
+                + "-> taille du cache : <%d>\n"
+                + "-> politique d'éviction du cache : <%s>\n"
+                + "-> meilleurs partenaires par ligne : <%d>\n"
+                + "-> meilleures paires au total : <%d>\n"
+                + "-> instantané du jeu de données : <%b>\n"
+                + "-> fichier csv des nouvelles lignes : <%s>\n"
+                + "-> fichier résultat précédent : <%s>\n"
+                + "-> budget mémoire du mode par blocs (Mo) : <%d>\n"
+                + "-> lot : <%d/%d>\n"
+                + "-> fichiers résultat à fusionner : <%s>\n"
+                + "-> groupes de lignes similaires : <%b>",
+                csvDelimiter, csvDescriptorFile, csvFile, resultFile, resultFormat, threads, cacheSize, cacheEvictionPolicy, topK, topN, snapshot, deltaCsvFile, previousResultFile, memoryBudget, shard, shardCount, mergedResultFiles, clusters);
     }
 }
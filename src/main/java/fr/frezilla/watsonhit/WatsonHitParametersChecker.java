@@ -1,5 +1,8 @@
 package fr.frezilla.watsonhit;
 
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.engine.CacheEvictionPolicy;
+import fr.frezilla.watsonhit.business.result.ResultFormat;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
@@ -19,13 +22,72 @@ class WatsonHitParametersChecker {
     static List<String> check(@NonNull WatsonHitParameters parameters) {
         List<String> errorMessages = new ArrayList<>();
 
+        addIfNotEmpty(errorMessages, checkCacheEvictionPolicy(parameters.getCacheEvictionPolicy()));
+        addIfNotEmpty(errorMessages, checkCacheSize(parameters.getCacheSize()));
+        addIfNotEmpty(errorMessages, checkClusters(parameters));
         addIfNotEmpty(errorMessages, checkDescriptorFile(parameters.getCsvDescriptorFile()));
         addIfNotEmpty(errorMessages, checkCsvFile(parameters.getCsvFile()));
+        addIfNotEmpty(errorMessages, checkDeltaCsvFile(parameters.getDeltaCsvFile()));
+        addIfNotEmpty(errorMessages, checkMemoryBudget(parameters));
+        addIfNotEmpty(errorMessages, checkMergedResultFiles(parameters));
+        addIfNotEmpty(errorMessages, checkPreviousResultFile(parameters));
         addIfNotEmpty(errorMessages, checkResultFile(parameters.getResultFile()));
+        addIfNotEmpty(errorMessages, checkResultFormat(parameters.getResultFormat()));
+        addIfNotEmpty(errorMessages, checkShard(parameters));
+        addIfNotEmpty(errorMessages, checkThreads(parameters.getThreads()));
+        addIfNotEmpty(errorMessages, checkTopK(parameters.getTopK()));
+        addIfNotEmpty(errorMessages, checkTopN(parameters.getTopN()));
 
         return errorMessages;
     }
 
+    /**
+     * Contrôle les paramètres qui dépendent de la description du fichier csv.
+     *
+     * @param parameters
+     * @param csvDescription
+     * @return
+     */
+    static List<String> check(@NonNull WatsonHitParameters parameters, @NonNull CsvDescription csvDescription) {
+        List<String> errorMessages = new ArrayList<>();
+
+        addIfNotEmpty(errorMessages, checkPreviousResultFile(parameters, csvDescription));
+
+        return errorMessages;
+    }
+
+    private static String checkCacheEvictionPolicy(CacheEvictionPolicy cacheEvictionPolicy) {
+        String msg;
+        if (cacheEvictionPolicy == null) {
+            msg = "la politique d'éviction du cache doit être LRU ou CLOCK";
+        } else {
+            msg = null;
+        }
+        return msg;
+    }
+
+    private static String checkCacheSize(int cacheSize) {
+        String msg;
+        if (cacheSize < 0) {
+            msg = "la taille du cache doit être supérieure ou égale à 0";
+        } else {
+            msg = null;
+        }
+        return msg;
+    }
+
+    private static String checkClusters(@NonNull WatsonHitParameters parameters) {
+        String msg = null;
+        if (parameters.isClusters()) {
+            if (parameters.getResultFormat() != null && !parameters.getResultFormat().isClusterSupported()) {
+                msg = String.format("le format %s ne permet pas d'écrire les groupes de lignes similaires", parameters.getResultFormat());
+            } else if (parameters.getMemoryBudget() > 0 || parameters.getShardCount() > 1) {
+                msg = "les groupes de lignes similaires ne peuvent pas être écrits en mode par blocs ou pour un lot, utilisez la fusion des lots";
+            }
+        }
+        return msg;
+    }
+
     private static String checkCsvFile(String fileName) {
         String msg = null;
         if (StringUtils.isEmpty(StringUtils.trim(fileName))) {
@@ -39,6 +101,17 @@ class WatsonHitParametersChecker {
         return msg;
     }
 
+    private static String checkDeltaCsvFile(String fileName) {
+        String msg = null;
+        if (fileName != null) {
+            String m = checkFileToRead(new File(fileName));
+            if (m != null) {
+                msg = String.format(m, fileName);
+            }
+        }
+        return msg;
+    }
+
     private static String checkDescriptorFile(String fileName) {
         String msg = null;
         if (StringUtils.isEmpty(StringUtils.trim(fileName))) {
@@ -64,6 +137,75 @@ class WatsonHitParametersChecker {
         return msg;
     }
 
+    private static String checkMemoryBudget(@NonNull WatsonHitParameters parameters) {
+        String msg;
+        if (parameters.getMemoryBudget() < 0) {
+            msg = "le budget mémoire doit être supérieur ou égal à 0";
+        } else if (parameters.getMemoryBudget() > 0 && (parameters.getTopK() > 0 || parameters.getTopN() > 0 || parameters.isSnapshot() || parameters.getDeltaCsvFile() != null)) {
+            msg = "le mode par blocs ne peut pas être utilisé avec les meilleures paires, l'instantané ou le mode delta";
+        } else {
+            msg = null;
+        }
+        return msg;
+    }
+
+    private static String checkMergedResultFiles(@NonNull WatsonHitParameters parameters) {
+        String msg = null;
+        List<String> fileNames = parameters.getMergedResultFiles();
+        if (fileNames != null) {
+            if (fileNames.isEmpty()) {
+                msg = "aucun fichier résultat à fusionner n'est renseigné";
+            } else if (parameters.getMemoryBudget() > 0 || parameters.getPreviousResultFile() != null || parameters.getShardCount() > 1) {
+                msg = "la fusion ne peut pas être utilisée avec le mode par blocs, le résultat précédent ou le découpage en lots";
+            } else if (parameters.getTopK() > 0 || parameters.getTopN() > 0 || parameters.getMinSimilarity() > 0.0) {
+                msg = "la fusion ne peut pas être utilisée avec les meilleures paires ou un taux de similarité : ils s'appliquent aux lots";
+            } else {
+                for (String fileName : fileNames) {
+                    String m = checkFileToRead(new File(fileName));
+                    if (m != null) {
+                        msg = String.format(m, fileName);
+                        break;
+                    }
+                }
+            }
+        }
+        return msg;
+    }
+
+    private static String checkPreviousResultFile(@NonNull WatsonHitParameters parameters) {
+        final String fileName = parameters.getPreviousResultFile();
+        String msg = null;
+        if (fileName != null) {
+            if (parameters.getDeltaCsvFile() == null) {
+                msg = "le fichier résultat précédent ne peut être utilisé qu'avec un fichier csv de nouvelles lignes";
+            } else if (parameters.getTopK() > 0 || parameters.getTopN() > 0) {
+                msg = "le fichier résultat précédent ne peut pas être utilisé avec les meilleures paires";
+            } else {
+                String m = checkFileToRead(new File(fileName));
+                if (m != null) {
+                    msg = String.format(m, fileName);
+                }
+            }
+        }
+        return msg;
+    }
+
+    /**
+     * Le voisinage trié n'est pas compatible avec le résultat précédent : les
+     * nouvelles lignes déplacent les fenêtres des anciennes lignes, des paires
+     * d'anciennes lignes du résultat précédent ne seraient plus comparées par
+     * un traitement complet.
+     */
+    private static String checkPreviousResultFile(@NonNull WatsonHitParameters parameters, @NonNull CsvDescription csvDescription) {
+        String msg;
+        if (parameters.getPreviousResultFile() != null && csvDescription.getSortedNeighbourhoodDescription() != null) {
+            msg = "le fichier résultat précédent ne peut pas être utilisé avec le voisinage trié";
+        } else {
+            msg = null;
+        }
+        return msg;
+    }
+
     private static String checkResultFile(String fileName) {
         String msg;
         if (StringUtils.isEmpty(StringUtils.trim(fileName))) {
@@ -73,4 +215,56 @@ class WatsonHitParametersChecker {
         }
         return msg;
     }
+
+    private static String checkResultFormat(ResultFormat resultFormat) {
+        String msg;
+        if (resultFormat == null) {
+            msg = "le format du fichier résultat doit être HTML, CSV, JSONL ou BINARY";
+        } else {
+            msg = null;
+        }
+        return msg;
+    }
+
+    private static String checkShard(@NonNull WatsonHitParameters parameters) {
+        String msg;
+        if (parameters.getShardCount() < 1 || parameters.getShard() < 1 || parameters.getShard() > parameters.getShardCount()) {
+            msg = "le lot doit être de la forme i/N avec 1 <= i <= N";
+        } else if (parameters.getShardCount() > 1 && (parameters.getTopK() > 0 || parameters.getTopN() > 0 || parameters.getPreviousResultFile() != null || parameters.getMemoryBudget() > 0)) {
+            msg = "le découpage en lots ne peut pas être utilisé avec les meilleures paires, le résultat précédent ou le mode par blocs";
+        } else {
+            msg = null;
+        }
+        return msg;
+    }
+
+    private static String checkThreads(int threads) {
+        String msg;
+        if (threads < 1) {
+            msg = "le nombre de threads doit être supérieur à 0";
+        } else {
+            msg = null;
+        }
+        return msg;
+    }
+
+    private static String checkTopK(int topK) {
+        String msg;
+        if (topK < 0) {
+            msg = "le nombre de partenaires par ligne doit être supérieur ou égal à 0";
+        } else {
+            msg = null;
+        }
+        return msg;
+    }
+
+    private static String checkTopN(int topN) {
+        String msg;
+        if (topN < 0) {
+            msg = "le nombre de paires au total doit être supérieur ou égal à 0";
+        } else {
+            msg = null;
+        }
+        return msg;
+    }
 }
@@ -0,0 +1,286 @@
+package fr.frezilla.watsonhit.business.blocking;
+
+import fr.frezilla.watsonhit.business.csv.CsvBlockingKeyDescription;
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import fr.frezilla.watsonhit.business.engine.PairSpace;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import lombok.NonNull;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Index des lignes d'un jeu de données regroupées par clé de blocage.
+ * <p>
+ * Pour chaque clé décrite dans la description du fichier csv, les lignes qui
+ * ont la même valeur de clé forment un bloc. Une ligne n'est comparée qu'aux
+ * lignes avec lesquelles elle partage au moins un bloc ; une paire présente
+ * dans plusieurs blocs n'est comparée qu'une seule fois.
+ * <p>
+ * Une ligne dont la valeur de clé est vide n'appartient à aucun bloc pour
+ * cette clé.
+ */
+public final class BlockingIndex implements PairSpace {
+
+    /**
+     * Valeur de clé d'une ligne qui n'appartient à aucun bloc.
+     */
+    static final long NO_KEY = Long.MIN_VALUE;
+
+    private static final int NO_BLOCK = -1;
+
+    /**
+     * Retourne le builder lié à la classe
+     *
+     * @param dataSet jeu de données à indexer
+     * @return
+     */
+    public static Builder builder(DataSet dataSet) {
+        return new Builder(dataSet);
+    }
+
+    /**
+     * Construit l'index à partir des valeurs de clé de chaque ligne.
+     * <p>
+     * Les lignes sont regroupées par tri des valeurs de clé : aucun objet
+     * n'est alloué par ligne. Les lignes de chaque bloc restent dans l'ordre
+     * croissant.
+     *
+     * @param nbRows nombre de lignes
+     * @param keys pour chaque clé, la valeur de chaque ligne ({@link #NO_KEY}
+     * si la ligne n'appartient à aucun bloc pour cette clé)
+     * @return
+     */
+    static BlockingIndex of(int nbRows, @NonNull long[][] keys) {
+        final int nbKeys = keys.length;
+
+        int[][][] blocks = new int[nbKeys][][];
+        int[][] rowBlocks = new int[nbKeys][nbRows];
+        int[][] rowPositions = new int[nbKeys][nbRows];
+
+        for (int k = 0; k < nbKeys; k++) {
+            final long[] rowKeys = keys[k];
+
+            // Valeurs distinctes de la clé, triées : le numéro d'un bloc est
+            // le rang de sa valeur
+            long[] values = new long[nbRows];
+            int nbValues = 0;
+            for (int row = 0; row < nbRows; row++) {
+                if (rowKeys[row] != NO_KEY) {
+                    values[nbValues++] = rowKeys[row];
+                }
+            }
+            Arrays.sort(values, 0, nbValues);
+            int nbBlocks = 0;
+            for (int i = 0; i < nbValues; i++) {
+                if (i == 0 || values[i] != values[i - 1]) {
+                    values[nbBlocks++] = values[i];
+                }
+            }
+
+            int[] sizes = new int[nbBlocks];
+            for (int row = 0; row < nbRows; row++) {
+                if (rowKeys[row] == NO_KEY) {
+                    rowBlocks[k][row] = NO_BLOCK;
+                } else {
+                    int block = Arrays.binarySearch(values, 0, nbBlocks, rowKeys[row]);
+                    rowBlocks[k][row] = block;
+                    rowPositions[k][row] = sizes[block]++;
+                }
+            }
+
+            blocks[k] = new int[nbBlocks][];
+            for (int b = 0; b < nbBlocks; b++) {
+                blocks[k][b] = new int[sizes[b]];
+            }
+            for (int row = 0; row < nbRows; row++) {
+                int block = rowBlocks[k][row];
+                if (block != NO_BLOCK) {
+                    blocks[k][block][rowPositions[k][row]] = row;
+                }
+            }
+        }
+
+        return new BlockingIndex(nbRows, blocks, rowBlocks, rowPositions);
+    }
+
+    /**
+     * Pour chaque clé, les lignes de chaque bloc dans l'ordre croissant.
+     */
+    private final int[][][] blocks;
+
+    /**
+     * Pour chaque clé, le bloc de chaque ligne ou {@link #NO_BLOCK}.
+     */
+    private final int[][] rowBlocks;
+
+    /**
+     * Pour chaque clé, la position de chaque ligne dans son bloc.
+     */
+    private final int[][] rowPositions;
+
+    private final int nbRows;
+
+    private BlockingIndex(int nbRows, int[][][] blocks, int[][] rowBlocks, int[][] rowPositions) {
+        this.blocks = blocks;
+        this.nbRows = nbRows;
+        this.rowBlocks = rowBlocks;
+        this.rowPositions = rowPositions;
+    }
+
+    @Override
+    public long countPartners(int row) {
+        long count = 0;
+        for (int k = 0; k < blocks.length; k++) {
+            int block = rowBlocks[k][row];
+            if (block != NO_BLOCK) {
+                count += blocks[k][block].length - 1 - rowPositions[k][row];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Retourne le nombre total de paires candidates, les paires présentes dans
+     * plusieurs blocs étant comptées plusieurs fois.
+     *
+     * @return
+     */
+    public long countCandidatePairs() {
+        long count = 0;
+        for (int[][] keyBlocks : blocks) {
+            for (int[] block : keyBlocks) {
+                count += (long) block.length * (block.length - 1) / 2;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void forEachPartner(int row, @NonNull IntConsumer consumer) {
+        final int nbKeys = blocks.length;
+        int[][] segments = new int[nbKeys][];
+        int[] cursors = new int[nbKeys];
+        for (int k = 0; k < nbKeys; k++) {
+            int block = rowBlocks[k][row];
+            if (block != NO_BLOCK) {
+                segments[k] = blocks[k][block];
+                cursors[k] = rowPositions[k][row] + 1;
+            }
+        }
+
+        // Fusion des blocs de la ligne : chaque bloc est trié, on émet à
+        // chaque tour le plus petit partenaire et on avance tous les curseurs
+        // qui pointent sur lui.
+        while (true) {
+            int next = Integer.MAX_VALUE;
+            for (int k = 0; k < nbKeys; k++) {
+                if (segments[k] != null && cursors[k] < segments[k].length && segments[k][cursors[k]] < next) {
+                    next = segments[k][cursors[k]];
+                }
+            }
+            if (next == Integer.MAX_VALUE) {
+                break;
+            }
+            consumer.accept(next);
+            for (int k = 0; k < nbKeys; k++) {
+                if (segments[k] != null && cursors[k] < segments[k].length && segments[k][cursors[k]] == next) {
+                    cursors[k]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Retourne le nombre de blocs d'une clé.
+     *
+     * @param key index de la clé
+     * @return
+     */
+    public int getBlockCount(int key) {
+        return blocks[key].length;
+    }
+
+    /**
+     * Retourne le nombre de clés de blocage.
+     *
+     * @return
+     */
+    public int getKeyCount() {
+        return blocks.length;
+    }
+
+    /**
+     * Retourne la taille du plus grand bloc d'une clé.
+     *
+     * @param key index de la clé
+     * @return
+     */
+    public int getMaxBlockSize(int key) {
+        int max = 0;
+        for (int[] block : blocks[key]) {
+            max = Math.max(max, block.length);
+        }
+        return max;
+    }
+
+    @Override
+    public int size() {
+        return nbRows;
+    }
+
+    public static class Builder {
+
+        private CsvDescription csvDescription;
+        private final DataSet dataSet;
+
+        Builder(@NonNull DataSet dataSet) {
+            this.dataSet = dataSet;
+        }
+
+        /**
+         * Construit l'index à partir des clés de blocage de la description.
+         *
+         * @return
+         */
+        public BlockingIndex build() {
+            if (csvDescription == null) {
+                throw new IllegalStateException("csvDescription must be set");
+            }
+            List<CsvBlockingKeyDescription> keysDescriptions = csvDescription.getBlockingKeysDescription();
+            final int nbKeys = keysDescriptions.size();
+            final int nbRows = dataSet.size();
+
+            // Chaque valeur de clé est remplacée par son numéro d'apparition
+            long[][] keys = new long[nbKeys][nbRows];
+            for (int k = 0; k < nbKeys; k++) {
+                CsvBlockingKeyDescription d = keysDescriptions.get(k);
+                int column = csvDescription.getColumnIndex(d.getColumn());
+                Map<String, Integer> ids = new HashMap<>();
+                for (int row = 0; row < nbRows; row++) {
+                    String key = BlockingKeys.compute(dataSet, d, column, row);
+                    if (StringUtils.isEmpty(key)) {
+                        keys[k][row] = NO_KEY;
+                    } else {
+                        Integer id = ids.get(key);
+                        if (id == null) {
+                            id = ids.size();
+                            ids.put(key, id);
+                        }
+                        keys[k][row] = id;
+                    }
+                }
+            }
+
+            return BlockingIndex.of(nbRows, keys);
+        }
+
+        public Builder setCsvDescription(@NonNull CsvDescription csvDescription) {
+            this.csvDescription = csvDescription;
+            return this;
+        }
+    }
+}
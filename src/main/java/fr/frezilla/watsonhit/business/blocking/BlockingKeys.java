@@ -0,0 +1,49 @@
+package fr.frezilla.watsonhit.business.blocking;
+
+import fr.frezilla.watsonhit.business.csv.CsvBlockingKeyDescription;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import fr.frezilla.watsonhit.business.values.ValuesUtils;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Calcul des clés de blocage et de tri.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class BlockingKeys {
+
+    /**
+     * Calcule la valeur d'une clé pour une ligne.
+     * <p>
+     * La clé est calculée à partir de la valeur normalisée de la colonne, ou
+     * de sa valeur brute pour les colonnes "identifiant" qui ne sont pas
+     * normalisées.
+     *
+     * @param dataSet jeu de données
+     * @param d description de la clé
+     * @param column index de la colonne
+     * @param row index de la ligne
+     * @return Valeur de la clé
+     */
+    static String compute(@NonNull DataSet dataSet, @NonNull CsvBlockingKeyDescription d, int column, int row) {
+        String value = dataSet.getFormattedValue(row, column);
+        if (value == null) {
+            value = dataSet.getRawRow(row)[column];
+        }
+        String key;
+        switch (d.getType()) {
+            case PREFIX:
+                key = StringUtils.left(value, d.getLength());
+                break;
+            case SOUNDEX:
+                key = ValuesUtils.soundex(value);
+                break;
+            default:
+                key = value;
+                break;
+        }
+        return key;
+    }
+}
@@ -0,0 +1,226 @@
+package fr.frezilla.watsonhit.business.blocking;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.csv.CsvMinHashDescription;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import fr.frezilla.watsonhit.business.engine.PairSpace;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Index de paires candidates par MinHash et LSH (Locality Sensitive Hashing)
+ * sur les q-grammes de caractères des valeurs normalisées.
+ * <p>
+ * La signature MinHash d'une ligne est calculée sur l'ensemble des q-grammes
+ * des colonnes indexées ; la probabilité que deux lignes aient la même valeur
+ * pour une fonction de hachage est égale à la similarité de Jaccard de leurs
+ * ensembles de q-grammes. La signature est découpée en bandes et deux lignes
+ * sont comparées lorsqu'au moins une de leurs bandes est identique : la
+ * probabilité qu'une paire de similarité de Jaccard s soit comparée vaut
+ * 1 - (1 - s^rows)^bands.
+ * <p>
+ * Les fonctions de hachage sont tirées à partir d'une graine fixe, les paires
+ * candidates sont donc identiques d'une exécution à l'autre.
+ */
+public final class MinHashIndex implements PairSpace {
+
+    private static final long SEED = 0x5EEDL;
+
+    /**
+     * Retourne le builder lié à la classe
+     *
+     * @param dataSet jeu de données à indexer
+     * @return
+     */
+    public static Builder builder(DataSet dataSet) {
+        return new Builder(dataSet);
+    }
+
+    /**
+     * Mélange les bits d'un entier (finalisation de MurmurHash3).
+     *
+     * @param h
+     * @return
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Mélange les bits d'un entier long (finalisation de MurmurHash3).
+     *
+     * @param h
+     * @return
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Getter
+    private final int bands;
+
+    private final BlockingIndex buckets;
+
+    @Getter
+    private final int rows;
+
+    private MinHashIndex(int bands, int rows, @NonNull BlockingIndex buckets) {
+        this.bands = bands;
+        this.buckets = buckets;
+        this.rows = rows;
+    }
+
+    /**
+     * Retourne la probabilité qu'une paire de lignes soit comparée en fonction
+     * de la similarité de Jaccard de leurs q-grammes.
+     *
+     * @param jaccard similarité de Jaccard entre 0 et 1
+     * @return Probabilité entre 0 et 1
+     */
+    public double candidateProbability(double jaccard) {
+        return 1.0 - Math.pow(1.0 - Math.pow(jaccard, rows), bands);
+    }
+
+    /**
+     * Retourne le nombre de paires candidates, les paires présentes dans
+     * plusieurs bandes étant comptées plusieurs fois.
+     *
+     * @return
+     */
+    public long countCandidatePairs() {
+        return buckets.countCandidatePairs();
+    }
+
+    @Override
+    public long countPartners(int row) {
+        return buckets.countPartners(row);
+    }
+
+    @Override
+    public void forEachPartner(int row, @NonNull IntConsumer consumer) {
+        buckets.forEachPartner(row, consumer);
+    }
+
+    /**
+     * Retourne la similarité de Jaccard à partir de laquelle une paire a plus
+     * d'une chance sur deux d'être comparée (approximation (1/bands)^(1/rows)).
+     *
+     * @return
+     */
+    public double getThreshold() {
+        return Math.pow(1.0 / bands, 1.0 / rows);
+    }
+
+    @Override
+    public int size() {
+        return buckets.size();
+    }
+
+    public static class Builder {
+
+        private CsvDescription csvDescription;
+        private final DataSet dataSet;
+
+        Builder(@NonNull DataSet dataSet) {
+            this.dataSet = dataSet;
+        }
+
+        /**
+         * Calcule les signatures des lignes et les regroupe par bande.
+         *
+         * @return
+         */
+        public MinHashIndex build() {
+            if (csvDescription == null || csvDescription.getMinHashDescription() == null) {
+                throw new IllegalStateException("csvDescription must define MinHash");
+            }
+            final CsvMinHashDescription description = csvDescription.getMinHashDescription();
+            final int bands = description.getBands();
+            final int rows = description.getRows();
+            final int qgram = description.getQgram();
+            final int nbHashes = bands * rows;
+            final int nbRows = dataSet.size();
+
+            List<String> columnsNames = description.getColumns();
+            final int[] columns = new int[columnsNames.size()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = csvDescription.getColumnIndex(columnsNames.get(i));
+            }
+
+            SplittableRandom random = new SplittableRandom(SEED);
+            final int[] multipliers = new int[nbHashes];
+            final int[] increments = new int[nbHashes];
+            for (int k = 0; k < nbHashes; k++) {
+                multipliers[k] = random.nextInt() | 1;
+                increments[k] = random.nextInt();
+            }
+
+            final long[][] keys = new long[bands][nbRows];
+            IntStream.range(0, nbRows).parallel().forEach(row -> {
+                int[] signature = new int[nbHashes];
+                Arrays.fill(signature, Integer.MAX_VALUE);
+                boolean empty = true;
+
+                for (int column : columns) {
+                    String value = dataSet.getFormattedValue(row, column);
+                    if (value == null) {
+                        value = dataSet.getRawRow(row)[column];
+                    }
+                    if (value == null || value.isEmpty()) {
+                        continue;
+                    }
+                    empty = false;
+                    final int length = Math.min(qgram, value.length());
+                    for (int start = 0; start + length <= value.length(); start++) {
+                        int h = column + 1;
+                        for (int i = start; i < start + length; i++) {
+                            h = 31 * h + value.charAt(i);
+                        }
+                        h = mix(h);
+                        for (int k = 0; k < nbHashes; k++) {
+                            int hk = mix(h * multipliers[k] + increments[k]);
+                            if (hk < signature[k]) {
+                                signature[k] = hk;
+                            }
+                        }
+                    }
+                }
+
+                for (int b = 0; b < bands; b++) {
+                    if (empty) {
+                        keys[b][row] = BlockingIndex.NO_KEY;
+                    } else {
+                        long key = b;
+                        for (int r = 0; r < rows; r++) {
+                            key = key * 0x9E3779B97F4A7C15L + signature[b * rows + r];
+                        }
+                        key = mix(key);
+                        keys[b][row] = (key == BlockingIndex.NO_KEY) ? key + 1 : key;
+                    }
+                }
+            });
+
+            return new MinHashIndex(bands, rows, BlockingIndex.of(nbRows, keys));
+        }
+
+        public Builder setCsvDescription(@NonNull CsvDescription csvDescription) {
+            this.csvDescription = csvDescription;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package fr.frezilla.watsonhit.business.blocking;
+
+import fr.frezilla.watsonhit.business.csv.CsvBlockingKeyDescription;
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.csv.CsvSortedNeighbourhoodDescription;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import fr.frezilla.watsonhit.business.engine.PairSpace;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntConsumer;
+import lombok.NonNull;
+
+/**
+ * Index des lignes d'un jeu de données pour la comparaison par voisinage trié.
+ * <p>
+ * Pour chaque passe, les lignes sont triées selon leur clé de tri (à égalité
+ * de clé, dans l'ordre du fichier). Deux lignes sont comparées lorsque leurs
+ * positions dans l'ordre de tri d'au moins une passe sont distantes d'au plus
+ * la taille de la fenêtre ; une paire présente dans plusieurs passes n'est
+ * comparée qu'une seule fois.
+ * <p>
+ * Le nombre de comparaisons est de l'ordre de n * fenêtre * passes au lieu de
+ * n² / 2.
+ */
+public final class SortedNeighbourhoodIndex implements PairSpace {
+
+    /**
+     * Séparateur des parties d'une clé de tri.
+     */
+    private static final char KEY_SEPARATOR = '\u0001';
+
+    /**
+     * Retourne le builder lié à la classe
+     *
+     * @param dataSet jeu de données à indexer
+     * @return
+     */
+    public static Builder builder(DataSet dataSet) {
+        return new Builder(dataSet);
+    }
+
+    private final int nbRows;
+
+    /**
+     * Pour chaque passe, les lignes dans l'ordre de tri.
+     */
+    private final int[][] orders;
+
+    /**
+     * Pour chaque passe, la position de chaque ligne dans l'ordre de tri.
+     */
+    private final int[][] ranks;
+
+    private final int window;
+
+    private SortedNeighbourhoodIndex(int nbRows, int window, int[][] orders, int[][] ranks) {
+        this.nbRows = nbRows;
+        this.orders = orders;
+        this.ranks = ranks;
+        this.window = window;
+    }
+
+    /**
+     * Retourne le nombre maximal de paires candidates.
+     *
+     * @return
+     */
+    public long countCandidatePairs() {
+        long pairsPerPass = 0;
+        for (int i = 1; i <= window && i < nbRows; i++) {
+            pairsPerPass += nbRows - i;
+        }
+        return pairsPerPass * orders.length;
+    }
+
+    @Override
+    public long countPartners(int row) {
+        return Math.min(2L * window * orders.length, nbRows - 1 - row);
+    }
+
+    @Override
+    public void forEachPartner(int row, @NonNull IntConsumer consumer) {
+        int[] partners = new int[2 * window * orders.length];
+        int nbPartners = 0;
+        for (int p = 0; p < orders.length; p++) {
+            int[] order = orders[p];
+            int rank = ranks[p][row];
+            int from = Math.max(0, rank - window);
+            int to = Math.min(nbRows - 1, rank + window);
+            for (int r = from; r <= to; r++) {
+                if (order[r] > row) {
+                    partners[nbPartners++] = order[r];
+                }
+            }
+        }
+
+        Arrays.sort(partners, 0, nbPartners);
+        for (int i = 0; i < nbPartners; i++) {
+            if (i == 0 || partners[i] != partners[i - 1]) {
+                consumer.accept(partners[i]);
+            }
+        }
+    }
+
+    /**
+     * Retourne le nombre de passes.
+     *
+     * @return
+     */
+    public int getPassCount() {
+        return orders.length;
+    }
+
+    /**
+     * Retourne la taille de la fenêtre.
+     *
+     * @return
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    @Override
+    public int size() {
+        return nbRows;
+    }
+
+    public static class Builder {
+
+        private CsvDescription csvDescription;
+        private final DataSet dataSet;
+
+        Builder(@NonNull DataSet dataSet) {
+            this.dataSet = dataSet;
+        }
+
+        /**
+         * Trie les lignes pour chaque passe de la description.
+         *
+         * @return
+         */
+        public SortedNeighbourhoodIndex build() {
+            if (csvDescription == null || csvDescription.getSortedNeighbourhoodDescription() == null) {
+                throw new IllegalStateException("csvDescription must define a sorted neighbourhood");
+            }
+            CsvSortedNeighbourhoodDescription description = csvDescription.getSortedNeighbourhoodDescription();
+            List<List<CsvBlockingKeyDescription>> passes = description.getPasses();
+            final int nbRows = dataSet.size();
+
+            int[][] orders = new int[passes.size()][];
+            int[][] ranks = new int[passes.size()][];
+
+            for (int p = 0; p < passes.size(); p++) {
+                final String[] keys = computeSortKeys(passes.get(p));
+
+                Integer[] sorted = new Integer[nbRows];
+                for (int row = 0; row < nbRows; row++) {
+                    sorted[row] = row;
+                }
+                Arrays.parallelSort(sorted, Comparator.comparing(row -> keys[row]));
+
+                orders[p] = new int[nbRows];
+                ranks[p] = new int[nbRows];
+                for (int r = 0; r < nbRows; r++) {
+                    orders[p][r] = sorted[r];
+                    ranks[p][sorted[r]] = r;
+                }
+            }
+
+            return new SortedNeighbourhoodIndex(nbRows, description.getWindow(), orders, ranks);
+        }
+
+        /**
+         * Calcule la clé de tri de chaque ligne pour une passe.
+         *
+         * @param keysDescriptions parties de la clé de tri
+         * @return Clés de tri
+         */
+        private String[] computeSortKeys(List<CsvBlockingKeyDescription> keysDescriptions) {
+            final int nbRows = dataSet.size();
+            int[] columns = new int[keysDescriptions.size()];
+            for (int k = 0; k < columns.length; k++) {
+                columns[k] = csvDescription.getColumnIndex(keysDescriptions.get(k).getColumn());
+            }
+
+            String[] keys = new String[nbRows];
+            StringBuilder sb = new StringBuilder();
+            for (int row = 0; row < nbRows; row++) {
+                sb.setLength(0);
+                for (int k = 0; k < columns.length; k++) {
+                    if (k > 0) {
+                        sb.append(KEY_SEPARATOR);
+                    }
+                    String key = BlockingKeys.compute(dataSet, keysDescriptions.get(k), columns[k], row);
+                    if (key != null) {
+                        sb.append(key);
+                    }
+                }
+                keys[row] = sb.toString();
+            }
+            return keys;
+        }
+
+        public Builder setCsvDescription(@NonNull CsvDescription csvDescription) {
+            this.csvDescription = csvDescription;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package fr.frezilla.watsonhit.business.csv;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Description d'une clé de blocage : seules les lignes qui partagent au moins
+ * une clé de blocage sont comparées.
+ */
+@Getter
+@Setter(AccessLevel.PRIVATE)
+public final class CsvBlockingKeyDescription {
+
+    private final String column;
+    private int length;
+    private CsvBlockingKeyType type;
+
+    private CsvBlockingKeyDescription(@NonNull String c) {
+        if (StringUtils.isEmpty(c)) {
+            throw new IllegalArgumentException("column can not be empty");
+        }
+        column = c;
+    }
+
+    private void setLength(int l) {
+        if (l < 1) {
+            throw new IllegalArgumentException("length must be greater than 0");
+        }
+        length = l;
+    }
+
+    private void setType(@NonNull CsvBlockingKeyType t) {
+        type = t;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "[column = <%s>], "
+                + "[type = %s], "
+                + "[length = %d]",
+                column, type, length);
+    }
+
+    public static class Builder {
+
+        private final String column;
+        private int length = 1;
+        private CsvBlockingKeyType type = CsvBlockingKeyType.EXACT;
+
+        public Builder(String column) {
+            this.column = column;
+        }
+
+        public CsvBlockingKeyDescription build() {
+            CsvBlockingKeyDescription instance = new CsvBlockingKeyDescription(column);
+            instance.setLength(length);
+            instance.setType(type);
+            return instance;
+        }
+
+        public Builder setLength(int length) {
+            this.length = length;
+            return this;
+        }
+
+        public Builder setType(CsvBlockingKeyType type) {
+            this.type = type;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package fr.frezilla.watsonhit.business.csv;
+
+/**
+ * Enumération des façons de calculer une clé de blocage à partir de la valeur
+ * normalisée d'une colonne.
+ */
+public enum CsvBlockingKeyType {
+    /**
+     * La valeur normalisée complète.
+     */
+    EXACT,
+    /**
+     * Les N premiers caractères de la valeur normalisée.
+     */
+    PREFIX,
+    /**
+     * Le code phonétique Soundex de la valeur normalisée.
+     */
+    SOUNDEX
+}
@@ -1,5 +1,6 @@
 package fr.frezilla.watsonhit.business.csv;
 
+import fr.frezilla.watsonhit.business.similarity.SimilarityAlgorithms;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
@@ -10,6 +11,7 @@ import org.apache.commons.lang3.StringUtils;
 @Setter(AccessLevel.PRIVATE)
 public final class CsvColumnDescription {
 
+    private SimilarityAlgorithms algorithm;
     private String description;
     private boolean displayed;
     private boolean id;
@@ -29,6 +31,10 @@ public final class CsvColumnDescription {
         return b ? "oui" : "non";
     }
 
+    private void setAlgorithm(@NonNull SimilarityAlgorithms a) {
+        algorithm = a;
+    }
+
     private void setDescription(@NonNull String d) {
         description = d;
     }
@@ -50,12 +56,14 @@ public final class CsvColumnDescription {
                 + "[id = %s], "
                 + "[ignoreSpecialCharacters = %s], "
                 + "[matchCase = %s], "
-                + "[weight = %f]",
-                name, description, returnOuiNon(displayed), returnOuiNon(id), returnOuiNon(ignoreSpecialCharacters), returnOuiNon(matchCase), weight);
+                + "[weight = %f], "
+                + "[algorithm = %s]",
+                name, description, returnOuiNon(displayed), returnOuiNon(id), returnOuiNon(ignoreSpecialCharacters), returnOuiNon(matchCase), weight, algorithm);
     }
 
     public static class Builder {
 
+        private SimilarityAlgorithms algorithm = SimilarityAlgorithms.JARO_WINKLER_AVERAGE;
         private String description = "";
         private boolean displayed = false;
         private boolean id = false;
@@ -70,6 +78,7 @@ public final class CsvColumnDescription {
 
         public CsvColumnDescription build() {
             CsvColumnDescription instance = new CsvColumnDescription(name);
+            instance.setAlgorithm(algorithm);
             instance.setDescription(description);
             instance.setDisplayed(displayed);
             instance.setId(id);
@@ -115,6 +124,11 @@ public final class CsvColumnDescription {
             return this;
         }
 
+        public Builder setAlgorithm(SimilarityAlgorithms algorithm) {
+            this.algorithm = algorithm;
+            return this;
+        }
+
         public Builder setDescription(String description) {
             this.description = description;
             return null;
@@ -1,5 +1,6 @@
 package fr.frezilla.watsonhit.business.csv;
 
+import fr.frezilla.watsonhit.business.similarity.SimilarityAlgorithms;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -13,6 +14,41 @@ import org.jdom2.input.SAXBuilder;
 
 /**
  * Charge la description du fichier Csv depuis un fichier Xml.
+ * <p>
+ * Le fichier décrit les colonnes (élément {@code columns}) ; l'attribut
+ * {@code algorithm} d'une colonne désigne l'algorithme de similarité utilisé
+ * pour la comparer (une valeur de {@link SimilarityAlgorithms}, par défaut la
+ * moyenne des distances de Jaro et de Jaro-Winkler). De façon
+ * facultative, les clés de blocage (élément {@code blocking}) :
+ * <pre>
+ * &lt;blocking&gt;
+ *     &lt;key column="nom" type="prefix" length="3"/&gt;
+ *     &lt;key column="nom" type="soundex"/&gt;
+ *     &lt;key column="cp" type="exact"/&gt;
+ * &lt;/blocking&gt;
+ * </pre>
+ * ou, à la place des clés de blocage, la comparaison par voisinage trié
+ * (élément {@code sortedNeighbourhood}) avec une ou plusieurs passes :
+ * <pre>
+ * &lt;sortedNeighbourhood window="20"&gt;
+ *     &lt;pass&gt;
+ *         &lt;key column="nom" type="soundex"/&gt;
+ *         &lt;key column="prenom" type="prefix" length="2"/&gt;
+ *     &lt;/pass&gt;
+ *     &lt;pass&gt;
+ *         &lt;key column="cp"/&gt;
+ *     &lt;/pass&gt;
+ * &lt;/sortedNeighbourhood&gt;
+ * </pre>
+ * ou encore la génération de paires candidates par MinHash et LSH sur les
+ * q-grammes d'une ou plusieurs colonnes (élément {@code minHash}) :
+ * <pre>
+ * &lt;minHash bands="20" rows="5" qgram="3"&gt;
+ *     &lt;column name="nom"/&gt;
+ *     &lt;column name="adresse"/&gt;
+ * &lt;/minHash&gt;
+ * </pre>
+ * Ces trois modes de sélection des paires sont exclusifs.
  */
 public class CsvDescription {
 
@@ -26,13 +62,44 @@ public class CsvDescription {
         return new Builder(fileName);
     }
 
+    private final List<CsvBlockingKeyDescription> blockingKeysDefinitions;
     private final List<CsvColumnDescription> columnsDefinitions;
+    private CsvMinHashDescription minHashDefinition;
+    private CsvSortedNeighbourhoodDescription sortedNeighbourhoodDefinition;
 
     private CsvDescription(String fileName) throws ConfigurationException, IOException, JDOMException {
+        blockingKeysDefinitions = new ArrayList<>();
         columnsDefinitions = new ArrayList<>();
         loadXmlFile(fileName);
     }
 
+    /**
+     * Retourne la liste des descriptions des clés de blocage.
+     * <p>
+     * La liste est vide lorsque toutes les paires de lignes doivent être
+     * comparées.
+     *
+     * @return
+     */
+    public List<CsvBlockingKeyDescription> getBlockingKeysDescription() {
+        return new ArrayList<>(blockingKeysDefinitions);
+    }
+
+    /**
+     * Retourne l'index d'une colonne à partir de son nom.
+     *
+     * @param name nom de la colonne
+     * @return Index de la colonne ou -1 si la colonne n'existe pas
+     */
+    public int getColumnIndex(String name) {
+        for (int i = 0; i < columnsDefinitions.size(); i++) {
+            if (columnsDefinitions.get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * Retourne la liste des descriptions des colonnes
      *
@@ -42,6 +109,80 @@ public class CsvDescription {
         return new ArrayList<>(columnsDefinitions);
     }
 
+    /**
+     * Retourne la description de la génération de paires candidates par
+     * MinHash.
+     *
+     * @return Description ou {@code null} si ce mode n'est pas utilisé
+     */
+    public CsvMinHashDescription getMinHashDescription() {
+        return minHashDefinition;
+    }
+
+    /**
+     * Retourne la description de la comparaison par voisinage trié.
+     *
+     * @return Description ou {@code null} si ce mode n'est pas utilisé
+     */
+    public CsvSortedNeighbourhoodDescription getSortedNeighbourhoodDescription() {
+        return sortedNeighbourhoodDefinition;
+    }
+
+    /**
+     * Indique si les valeurs d'une colonne sont utilisées par le traitement :
+     * colonne "identifiant", affichée, comparée ou référencée par une clé de
+     * blocage, de tri ou par MinHash. Les valeurs des autres colonnes n'ont pas
+     * besoin d'être lues.
+     *
+     * @param index index de la colonne
+     * @return
+     */
+    public boolean isColumnRequired(int index) {
+        CsvColumnDescription d = columnsDefinitions.get(index);
+        if (d.isId() || d.isDisplayed() || d.getWeight() != 0.0) {
+            return true;
+        }
+        String name = d.getName();
+        if (blockingKeysDefinitions.stream().anyMatch(k -> k.getColumn().equals(name))) {
+            return true;
+        }
+        if (sortedNeighbourhoodDefinition != null && sortedNeighbourhoodDefinition.getPasses().stream().flatMap(List::stream).anyMatch(k -> k.getColumn().equals(name))) {
+            return true;
+        }
+        return minHashDefinition != null && minHashDefinition.getColumns().contains(name);
+    }
+
+    /**
+     * Charge la description d'une clé (de blocage ou de tri).
+     *
+     * @param e élément xml de la clé
+     * @return
+     * @throws ConfigurationException
+     */
+    private CsvBlockingKeyDescription loadKey(Element e) throws ConfigurationException {
+        String column = e.getAttributeValue("column");
+        String length = e.getAttributeValue("length");
+        String type = e.getAttributeValue("type");
+
+        if (getColumnIndex(column) < 0) {
+            throw new ConfigurationException(String.format("la clé fait référence à une colonne inconnue : <%s>", column));
+        }
+
+        CsvBlockingKeyDescription.Builder builder = new CsvBlockingKeyDescription.Builder(column);
+
+        if (StringUtils.isNotBlank(type)) {
+            try {
+                builder.setType(CsvBlockingKeyType.valueOf(StringUtils.upperCase(type)));
+            } catch (IllegalArgumentException ex) {
+                throw new ConfigurationException(String.format("type de clé inconnu : <%s>", type), ex);
+            }
+        }
+        if (StringUtils.isNotBlank(length)) {
+            builder.setLength(Integer.parseInt(length));
+        }
+        return builder.build();
+    }
+
     /**
      * Charge la description du fichier csv depuis le fichier xml de
      * configuration.
@@ -59,6 +200,7 @@ public class CsvDescription {
 
         List<Element> colElts = columns.getChildren("column");
         for (Element e : colElts) {
+            String algorithm = e.getAttributeValue("algorithm");
             String description = e.getAttributeValue("description");
             String display = e.getAttributeValue("display");
             String id = e.getAttributeValue("id");
@@ -69,6 +211,13 @@ public class CsvDescription {
 
             CsvColumnDescription.Builder builder = new CsvColumnDescription.Builder(name);
             
+            if (StringUtils.isNotBlank(algorithm)) {
+                try {
+                    builder.setAlgorithm(SimilarityAlgorithms.valueOf(StringUtils.upperCase(algorithm)));
+                } catch (IllegalArgumentException ex) {
+                    throw new ConfigurationException(String.format("algorithme de similarité inconnu : <%s>", algorithm), ex);
+                }
+            }
             if (StringUtils.equals("1", display)) {
                 builder.isDisplayed();
             }
@@ -89,6 +238,63 @@ public class CsvDescription {
             }
             columnsDefinitions.add(builder.build());
         }
+
+        Element blocking = racine.getChild("blocking");
+        if (blocking != null) {
+            for (Element e : blocking.getChildren("key")) {
+                blockingKeysDefinitions.add(loadKey(e));
+            }
+        }
+
+        Element sortedNeighbourhood = racine.getChild("sortedNeighbourhood");
+        if (sortedNeighbourhood != null) {
+            if (!blockingKeysDefinitions.isEmpty()) {
+                throw new ConfigurationException("les clés de blocage et le voisinage trié ne peuvent pas être utilisés ensemble");
+            }
+            String window = sortedNeighbourhood.getAttributeValue("window");
+            if (StringUtils.isBlank(window)) {
+                throw new ConfigurationException("la taille de la fenêtre du voisinage trié doit être renseignée");
+            }
+
+            CsvSortedNeighbourhoodDescription.Builder builder = new CsvSortedNeighbourhoodDescription.Builder(Integer.parseInt(window));
+            for (Element pass : sortedNeighbourhood.getChildren("pass")) {
+                List<CsvBlockingKeyDescription> keys = new ArrayList<>();
+                for (Element e : pass.getChildren("key")) {
+                    keys.add(loadKey(e));
+                }
+                builder.addPass(keys);
+            }
+            sortedNeighbourhoodDefinition = builder.build();
+        }
+
+        Element minHash = racine.getChild("minHash");
+        if (minHash != null) {
+            if (!blockingKeysDefinitions.isEmpty() || sortedNeighbourhoodDefinition != null) {
+                throw new ConfigurationException("MinHash ne peut pas être utilisé avec les clés de blocage ou le voisinage trié");
+            }
+            String bands = minHash.getAttributeValue("bands");
+            String qgram = minHash.getAttributeValue("qgram");
+            String rows = minHash.getAttributeValue("rows");
+
+            CsvMinHashDescription.Builder builder = new CsvMinHashDescription.Builder();
+            if (StringUtils.isNotBlank(bands)) {
+                builder.setBands(Integer.parseInt(bands));
+            }
+            if (StringUtils.isNotBlank(qgram)) {
+                builder.setQgram(Integer.parseInt(qgram));
+            }
+            if (StringUtils.isNotBlank(rows)) {
+                builder.setRows(Integer.parseInt(rows));
+            }
+            for (Element e : minHash.getChildren("column")) {
+                String name = e.getAttributeValue("name");
+                if (getColumnIndex(name) < 0) {
+                    throw new ConfigurationException(String.format("MinHash fait référence à une colonne inconnue : <%s>", name));
+                }
+                builder.addColumn(name);
+            }
+            minHashDefinition = builder.build();
+        }
     }
 
     public static class Builder {
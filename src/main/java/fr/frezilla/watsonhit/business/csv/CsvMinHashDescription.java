@@ -0,0 +1,89 @@
+package fr.frezilla.watsonhit.business.csv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Description de la génération de paires candidates par MinHash et LSH.
+ * <p>
+ * Les valeurs normalisées des colonnes sont découpées en q-grammes de
+ * caractères ; la signature MinHash de chaque ligne compte
+ * {@code bands * rows} valeurs, regroupées en {@code bands} bandes de
+ * {@code rows} valeurs. Deux lignes sont comparées lorsqu'au moins une de
+ * leurs bandes est identique.
+ */
+@Getter
+public final class CsvMinHashDescription {
+
+    private final int bands;
+    private final List<String> columns;
+    private final int qgram;
+    private final int rows;
+
+    private CsvMinHashDescription(int bands, int rows, int qgram, @NonNull List<String> columns) {
+        if (bands < 1) {
+            throw new IllegalArgumentException("bands must be greater than 0");
+        }
+        if (rows < 1) {
+            throw new IllegalArgumentException("rows must be greater than 0");
+        }
+        if (qgram < 1) {
+            throw new IllegalArgumentException("qgram must be greater than 0");
+        }
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("at least one column must be defined");
+        }
+        this.bands = bands;
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        this.qgram = qgram;
+        this.rows = rows;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "[bands = %d], "
+                + "[rows = %d], "
+                + "[qgram = %d], "
+                + "[columns = %s]",
+                bands, rows, qgram, columns);
+    }
+
+    public static class Builder {
+
+        private int bands = 20;
+        private final List<String> columns = new ArrayList<>();
+        private int qgram = 3;
+        private int rows = 5;
+
+        public Builder() {
+        }
+
+        public Builder addColumn(@NonNull String column) {
+            columns.add(column);
+            return this;
+        }
+
+        public CsvMinHashDescription build() {
+            return new CsvMinHashDescription(bands, rows, qgram, columns);
+        }
+
+        public Builder setBands(int bands) {
+            this.bands = bands;
+            return this;
+        }
+
+        public Builder setQgram(int qgram) {
+            this.qgram = qgram;
+            return this;
+        }
+
+        public Builder setRows(int rows) {
+            this.rows = rows;
+            return this;
+        }
+    }
+}
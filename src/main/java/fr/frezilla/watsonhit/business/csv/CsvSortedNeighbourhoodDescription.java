@@ -0,0 +1,77 @@
+package fr.frezilla.watsonhit.business.csv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Description de la comparaison par voisinage trié.
+ * <p>
+ * Pour chaque passe, les lignes sont triées selon une clé de tri composée de
+ * une ou plusieurs parties (calculées comme les clés de blocage) ; chaque ligne
+ * n'est ensuite comparée qu'aux lignes situées à moins de {@code window}
+ * positions d'elle dans l'ordre de tri.
+ */
+public final class CsvSortedNeighbourhoodDescription {
+
+    private final List<List<CsvBlockingKeyDescription>> passes;
+
+    @Getter
+    private final int window;
+
+    private CsvSortedNeighbourhoodDescription(int window, @NonNull List<List<CsvBlockingKeyDescription>> passes) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window must be greater than 0");
+        }
+        if (passes.isEmpty()) {
+            throw new IllegalArgumentException("at least one pass must be defined");
+        }
+        List<List<CsvBlockingKeyDescription>> list = new ArrayList<>();
+        for (List<CsvBlockingKeyDescription> pass : passes) {
+            if (pass.isEmpty()) {
+                throw new IllegalArgumentException("a pass must define at least one key");
+            }
+            list.add(Collections.unmodifiableList(new ArrayList<>(pass)));
+        }
+        this.passes = Collections.unmodifiableList(list);
+        this.window = window;
+    }
+
+    /**
+     * Retourne, pour chaque passe, les parties de la clé de tri.
+     *
+     * @return
+     */
+    public List<List<CsvBlockingKeyDescription>> getPasses() {
+        return passes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "[window = %d], "
+                + "[passes = %s]",
+                window, passes);
+    }
+
+    public static class Builder {
+
+        private final List<List<CsvBlockingKeyDescription>> passes = new ArrayList<>();
+        private final int window;
+
+        public Builder(int window) {
+            this.window = window;
+        }
+
+        public Builder addPass(@NonNull List<CsvBlockingKeyDescription> keys) {
+            passes.add(keys);
+            return this;
+        }
+
+        public CsvSortedNeighbourhoodDescription build() {
+            return new CsvSortedNeighbourhoodDescription(window, passes);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package fr.frezilla.watsonhit.business.data;
+
+import java.util.Arrays;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Statistiques d'une colonne collectées au chargement du jeu de données.
+ * <p>
+ * Les statistiques portent sur les valeurs brutes lues dans le fichier, y
+ * compris pour les colonnes qui ne sont pas décodées : la longueur est
+ * exprimée en octets (un majorant du nombre de caractères) et le nombre de
+ * valeurs distinctes est estimé par HyperLogLog sur les octets des valeurs,
+ * avec une erreur relative de l'ordre de 1,6 %. Les registres HyperLogLog
+ * sont conservés afin de pouvoir fusionner les statistiques de deux jeux de
+ * données.
+ */
+@Getter
+public final class ColumnStatistics {
+
+    /**
+     * Retourne le builder lié à la classe
+     *
+     * @return
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Retourne un builder initialisé avec des statistiques déjà collectées.
+     *
+     * @param valueCount
+     * @param emptyCount
+     * @param maxLength
+     * @param registers registres HyperLogLog
+     * @return
+     */
+    static Builder builder(long valueCount, long emptyCount, int maxLength, @NonNull byte[] registers) {
+        Builder builder = new Builder();
+        if (registers.length != Builder.REGISTERS) {
+            throw new IllegalArgumentException("registers must contain " + Builder.REGISTERS + " values");
+        }
+        builder.valueCount = valueCount;
+        builder.emptyCount = emptyCount;
+        builder.maxLength = maxLength;
+        System.arraycopy(registers, 0, builder.registers, 0, registers.length);
+        return builder;
+    }
+
+    private final long distinctEstimate;
+    private final long emptyCount;
+    private final int maxLength;
+
+    @Getter(AccessLevel.NONE)
+    private final byte[] registers;
+
+    private final long valueCount;
+
+    private ColumnStatistics(long valueCount, long emptyCount, int maxLength, byte[] registers, long distinctEstimate) {
+        this.distinctEstimate = distinctEstimate;
+        this.emptyCount = emptyCount;
+        this.maxLength = maxLength;
+        this.registers = registers;
+        this.valueCount = valueCount;
+    }
+
+    /**
+     * Retourne une copie des registres HyperLogLog.
+     *
+     * @return
+     */
+    byte[] getRegisters() {
+        return registers.clone();
+    }
+
+    /**
+     * Retourne la proportion de valeurs vides, entre 0 et 1.
+     *
+     * @return
+     */
+    public double getEmptyRatio() {
+        return (valueCount == 0) ? 0.0 : (double) emptyCount / valueCount;
+    }
+
+    /**
+     * Retourne les statistiques de l'union des valeurs de deux colonnes.
+     *
+     * @param other
+     * @return
+     */
+    public ColumnStatistics merge(@NonNull ColumnStatistics other) {
+        return builder(valueCount, emptyCount, maxLength, registers).merge(builder(other.valueCount, other.emptyCount, other.maxLength, other.registers)).build();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "[valueCount = %d], "
+                + "[emptyCount = %d], "
+                + "[maxLength = %d], "
+                + "[distinctEstimate = %d]",
+                valueCount, emptyCount, maxLength, distinctEstimate);
+    }
+
+    public static class Builder {
+
+        /**
+         * Nombre de bits de l'empreinte qui désignent un registre.
+         */
+        private static final int PRECISION = 12;
+
+        static final int REGISTERS = 1 << PRECISION;
+
+        private long emptyCount;
+        private int maxLength;
+        private final byte[] registers;
+        private long valueCount;
+
+        Builder() {
+            this.emptyCount = 0;
+            this.maxLength = 0;
+            this.registers = new byte[REGISTERS];
+            this.valueCount = 0;
+        }
+
+        /**
+         * Ajoute une valeur.
+         *
+         * @param length longueur de la valeur en octets
+         * @param hash empreinte sur 64 bits de la valeur
+         * @return
+         */
+        public Builder add(int length, long hash) {
+            valueCount++;
+            if (length == 0) {
+                emptyCount++;
+            }
+            maxLength = Math.max(maxLength, length);
+
+            int register = (int) (hash >>> (64 - PRECISION));
+            byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+            if (rank > registers[register]) {
+                registers[register] = rank;
+            }
+            return this;
+        }
+
+        public ColumnStatistics build() {
+            return new ColumnStatistics(valueCount, emptyCount, maxLength, Arrays.copyOf(registers, REGISTERS), estimate());
+        }
+
+        /**
+         * Estime le nombre de valeurs distinctes (HyperLogLog, avec correction
+         * par comptage linéaire pour les petits effectifs).
+         *
+         * @return
+         */
+        private long estimate() {
+            double sum = 0.0;
+            int zeros = 0;
+            for (byte r : registers) {
+                sum += 1.0 / (1L << r);
+                if (r == 0) {
+                    zeros++;
+                }
+            }
+            double alpha = 0.7213 / (1.0 + 1.079 / REGISTERS);
+            double estimate = alpha * REGISTERS * REGISTERS / sum;
+            if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+                estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+            }
+            return Math.min(Math.round(estimate), valueCount);
+        }
+
+        /**
+         * Ajoute les valeurs d'un autre builder.
+         *
+         * @param other
+         * @return
+         */
+        public Builder merge(@NonNull Builder other) {
+            valueCount += other.valueCount;
+            emptyCount += other.emptyCount;
+            maxLength = Math.max(maxLength, other.maxLength);
+            for (int i = 0; i < REGISTERS; i++) {
+                if (other.registers[i] > registers[i]) {
+                    registers[i] = other.registers[i];
+                }
+            }
+            return this;
+        }
+    }
+}
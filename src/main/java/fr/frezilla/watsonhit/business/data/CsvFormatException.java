@@ -0,0 +1,25 @@
+package fr.frezilla.watsonhit.business.data;
+
+import java.io.IOException;
+import lombok.Getter;
+
+/**
+ * Exception levée au chargement d'une ligne dont le nombre de colonnes ne
+ * correspond pas à la description du fichier csv.
+ */
+@Getter
+public class CsvFormatException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int actualColumns;
+    private final int expectedColumns;
+    private final long lineNumber;
+
+    public CsvFormatException(long lineNumber, int expectedColumns, int actualColumns) {
+        super(String.format("line %d: %d columns expected, %d read", lineNumber, expectedColumns, actualColumns));
+        this.actualColumns = actualColumns;
+        this.expectedColumns = expectedColumns;
+        this.lineNumber = lineNumber;
+    }
+}
@@ -0,0 +1,684 @@
+package fr.frezilla.watsonhit.business.data;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.values.ValuesNormalizer;
+import fr.frezilla.watsonhit.reader.file.MappedCsvReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import lombok.NonNull;
+
+/**
+ * Jeu de données issu d'un fichier csv et chargé intégralement en mémoire.
+ * <p>
+ * Chaque ligne est conservée sous deux formes :
+ * <ul>
+ * <li>les colonnes brutes, utilisées pour l'affichage des résultats ;</li>
+ * <li>les colonnes normalisées une seule fois au chargement par un
+ * {@link ValuesNormalizer}, utilisées pour la comparaison.</li>
+ * </ul>
+ * Les valeurs normalisées sont encodées par colonne : chaque valeur distincte
+ * d'une colonne reçoit un identifiant entier et chaque ligne ne conserve que
+ * l'identifiant de sa valeur. Deux lignes ont la même valeur normalisée pour
+ * une colonne si et seulement si elles ont le même identifiant. Les colonnes
+ * "identifiant" ne sont pas normalisées, leur identifiant vaut
+ * {@link #NULL_ID}.
+ * <p>
+ * Les lignes sont accessibles par leur index (de 0 à {@link #size()} - 1) dans
+ * l'ordre du fichier.
+ */
+public final class DataSet implements RowSource {
+
+    /**
+     * Identifiant des valeurs non normalisées (colonnes "identifiant").
+     */
+    public static final int NULL_ID = -1;
+
+    private static final int ARRAY_HEADER_SIZE = 16;
+    private static final int OBJECT_ALIGNMENT = 8;
+    private static final int REFERENCE_SIZE = 4;
+    private static final int STRING_HEADER_SIZE = 24;
+
+    /**
+     * Retourne le builder lié à la classe
+     *
+     * @param fileName nom du fichier csv à charger
+     * @return
+     */
+    public static Builder builder(String fileName) {
+        return new Builder(fileName);
+    }
+
+    private static long align(long size) {
+        return (size + OBJECT_ALIGNMENT - 1) / OBJECT_ALIGNMENT * OBJECT_ALIGNMENT;
+    }
+
+    /**
+     * Estime la taille occupée en mémoire par un tableau.
+     *
+     * @param length nombre d'éléments
+     * @param elementSize taille d'un élément en octets
+     * @return Taille en octets
+     */
+    private static long arraySize(int length, int elementSize) {
+        return align(ARRAY_HEADER_SIZE + (long) length * elementSize);
+    }
+
+    /**
+     * Estime la taille occupée en mémoire par une chaine de caractères.
+     *
+     * @param s
+     * @return Taille en octets
+     */
+    private static long stringSize(String s) {
+        return (s == null) ? 0L : STRING_HEADER_SIZE + arraySize(s.length(), 2);
+    }
+
+    /**
+     * Pour chaque colonne, les valeurs normalisées distinctes indexées par leur
+     * identifiant.
+     */
+    private final String[][] dictionaries;
+
+    /**
+     * Pour chaque colonne, l'identifiant de la valeur normalisée de chaque
+     * ligne.
+     */
+    private final int[][] ids;
+
+    private final String[][] rawRows;
+
+    private final ColumnStatistics[] statistics;
+
+    DataSet(@NonNull String[][] rawRows, @NonNull int[][] ids, @NonNull String[][] dictionaries, @NonNull ColumnStatistics[] statistics) {
+        this.dictionaries = dictionaries;
+        this.statistics = statistics;
+        this.ids = ids;
+        this.rawRows = rawRows;
+    }
+
+    /**
+     * Retourne le jeu de données constitué des lignes de ce jeu de données
+     * suivies des lignes d'un autre jeu de données de même description.
+     * <p>
+     * Les lignes et les identifiants des valeurs de ce jeu de données sont
+     * conservés, les valeurs de l'autre jeu de données absentes des
+     * dictionnaires leur sont ajoutées dans l'ordre : le résultat est
+     * identique au chargement des deux fichiers mis bout à bout.
+     *
+     * @param other lignes à ajouter
+     * @return
+     */
+    public DataSet append(@NonNull DataSet other) {
+        final int nbColumns = getColumnCount();
+        if (other.getColumnCount() != nbColumns) {
+            throw new IllegalArgumentException("data sets must have the same columns");
+        }
+        final int nbRows = size();
+        final int nbOtherRows = other.size();
+
+        String[][] mergedDictionaries = new String[nbColumns][];
+        int[][] mergedIds = new int[nbColumns][];
+        ColumnStatistics[] mergedStatistics = new ColumnStatistics[nbColumns];
+        String[][] mergedRawRows = Arrays.copyOf(rawRows, nbRows + nbOtherRows);
+        for (int row = 0; row < nbOtherRows; row++) {
+            mergedRawRows[nbRows + row] = other.rawRows[row].clone();
+        }
+
+        for (int c = 0; c < nbColumns; c++) {
+            Map<String, Integer> index = new HashMap<>();
+            List<String> values = new ArrayList<>(Arrays.asList(dictionaries[c]));
+            for (int id = 0; id < dictionaries[c].length; id++) {
+                index.put(dictionaries[c][id], id);
+            }
+            String[] otherDictionary = other.dictionaries[c];
+            int[] translation = new int[otherDictionary.length];
+            for (int id = 0; id < otherDictionary.length; id++) {
+                Integer global = index.get(otherDictionary[id]);
+                if (global == null) {
+                    global = values.size();
+                    index.put(otherDictionary[id], global);
+                    values.add(otherDictionary[id]);
+                }
+                translation[id] = global;
+            }
+            mergedDictionaries[c] = values.toArray(new String[values.size()]);
+
+            mergedIds[c] = Arrays.copyOf(ids[c], nbRows + nbOtherRows);
+            for (int row = 0; row < nbOtherRows; row++) {
+                int id = other.ids[c][row];
+                if (id != NULL_ID) {
+                    // Les valeurs brutes partagées avec le dictionnaire de
+                    // l'autre jeu de données partagent le dictionnaire fusionné
+                    if (mergedRawRows[nbRows + row][c] == otherDictionary[id]) {
+                        mergedRawRows[nbRows + row][c] = mergedDictionaries[c][translation[id]];
+                    }
+                    id = translation[id];
+                }
+                mergedIds[c][nbRows + row] = id;
+            }
+            mergedStatistics[c] = statistics[c].merge(other.statistics[c]);
+        }
+        return new DataSet(mergedRawRows, mergedIds, mergedDictionaries, mergedStatistics);
+    }
+
+    /**
+     * Retourne le nombre de colonnes.
+     *
+     * @return
+     */
+    public int getColumnCount() {
+        return ids.length;
+    }
+
+    /**
+     * Retourne les statistiques d'une colonne collectées au chargement.
+     *
+     * @param column index de la colonne
+     * @return
+     */
+    public ColumnStatistics getColumnStatistics(int column) {
+        return statistics[column];
+    }
+
+    /**
+     * Retourne les valeurs normalisées distinctes d'une colonne, indexées par
+     * leur identifiant.
+     * <p>
+     * Le tableau retourné est partagé et ne doit pas être modifié.
+     *
+     * @param column index de la colonne
+     * @return Dictionnaire de la colonne
+     */
+    public String[] getDictionary(int column) {
+        return dictionaries[column];
+    }
+
+    /**
+     * Retourne la valeur normalisée d'une colonne d'une ligne.
+     *
+     * @param row index de la ligne
+     * @param column index de la colonne
+     * @return Valeur normalisée ou {@code null} pour une colonne "identifiant"
+     */
+    public String getFormattedValue(int row, int column) {
+        int id = ids[column][row];
+        return (id == NULL_ID) ? null : dictionaries[column][id];
+    }
+
+    /**
+     * Estime l'empreinte mémoire du jeu de données (valeurs brutes,
+     * identifiants et dictionnaires) en octets.
+     *
+     * @return Taille estimée en octets
+     */
+    public long getMemoryFootprint() {
+        long footprint = arraySize(rawRows.length, REFERENCE_SIZE);
+        for (int row = 0; row < rawRows.length; row++) {
+            String[] raw = rawRows[row];
+            footprint += arraySize(raw.length, REFERENCE_SIZE);
+            for (int c = 0; c < raw.length; c++) {
+                // Les valeurs brutes partagées avec le dictionnaire sont
+                // comptées avec celui-ci
+                if (c >= ids.length || raw[c] != getFormattedValue(row, c)) {
+                    footprint += stringSize(raw[c]);
+                }
+            }
+        }
+        for (int c = 0; c < ids.length; c++) {
+            footprint += arraySize(ids[c].length, Integer.BYTES) + arraySize(dictionaries[c].length, REFERENCE_SIZE);
+            for (String value : dictionaries[c]) {
+                footprint += stringSize(value);
+            }
+        }
+        return footprint;
+    }
+
+    @Override
+    public String[] getRawRow(int index) {
+        return rawRows[index];
+    }
+
+    /**
+     * Retourne les identifiants des valeurs normalisées d'une colonne, indexés
+     * par ligne.
+     * <p>
+     * Le tableau retourné est partagé et ne doit pas être modifié.
+     *
+     * @param column index de la colonne
+     * @return Identifiants ou {@link #NULL_ID} pour une colonne "identifiant"
+     */
+    public int[] getValueIds(int column) {
+        return ids[column];
+    }
+
+    /**
+     * Retourne le nombre de lignes du jeu de données.
+     *
+     * @return
+     */
+    public int size() {
+        return rawRows.length;
+    }
+
+    public static class Builder {
+
+        /**
+         * Nombre de plages du fichier par thread, afin d'équilibrer la charge
+         * entre les threads.
+         */
+        private static final int CHUNKS_PER_THREAD = 4;
+
+        /**
+         * Taille minimale en octets d'une plage du fichier.
+         */
+        private static final long MIN_CHUNK_SIZE = 1 << 20;
+
+        private CsvDescription csvDescription;
+        private String delimiter;
+        private long end;
+        private final String fileName;
+        private long start;
+        private int threads;
+
+        Builder(@NonNull String fileName) {
+            this.end = Long.MAX_VALUE;
+            this.fileName = fileName;
+            this.start = 0;
+            this.threads = Runtime.getRuntime().availableProcessors();
+        }
+
+        /**
+         * Lit le fichier csv en une seule passe et retourne le jeu de données
+         * correspondant.
+         * <p>
+         * Le fichier est découpé en plages alignées sur les débuts de ligne ;
+         * chaque plage est lue, contrôlée et normalisée par son propre thread,
+         * puis les plages sont assemblées dans l'ordre du fichier : les index
+         * des lignes et les identifiants des valeurs sont ceux d'une lecture
+         * séquentielle.
+         * <p>
+         * Le nombre de colonnes de chaque ligne est contrôlé au fil de la
+         * lecture et les statistiques de chaque colonne sont collectées dans
+         * la même passe.
+         * <p>
+         * Seules les colonnes utilisées par le traitement sont décodées, les
+         * valeurs des autres colonnes sont {@code null}.
+         *
+         * @return
+         * @throws CsvFormatException si le nombre de colonnes d'une ligne ne
+         * correspond pas à la description ; le numéro de ligne est celui de la
+         * ligne dans la plage lue (dans le fichier si aucune plage n'est
+         * définie)
+         * @throws IOException
+         */
+        public DataSet load() throws IOException {
+            if (csvDescription == null) {
+                throw new IllegalStateException("csvDescription must be set");
+            }
+            final int nbColumns = csvDescription.getColumnsDescription().size();
+
+            // Les zones des colonnes inutilisées ne sont pas décodées
+            final boolean[] decoded = new boolean[nbColumns];
+            for (int c = 0; c < nbColumns; c++) {
+                decoded[c] = csvDescription.isColumnRequired(c);
+            }
+
+            final long rangeSize = Math.min(end, Files.size(Paths.get(fileName))) - start;
+            final int nbChunks = (int) Math.max(1L, Math.min((long) threads * CHUNKS_PER_THREAD, rangeSize / MIN_CHUNK_SIZE));
+            final long[] bounds = MappedCsvReader.splitLines(fileName, start, end, nbChunks);
+
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                List<Future<Chunk>> tasks = new ArrayList<>();
+                for (int i = 0; i + 1 < bounds.length; i++) {
+                    final long start = bounds[i];
+                    final long end = bounds[i + 1];
+                    tasks.add(pool.submit(() -> loadChunk(start, end, nbColumns, decoded)));
+                }
+
+                List<Chunk> chunks = new ArrayList<>();
+                long lineOffset = 0;
+                for (Future<Chunk> task : tasks) {
+                    Chunk chunk = await(task);
+                    if (chunk.errorLine > 0) {
+                        throw new CsvFormatException(lineOffset + chunk.errorLine, nbColumns, chunk.errorColumns);
+                    }
+                    lineOffset += chunk.rawRows.length;
+                    chunks.add(chunk);
+                }
+                return merge(pool, chunks, nbColumns);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        /**
+         * Attend le résultat d'une tâche de chargement.
+         *
+         * @param <T>
+         * @param task
+         * @return
+         * @throws IOException
+         */
+        private <T> T await(Future<T> task) throws IOException {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+
+        /**
+         * Lit une plage du fichier.
+         * <p>
+         * La lecture s'arrête à la première ligne dont le nombre de colonnes
+         * ne correspond pas à la description.
+         *
+         * @param start position du début de la plage
+         * @param end position de la fin de la plage (exclue)
+         * @param nbColumns nombre de colonnes de la description
+         * @param decoded colonnes à décoder
+         * @return
+         * @throws IOException
+         */
+        private Chunk loadChunk(long start, long end, int nbColumns, boolean[] decoded) throws IOException {
+            ValuesNormalizer normalizer = new ValuesNormalizer(csvDescription);
+            List<String[]> rawRows = new ArrayList<>();
+            Dictionaries dictionaries = new Dictionaries(nbColumns);
+            ColumnStatistics.Builder[] statistics = new ColumnStatistics.Builder[nbColumns];
+            for (int c = 0; c < nbColumns; c++) {
+                statistics[c] = ColumnStatistics.builder();
+            }
+
+            MappedCsvReader.Builder readerBuilder = MappedCsvReader.builder(fileName).setRange(start, end);
+            if (delimiter != null) {
+                readerBuilder.setDelimiter(delimiter);
+            }
+            long errorLine = 0;
+            int errorColumns = 0;
+            try (MappedCsvReader reader = readerBuilder.build()) {
+                while (reader.next()) {
+                    if (reader.getFieldCount() != nbColumns) {
+                        errorLine = reader.getLineNumber();
+                        errorColumns = reader.getFieldCount();
+                        break;
+                    }
+                    for (int c = 0; c < nbColumns; c++) {
+                        statistics[c].add(reader.getFieldLength(c), reader.hashField(c));
+                    }
+                    String[] columns = reader.getFields(decoded);
+                    dictionaries.add(columns, normalizer);
+                    rawRows.add(columns);
+                }
+            }
+            return new Chunk(rawRows.toArray(new String[rawRows.size()][]), dictionaries.ids(), dictionaries.values(), statistics, errorLine, errorColumns);
+        }
+
+        /**
+         * Assemble les plages lues dans l'ordre du fichier.
+         * <p>
+         * Les dictionnaires des plages sont fusionnés dans l'ordre : une valeur
+         * reçoit l'identifiant qu'elle aurait reçu lors d'une lecture
+         * séquentielle. Les identifiants de chaque plage sont ensuite traduits
+         * en parallèle.
+         *
+         * @param pool
+         * @param chunks plages lues, dans l'ordre du fichier
+         * @param nbColumns nombre de colonnes
+         * @return
+         * @throws IOException
+         */
+        private DataSet merge(ForkJoinPool pool, List<Chunk> chunks, int nbColumns) throws IOException {
+            int nbRows = 0;
+            for (Chunk chunk : chunks) {
+                nbRows += chunk.rawRows.length;
+            }
+
+            ColumnStatistics.Builder[] statistics = chunks.get(0).statistics;
+            for (int i = 1; i < chunks.size(); i++) {
+                for (int c = 0; c < nbColumns; c++) {
+                    statistics[c].merge(chunks.get(i).statistics[c]);
+                }
+            }
+            ColumnStatistics[] columnsStatistics = new ColumnStatistics[nbColumns];
+            for (int c = 0; c < nbColumns; c++) {
+                columnsStatistics[c] = statistics[c].build();
+            }
+
+            String[][] dictionaries = new String[nbColumns][];
+            final int[][][] translations = new int[chunks.size()][nbColumns][];
+            for (int c = 0; c < nbColumns; c++) {
+                Map<String, Integer> index = new HashMap<>();
+                List<String> values = new ArrayList<>();
+                for (int i = 0; i < chunks.size(); i++) {
+                    String[] localValues = chunks.get(i).values[c];
+                    translations[i][c] = new int[localValues.length];
+                    for (int id = 0; id < localValues.length; id++) {
+                        Integer global = index.get(localValues[id]);
+                        if (global == null) {
+                            global = values.size();
+                            index.put(localValues[id], global);
+                            values.add(localValues[id]);
+                        }
+                        translations[i][c][id] = global;
+                    }
+                }
+                dictionaries[c] = values.toArray(new String[values.size()]);
+            }
+
+            final String[][] rawRows = new String[nbRows][];
+            final int[][] ids = new int[nbColumns][nbRows];
+            List<Future<?>> tasks = new ArrayList<>();
+            int offset = 0;
+            for (int i = 0; i < chunks.size(); i++) {
+                final Chunk chunk = chunks.get(i);
+                final int[][] translation = translations[i];
+                final int first = offset;
+                tasks.add(pool.submit(() -> chunk.copyTo(rawRows, ids, first, translation, dictionaries)));
+                offset += chunk.rawRows.length;
+            }
+            for (Future<?> task : tasks) {
+                await(task);
+            }
+
+            return new DataSet(rawRows, ids, dictionaries, columnsStatistics);
+        }
+
+        public Builder setCsvDescription(@NonNull CsvDescription csvDescription) {
+            this.csvDescription = csvDescription;
+            return this;
+        }
+
+        public Builder setDelimiter(@NonNull String delimiter) {
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        /**
+         * Limite la lecture à une plage du fichier.
+         *
+         * @param start position du début de la plage, au début d'une ligne
+         * @param end position de la fin de la plage (exclue), au début d'une
+         * ligne ou à la fin du fichier
+         * @return
+         */
+        public Builder setRange(long start, long end) {
+            if (start < 0 || end < start) {
+                throw new IllegalArgumentException("range must satisfy 0 <= start <= end");
+            }
+            this.start = start;
+            this.end = end;
+            return this;
+        }
+
+        /**
+         * Définit le nombre de threads utilisés pour lire le fichier.
+         *
+         * @param threads
+         * @return
+         */
+        public Builder setThreads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads must be greater than 0");
+            }
+            this.threads = threads;
+            return this;
+        }
+    }
+
+    /**
+     * Lignes d'une plage du fichier, encodées avec les dictionnaires propres à
+     * la plage.
+     */
+    private static final class Chunk {
+
+        private final int errorColumns;
+
+        /**
+         * Numéro dans la plage de la ligne en erreur, 0 si aucune erreur.
+         */
+        private final long errorLine;
+
+        private final int[][] ids;
+        private final String[][] rawRows;
+        private final ColumnStatistics.Builder[] statistics;
+        private final String[][] values;
+
+        Chunk(String[][] rawRows, int[][] ids, String[][] values, ColumnStatistics.Builder[] statistics, long errorLine, int errorColumns) {
+            this.errorColumns = errorColumns;
+            this.errorLine = errorLine;
+            this.ids = ids;
+            this.rawRows = rawRows;
+            this.statistics = statistics;
+            this.values = values;
+        }
+
+        /**
+         * Recopie les lignes de la plage dans le jeu de données en traduisant
+         * les identifiants de la plage en identifiants globaux.
+         * <p>
+         * Les valeurs brutes qui partagent l'instance du dictionnaire de la
+         * plage sont remplacées par l'instance du dictionnaire global.
+         *
+         * @param rawRows lignes brutes du jeu de données
+         * @param ids identifiants du jeu de données
+         * @param first index dans le jeu de données de la 1ère ligne de la plage
+         * @param translation pour chaque colonne, l'identifiant global de
+         * chaque identifiant de la plage
+         * @param dictionaries dictionnaires globaux
+         */
+        void copyTo(String[][] rawRows, int[][] ids, int first, int[][] translation, String[][] dictionaries) {
+            for (int row = 0; row < this.rawRows.length; row++) {
+                String[] raw = this.rawRows[row];
+                for (int c = 0; c < ids.length; c++) {
+                    int id = this.ids[c][row];
+                    if (id != NULL_ID) {
+                        if (raw[c] == values[c][id]) {
+                            raw[c] = dictionaries[c][translation[c][id]];
+                        }
+                        id = translation[c][id];
+                    }
+                    ids[c][first + row] = id;
+                }
+                rawRows[first + row] = raw;
+            }
+        }
+    }
+
+    /**
+     * Encodage des valeurs normalisées de chaque colonne au fil du chargement.
+     */
+    private static final class Dictionaries {
+
+        private final int[][] ids;
+        private final Map<String, Integer>[] indexes;
+        private int size;
+        private final List<String>[] values;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Dictionaries(int nbColumns) {
+            ids = new int[nbColumns][16];
+            indexes = new Map[nbColumns];
+            size = 0;
+            values = new List[nbColumns];
+            for (int c = 0; c < nbColumns; c++) {
+                indexes[c] = new HashMap<>();
+                values[c] = new ArrayList<>();
+            }
+        }
+
+        /**
+         * Encode les colonnes d'une ligne.
+         * <p>
+         * Lorsque la valeur normalisée est égale à la valeur brute, la valeur
+         * brute est remplacée par l'instance du dictionnaire afin que toutes
+         * les occurrences partagent la même chaine.
+         *
+         * @param columns colonnes brutes
+         * @param normalizer
+         */
+        void add(String[] columns, ValuesNormalizer normalizer) {
+            if (size == ids[0].length) {
+                for (int c = 0; c < ids.length; c++) {
+                    ids[c] = Arrays.copyOf(ids[c], size * 2);
+                }
+            }
+            for (int c = 0; c < ids.length; c++) {
+                String value = normalizer.normalize(c, columns[c]);
+                int id = NULL_ID;
+                if (value != null) {
+                    Integer existing = indexes[c].get(value);
+                    if (existing == null) {
+                        id = values[c].size();
+                        indexes[c].put(value, id);
+                        values[c].add(value);
+                    } else {
+                        id = existing;
+                        value = values[c].get(id);
+                    }
+                    if (value.equals(columns[c])) {
+                        columns[c] = value;
+                    }
+                }
+                ids[c][size] = id;
+            }
+            size++;
+        }
+
+        int[][] ids() {
+            int[][] result = new int[ids.length][];
+            for (int c = 0; c < ids.length; c++) {
+                result[c] = Arrays.copyOf(ids[c], size);
+            }
+            return result;
+        }
+
+        String[][] values() {
+            String[][] result = new String[values.length][];
+            for (int c = 0; c < values.length; c++) {
+                result[c] = values[c].toArray(new String[values[c].size()]);
+            }
+            return result;
+        }
+    }
+}
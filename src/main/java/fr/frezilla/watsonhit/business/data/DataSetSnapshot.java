@@ -0,0 +1,362 @@
+package fr.frezilla.watsonhit.business.data;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Instantané binaire d'un jeu de données, enregistré à côté du fichier csv.
+ * <p>
+ * L'instantané contient le jeu de données tel qu'il est chargé en mémoire :
+ * statistiques des colonnes, dictionnaires des valeurs normalisées,
+ * identifiants des valeurs de chaque ligne et valeurs brutes. Il évite de
+ * relire, contrôler et normaliser le fichier csv lorsque le traitement est
+ * relancé avec d'autres paramètres (taux, format du résultat...).
+ * <p>
+ * L'instantané est lié au contenu du fichier csv (taille et CRC32), au
+ * fichier de description et au délimiteur : il est ignoré dès que l'un d'eux
+ * change, ou que la version du format ({@link #VERSION}) change.
+ * <p>
+ * Le fichier est organisé par colonne en sections de taille fixe, en ordre
+ * big-endian :
+ * <ul>
+ *  <li>les 3 octets {@code WHS} suivis de la version du format ;</li>
+ *  <li>la taille et le CRC32 du fichier csv, l'empreinte de la description
+ *      ({@code long}) ;</li>
+ *  <li>le nombre de lignes et de colonnes ({@code int}) ;</li>
+ *  <li>les statistiques de chaque colonne, registres HyperLogLog
+ *      compris ;</li>
+ *  <li>pour chaque colonne : le dictionnaire des valeurs normalisées, les
+ *      identifiants des lignes ({@code int[nbRows]}), le dictionnaire des
+ *      valeurs brutes qui diffèrent de la valeur normalisée et les
+ *      identifiants des valeurs brutes des lignes ({@code int[nbRows]}).</li>
+ * </ul>
+ * Un dictionnaire est constitué du nombre de valeurs ({@code int}), de la
+ * position de chaque valeur ({@code long[count + 1]}) et des valeurs encodées
+ * en UTF-8. Les sections sont lues par projection du fichier en mémoire.
+ */
+public final class DataSetSnapshot {
+
+    /**
+     * Extension ajoutée au nom du fichier csv.
+     */
+    public static final String EXTENSION = ".whs";
+
+    /**
+     * En-tête du fichier, sans le numéro de version.
+     */
+    public static final byte[] MAGIC = {'W', 'H', 'S'};
+
+    /**
+     * Version du format.
+     */
+    public static final byte VERSION = 2;
+
+    /**
+     * Identifiant d'une valeur brute non décodée.
+     */
+    private static final int NULL_RAW_ID = -1;
+
+    /**
+     * Identifiant d'une valeur brute égale à la valeur normalisée.
+     */
+    private static final int NORMALIZED_RAW_ID = -2;
+
+    private static final int READ_WINDOW = 1 << 26;
+
+    /**
+     * Retourne le builder lié à la classe
+     *
+     * @param csvFileName nom du fichier csv
+     * @return
+     */
+    public static Builder builder(String csvFileName) {
+        return new Builder(csvFileName);
+    }
+
+    /**
+     * Calcule le CRC32 du contenu d'un fichier.
+     *
+     * @param path
+     * @return
+     * @throws IOException
+     */
+    private static long checksum(Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += READ_WINDOW) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(READ_WINDOW, size - position)));
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("snapshot section is too large: " + size);
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
+
+    private static int[] readInts(FileChannel channel, long position, int count) throws IOException {
+        int[] values = new int[count];
+        map(channel, position, (long) count * Integer.BYTES).asIntBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Lit un dictionnaire.
+     *
+     * @param channel
+     * @param position position du dictionnaire, mise à jour avec la position
+     * de la section suivante
+     * @return
+     * @throws IOException
+     */
+    private static String[] readStrings(FileChannel channel, long[] position) throws IOException {
+        int count = map(channel, position[0], Integer.BYTES).getInt();
+        long[] offsets = new long[count + 1];
+        map(channel, position[0] + Integer.BYTES, (long) offsets.length * Long.BYTES).asLongBuffer().get(offsets);
+        long dataPosition = position[0] + Integer.BYTES + (long) offsets.length * Long.BYTES;
+
+        ByteBuffer buffer = map(channel, dataPosition, offsets[count]);
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = new String(data, (int) offsets[i], (int) (offsets[i + 1] - offsets[i]), StandardCharsets.UTF_8);
+        }
+        position[0] = dataPosition + offsets[count];
+        return values;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        byte[][] encoded = new byte[values.length][];
+        out.writeInt(values.length);
+        long offset = 0;
+        out.writeLong(offset);
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = values[i].getBytes(StandardCharsets.UTF_8);
+            offset += encoded[i].length;
+            out.writeLong(offset);
+        }
+        for (byte[] bytes : encoded) {
+            out.write(bytes);
+        }
+    }
+
+    private final long csvChecksum;
+    private final long csvSize;
+    private final long descriptionChecksum;
+
+    /**
+     * Fichier de l'instantané.
+     */
+    @Getter
+    private final File file;
+
+    private DataSetSnapshot(@NonNull File file, long csvSize, long csvChecksum, long descriptionChecksum) {
+        this.csvChecksum = csvChecksum;
+        this.csvSize = csvSize;
+        this.descriptionChecksum = descriptionChecksum;
+        this.file = file;
+    }
+
+    /**
+     * Charge le jeu de données depuis l'instantané.
+     *
+     * @return Jeu de données ou {@code null} si l'instantané n'existe pas ou
+     * ne correspond pas au fichier csv, à la description ou à la version du
+     * format
+     * @throws IOException si l'instantané ne peut pas être lu
+     */
+    public DataSet load() throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final int headerSize = MAGIC.length + 1 + 3 * Long.BYTES + 2 * Integer.BYTES;
+            if (channel.size() < headerSize) {
+                return null;
+            }
+            ByteBuffer header = map(channel, 0, headerSize);
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || header.get() != VERSION
+                    || header.getLong() != csvSize || header.getLong() != csvChecksum || header.getLong() != descriptionChecksum) {
+                return null;
+            }
+            final int nbRows = header.getInt();
+            final int nbColumns = header.getInt();
+
+            final int statisticsSize = 2 * Long.BYTES + Integer.BYTES + ColumnStatistics.Builder.REGISTERS;
+            ByteBuffer statisticsBuffer = map(channel, headerSize, (long) nbColumns * statisticsSize);
+            ColumnStatistics[] statistics = new ColumnStatistics[nbColumns];
+            for (int c = 0; c < nbColumns; c++) {
+                long valueCount = statisticsBuffer.getLong();
+                long emptyCount = statisticsBuffer.getLong();
+                int maxLength = statisticsBuffer.getInt();
+                byte[] registers = new byte[ColumnStatistics.Builder.REGISTERS];
+                statisticsBuffer.get(registers);
+                statistics[c] = ColumnStatistics.builder(valueCount, emptyCount, maxLength, registers).build();
+            }
+
+            long[] position = {headerSize + (long) nbColumns * statisticsSize};
+            String[][] dictionaries = new String[nbColumns][];
+            int[][] ids = new int[nbColumns][];
+            String[][] rawRows = new String[nbRows][nbColumns];
+            for (int c = 0; c < nbColumns; c++) {
+                dictionaries[c] = readStrings(channel, position);
+                ids[c] = readInts(channel, position[0], nbRows);
+                position[0] += (long) nbRows * Integer.BYTES;
+                String[] rawValues = readStrings(channel, position);
+                int[] rawIds = readInts(channel, position[0], nbRows);
+                position[0] += (long) nbRows * Integer.BYTES;
+
+                for (int row = 0; row < nbRows; row++) {
+                    int rawId = rawIds[row];
+                    if (rawId == NORMALIZED_RAW_ID) {
+                        rawRows[row][c] = dictionaries[c][ids[c][row]];
+                    } else if (rawId != NULL_RAW_ID) {
+                        rawRows[row][c] = rawValues[rawId];
+                    }
+                }
+            }
+            return new DataSet(rawRows, ids, dictionaries, statistics);
+        }
+    }
+
+    /**
+     * Enregistre un jeu de données dans l'instantané.
+     * <p>
+     * L'instantané est écrit dans un fichier de travail de nom unique, renommé
+     * à la fin de l'écriture : un instantané incomplet n'est jamais visible.
+     *
+     * @param dataSet jeu de données chargé depuis le fichier csv
+     * @throws IOException
+     */
+    public void save(@NonNull DataSet dataSet) throws IOException {
+        final int nbRows = dataSet.size();
+        final int nbColumns = dataSet.getColumnCount();
+        File workingFile = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), "." + file.getName(), ".tmp").toFile();
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(workingFile), 1 << 16))) {
+                out.write(MAGIC);
+                out.write(VERSION);
+                out.writeLong(csvSize);
+                out.writeLong(csvChecksum);
+                out.writeLong(descriptionChecksum);
+                out.writeInt(nbRows);
+                out.writeInt(nbColumns);
+                for (int c = 0; c < nbColumns; c++) {
+                    ColumnStatistics statistics = dataSet.getColumnStatistics(c);
+                    out.writeLong(statistics.getValueCount());
+                    out.writeLong(statistics.getEmptyCount());
+                    out.writeInt(statistics.getMaxLength());
+                    out.write(statistics.getRegisters());
+                }
+
+                for (int c = 0; c < nbColumns; c++) {
+                    String[] dictionary = dataSet.getDictionary(c);
+                    int[] ids = dataSet.getValueIds(c);
+                    writeStrings(out, dictionary);
+                    writeInts(out, ids);
+
+                    Map<String, Integer> index = new HashMap<>();
+                    int[] rawIds = new int[nbRows];
+                    for (int row = 0; row < nbRows; row++) {
+                        String raw = dataSet.getRawRow(row)[c];
+                        if (raw == null) {
+                            rawIds[row] = NULL_RAW_ID;
+                        } else if (ids[row] != DataSet.NULL_ID && raw.equals(dictionary[ids[row]])) {
+                            rawIds[row] = NORMALIZED_RAW_ID;
+                        } else {
+                            Integer id = index.get(raw);
+                            if (id == null) {
+                                id = index.size();
+                                index.put(raw, id);
+                            }
+                            rawIds[row] = id;
+                        }
+                    }
+                    String[] rawValues = new String[index.size()];
+                    index.forEach((value, id) -> rawValues[id] = value);
+                    writeStrings(out, rawValues);
+                    writeInts(out, rawIds);
+                }
+            }
+            try {
+                Files.move(workingFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(workingFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            workingFile.delete();
+        }
+    }
+
+    public static class Builder {
+
+        private final String csvFileName;
+        private String delimiter;
+        private String descriptionFileName;
+
+        Builder(@NonNull String csvFileName) {
+            this.csvFileName = csvFileName;
+        }
+
+        /**
+         * Calcule les empreintes du fichier csv et de la description et
+         * retourne l'instantané correspondant.
+         *
+         * @return
+         * @throws IOException
+         */
+        public DataSetSnapshot build() throws IOException {
+            if (descriptionFileName == null || delimiter == null) {
+                throw new IllegalStateException("descriptionFileName and delimiter must be set");
+            }
+            Path csvPath = new File(csvFileName).toPath();
+
+            CRC32 crc = new CRC32();
+            crc.update(Files.readAllBytes(new File(descriptionFileName).toPath()));
+            crc.update(delimiter.getBytes(StandardCharsets.UTF_8));
+
+            return new DataSetSnapshot(new File(csvFileName + EXTENSION), Files.size(csvPath), checksum(csvPath), crc.getValue());
+        }
+
+        public Builder setDelimiter(@NonNull String delimiter) {
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        public Builder setDescriptionFileName(@NonNull String descriptionFileName) {
+            this.descriptionFileName = descriptionFileName;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package fr.frezilla.watsonhit.business.data;
+
+/**
+ * Accès aux colonnes brutes des lignes d'un fichier csv par leur index.
+ */
+public interface RowSource {
+
+    /**
+     * Retourne les colonnes brutes d'une ligne.
+     * <p>
+     * Le tableau retourné est partagé et ne doit pas être modifié.
+     *
+     * @param index index de la ligne
+     * @return Colonnes brutes
+     */
+    String[] getRawRow(int index);
+
+}
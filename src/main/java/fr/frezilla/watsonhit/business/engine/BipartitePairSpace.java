@@ -0,0 +1,82 @@
+package fr.frezilla.watsonhit.business.engine;
+
+import java.util.function.IntConsumer;
+import lombok.NonNull;
+
+/**
+ * Ensemble des paires (i, j) entre deux groupes de lignes consécutifs : les
+ * lignes i &lt; <code>firstRightRow</code> du groupe de gauche et les lignes
+ * j &gt;= <code>firstRightRow</code> du groupe de droite.
+ * <p>
+ * Les paires internes à chaque groupe sont écartées. L'ensemble contient
+ * soit toutes les paires entre les deux groupes, soit les paires entre les
+ * deux groupes d'un autre ensemble de paires (clés de blocage, MinHash...).
+ */
+public final class BipartitePairSpace implements PairSpace {
+
+    private final int firstRightRow;
+    private final int nbRows;
+    private final PairSpace pairSpace;
+
+    /**
+     * Constructeur : toutes les paires entre les deux groupes.
+     *
+     * @param nbRows nombre de lignes des deux groupes
+     * @param firstRightRow index de la première ligne du groupe de droite
+     */
+    public BipartitePairSpace(int nbRows, int firstRightRow) {
+        if (firstRightRow < 0 || firstRightRow > nbRows) {
+            throw new IllegalArgumentException("firstRightRow must be between 0 and nbRows");
+        }
+        this.firstRightRow = firstRightRow;
+        this.nbRows = nbRows;
+        this.pairSpace = null;
+    }
+
+    /**
+     * Constructeur : les paires d'un ensemble entre les deux groupes.
+     *
+     * @param pairSpace ensemble des paires de toutes les lignes
+     * @param firstRightRow index de la première ligne du groupe de droite
+     */
+    public BipartitePairSpace(@NonNull PairSpace pairSpace, int firstRightRow) {
+        if (firstRightRow < 0 || firstRightRow > pairSpace.size()) {
+            throw new IllegalArgumentException("firstRightRow must be between 0 and the number of rows");
+        }
+        this.firstRightRow = firstRightRow;
+        this.nbRows = pairSpace.size();
+        this.pairSpace = pairSpace;
+    }
+
+    @Override
+    public long countPartners(int row) {
+        if (row >= firstRightRow) {
+            return 0;
+        }
+        long count = nbRows - firstRightRow;
+        return (pairSpace == null) ? count : Math.min(count, pairSpace.countPartners(row));
+    }
+
+    @Override
+    public void forEachPartner(int row, @NonNull IntConsumer consumer) {
+        if (row >= firstRightRow) {
+            return;
+        }
+        if (pairSpace == null) {
+            for (int j = firstRightRow; j < nbRows; j++) {
+                consumer.accept(j);
+            }
+        } else {
+            pairSpace.forEachPartner(row, j -> {
+                if (j >= firstRightRow) {
+                    consumer.accept(j);
+                }
+            });
+        }
+    }
+
+    @Override
+    public int size() {
+        return nbRows;
+    }
+}
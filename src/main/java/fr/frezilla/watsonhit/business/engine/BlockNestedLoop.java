@@ -0,0 +1,294 @@
+package fr.frezilla.watsonhit.business.engine;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.CsvFormatException;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import fr.frezilla.watsonhit.business.data.RowSource;
+import fr.frezilla.watsonhit.reader.file.MappedCsvReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Comparaison par blocs d'un fichier csv trop volumineux pour être chargé
+ * intégralement en mémoire.
+ * <p>
+ * Le fichier est découpé en blocs de lignes consécutives (plages d'octets
+ * alignées sur les débuts de ligne). La taille des blocs est déduite d'un
+ * budget mémoire et de l'empreinte mémoire d'un échantillon du fichier. Au
+ * plus deux blocs sont chargés simultanément : chaque bloc est comparé avec
+ * lui-même puis avec chacun des blocs qui le suivent, chaque bloc est donc lu
+ * O(n/B) fois.
+ * <p>
+ * Les paires sont transmises au {@link MatchHandler} avec les index des
+ * lignes dans le fichier, par paire de blocs : l'ordre des lignes est
+ * respecté au sein d'une paire de blocs mais pas d'une paire de blocs à
+ * l'autre. Les colonnes brutes des lignes de la paire de blocs en cours sont
+ * accessibles par {@link #getRows()}.
+ */
+public final class BlockNestedLoop {
+
+    /**
+     * Nombre de blocs pris en compte dans le budget mémoire : les deux blocs
+     * comparés et leur fusion.
+     */
+    private static final int BLOCKS_IN_MEMORY = 3;
+
+    /**
+     * Taille en octets de l'échantillon lu pour estimer l'empreinte mémoire
+     * d'un bloc.
+     */
+    private static final long SAMPLE_SIZE = 4 << 20;
+
+    /**
+     * Retourne le builder lié à la classe
+     *
+     * @param fileName nom du fichier csv
+     * @return
+     */
+    public static Builder builder(String fileName) {
+        return new Builder(fileName);
+    }
+
+    /**
+     * Bornes des blocs : le bloc k couvre les octets [bounds[k], bounds[k+1][.
+     */
+    private final long[] bounds;
+
+    private final CsvDescription csvDescription;
+    private final String delimiter;
+    private final String fileName;
+
+    /**
+     * Index dans le fichier de la première ligne de chaque bloc, connu dès
+     * que les blocs précédents ont été lus.
+     */
+    private final int[] firstRows;
+
+    /**
+     * Lignes de la paire de blocs en cours de comparaison.
+     */
+    @Getter
+    private final RowSource rows;
+
+    private final int threads;
+
+    private int currentFirstLeftRow;
+    private int currentFirstRightRow;
+    private int currentLeftSize;
+    private DataSet currentRows;
+
+    private BlockNestedLoop(String fileName, CsvDescription csvDescription, String delimiter, int threads, long[] bounds) {
+        this.bounds = bounds;
+        this.csvDescription = csvDescription;
+        this.delimiter = delimiter;
+        this.fileName = fileName;
+        this.firstRows = new int[bounds.length];
+        this.rows = row -> currentRows.getRawRow(toLocalRow(row));
+        this.threads = threads;
+    }
+
+    /**
+     * Retourne le nombre de blocs.
+     *
+     * @return
+     */
+    public int getBlockCount() {
+        return bounds.length - 1;
+    }
+
+    /**
+     * Retourne le nombre de paires de blocs comparées, chaque bloc étant
+     * comparé avec lui-même et avec les blocs qui le suivent.
+     *
+     * @return
+     */
+    public long getBlockPairCount() {
+        long nbBlocks = getBlockCount();
+        return nbBlocks * (nbBlocks + 1) / 2;
+    }
+
+    /**
+     * Lit un bloc.
+     * <p>
+     * Les blocs précédents doivent avoir été lus au moins une fois.
+     *
+     * @param block index du bloc
+     * @return
+     * @throws CsvFormatException si le nombre de colonnes d'une ligne ne
+     * correspond pas à la description ; le numéro de ligne est celui de la
+     * ligne dans le fichier
+     * @throws IOException
+     */
+    private DataSet load(int block) throws IOException {
+        DataSet.Builder builder = DataSet.builder(fileName).setCsvDescription(csvDescription).setThreads(threads).setRange(bounds[block], bounds[block + 1]);
+        if (delimiter != null) {
+            builder.setDelimiter(delimiter);
+        }
+        try {
+            DataSet dataSet = builder.load();
+            firstRows[block + 1] = firstRows[block] + dataSet.size();
+            return dataSet;
+        } catch (CsvFormatException e) {
+            throw new CsvFormatException(firstRows[block] + e.getLineNumber(), e.getExpectedColumns(), e.getActualColumns());
+        }
+    }
+
+    /**
+     * Compare toutes les paires de lignes du fichier, paire de blocs par
+     * paire de blocs.
+     *
+     * @param engine moteur de comparaison d'une paire de blocs
+     * @param scorerFactory calcul du taux de similarité des lignes d'une paire
+     * de blocs
+     * @param pairSpaceFactory paires à comparer parmi les lignes d'une paire de
+     * blocs ; la fabrique, ou la valeur qu'elle retourne, peut être
+     * {@code null} pour comparer toutes les paires
+     * @param handler traitement des paires dont le taux atteint le seuil, avec
+     * les index des lignes dans le fichier
+     * @param progressListener reçoit le nombre de paires de blocs traitées au
+     * fil de l'eau
+     * @throws IOException
+     */
+    public void run(@NonNull ComparisonEngine engine, @NonNull Function<DataSet, PairScorer> scorerFactory, Function<DataSet, PairSpace> pairSpaceFactory, @NonNull MatchHandler handler, @NonNull IntConsumer progressListener) throws IOException {
+        final MatchHandler translatingHandler = (row1, row2, similarity) -> handler.handle(toFileRow(row1), toFileRow(row2), similarity);
+        final int nbBlocks = getBlockCount();
+        for (int left = 0; left < nbBlocks; left++) {
+            DataSet leftRows = load(left);
+
+            PairSpace pairSpace = (pairSpaceFactory == null) ? null : pairSpaceFactory.apply(leftRows);
+            if (pairSpace == null) {
+                pairSpace = new TriangularPairSpace(leftRows.size());
+            }
+            setCurrentRows(leftRows, firstRows[left], leftRows.size(), firstRows[left]);
+            engine.run(pairSpace, scorerFactory.apply(leftRows), translatingHandler, n -> {
+            });
+            progressListener.accept(1);
+
+            for (int right = left + 1; right < nbBlocks; right++) {
+                DataSet blockRows = leftRows.append(load(right));
+
+                pairSpace = (pairSpaceFactory == null) ? null : pairSpaceFactory.apply(blockRows);
+                pairSpace = (pairSpace == null) ? new BipartitePairSpace(blockRows.size(), leftRows.size()) : new BipartitePairSpace(pairSpace, leftRows.size());
+                setCurrentRows(blockRows, firstRows[left], leftRows.size(), firstRows[right]);
+                engine.run(pairSpace, scorerFactory.apply(blockRows), translatingHandler, n -> {
+                });
+                progressListener.accept(1);
+            }
+        }
+        currentRows = null;
+    }
+
+    private void setCurrentRows(DataSet dataSet, int firstLeftRow, int leftSize, int firstRightRow) {
+        this.currentFirstLeftRow = firstLeftRow;
+        this.currentFirstRightRow = firstRightRow;
+        this.currentLeftSize = leftSize;
+        this.currentRows = dataSet;
+    }
+
+    /**
+     * Traduit l'index d'une ligne de la paire de blocs en cours en index dans
+     * le fichier.
+     */
+    private int toFileRow(int row) {
+        return (row < currentLeftSize) ? currentFirstLeftRow + row : currentFirstRightRow + row - currentLeftSize;
+    }
+
+    /**
+     * Traduit l'index d'une ligne du fichier en index dans la paire de blocs
+     * en cours.
+     */
+    private int toLocalRow(int row) {
+        int local = row - currentFirstLeftRow;
+        return (local >= 0 && local < currentLeftSize) ? local : currentLeftSize + row - currentFirstRightRow;
+    }
+
+    public static class Builder {
+
+        private CsvDescription csvDescription;
+        private String delimiter;
+        private final String fileName;
+        private long memoryBudget;
+        private int threads;
+
+        Builder(@NonNull String fileName) {
+            this.fileName = fileName;
+            this.memoryBudget = Runtime.getRuntime().maxMemory() / 2;
+            this.threads = Runtime.getRuntime().availableProcessors();
+        }
+
+        /**
+         * Découpe le fichier en blocs.
+         * <p>
+         * Un échantillon du début du fichier est chargé afin d'estimer
+         * l'empreinte mémoire d'un octet du fichier : la taille des blocs est
+         * choisie pour que les blocs chargés simultanément tiennent dans le
+         * budget mémoire.
+         *
+         * @return
+         * @throws CsvFormatException si le format d'une ligne de l'échantillon
+         * ne correspond pas à la description
+         * @throws IOException
+         */
+        public BlockNestedLoop build() throws IOException {
+            if (csvDescription == null) {
+                throw new IllegalStateException("csvDescription must be set");
+            }
+            final long fileSize = Files.size(Paths.get(fileName));
+            final long sampleEnd = MappedCsvReader.splitLines(fileName, (int) Math.max(1L, Math.min(Integer.MAX_VALUE, fileSize / SAMPLE_SIZE)))[1];
+
+            DataSet.Builder builder = DataSet.builder(fileName).setCsvDescription(csvDescription).setThreads(threads).setRange(0, sampleEnd);
+            if (delimiter != null) {
+                builder.setDelimiter(delimiter);
+            }
+            DataSet sample = builder.load();
+            double bytesRatio = (sampleEnd == 0) ? 1.0 : Math.max(1.0, (double) sample.getMemoryFootprint() / sampleEnd);
+
+            long blockSize = Math.max(1L, (long) (memoryBudget / (BLOCKS_IN_MEMORY * bytesRatio)));
+            int nbBlocks = (int) Math.max(1L, Math.min(Integer.MAX_VALUE - 1, (fileSize + blockSize - 1) / blockSize));
+            return new BlockNestedLoop(fileName, csvDescription, delimiter, threads, MappedCsvReader.splitLines(fileName, nbBlocks));
+        }
+
+        public Builder setCsvDescription(@NonNull CsvDescription csvDescription) {
+            this.csvDescription = csvDescription;
+            return this;
+        }
+
+        public Builder setDelimiter(@NonNull String delimiter) {
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        /**
+         * Définit la mémoire disponible pour les blocs chargés simultanément.
+         *
+         * @param memoryBudget budget en octets
+         * @return
+         */
+        public Builder setMemoryBudget(long memoryBudget) {
+            if (memoryBudget < 1) {
+                throw new IllegalArgumentException("memoryBudget must be greater than 0");
+            }
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+
+        /**
+         * Définit le nombre de threads utilisés pour lire les blocs.
+         *
+         * @param threads
+         * @return
+         */
+        public Builder setThreads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads must be greater than 0");
+            }
+            this.threads = threads;
+            return this;
+        }
+    }
+}
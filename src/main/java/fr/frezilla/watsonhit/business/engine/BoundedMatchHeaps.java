@@ -0,0 +1,136 @@
+package fr.frezilla.watsonhit.business.engine;
+
+import lombok.NonNull;
+
+/**
+ * Ensemble de tas bornés de paires similaires stockés dans des tableaux de
+ * types primitifs.
+ * <p>
+ * Chaque tas conserve au plus <code>capacity</code> paires : les meilleures
+ * au sens du taux de similarité. A taux égal, la paire dont les index de
+ * lignes sont les plus petits est préférée, les paires conservées ne
+ * dépendent donc pas de l'ordre dans lequel elles sont proposées. Chaque tas
+ * est un tas minimum dont la racine est la moins bonne paire conservée.
+ * <p>
+ * Les tas ne sont pas synchronisés : les accès concurrents à un même tas
+ * doivent être protégés par l'appelant.
+ */
+final class BoundedMatchHeaps {
+
+    private final int capacity;
+    private final int[] rows1;
+    private final int[] rows2;
+    private final double[] similarities;
+    private final int[] sizes;
+
+    /**
+     * Constructeur.
+     *
+     * @param count nombre de tas
+     * @param capacity nombre maximal de paires par tas
+     */
+    BoundedMatchHeaps(int count, int capacity) {
+        if (count < 1 || capacity < 1) {
+            throw new IllegalArgumentException("count and capacity must be greater than 0");
+        }
+        if ((long) count * capacity > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("count * capacity is too large");
+        }
+        this.capacity = capacity;
+        rows1 = new int[count * capacity];
+        rows2 = new int[count * capacity];
+        similarities = new double[count * capacity];
+        sizes = new int[count];
+    }
+
+    /**
+     * Ajoute à une liste les paires conservées par tous les tas.
+     *
+     * @param matches
+     */
+    void drainTo(@NonNull MatchBuffer matches) {
+        for (int heap = 0; heap < sizes.length; heap++) {
+            int base = heap * capacity;
+            for (int i = 0; i < sizes[heap]; i++) {
+                matches.add(rows1[base + i], rows2[base + i], similarities[base + i]);
+            }
+        }
+    }
+
+    /**
+     * Retourne le taux de la moins bonne paire d'un tas plein.
+     *
+     * @param heap index du tas
+     * @return Taux, ou {@link Double#NEGATIVE_INFINITY} si le tas n'est pas
+     * plein
+     */
+    double getWorstSimilarity(int heap) {
+        return (sizes[heap] < capacity) ? Double.NEGATIVE_INFINITY : similarities[heap * capacity];
+    }
+
+    /**
+     * Indique si la paire d'index i est moins bonne que la paire proposée.
+     */
+    private boolean isWorse(int i, int row1, int row2, double similarity) {
+        if (similarities[i] != similarity) {
+            return similarities[i] < similarity;
+        }
+        if (rows1[i] != row1) {
+            return rows1[i] > row1;
+        }
+        return rows2[i] > row2;
+    }
+
+    /**
+     * Propose une paire à un tas.
+     *
+     * @param heap index du tas
+     * @param row1
+     * @param row2
+     * @param similarity
+     */
+    void offer(int heap, int row1, int row2, double similarity) {
+        final int base = heap * capacity;
+        final int size = sizes[heap];
+        if (size < capacity) {
+            int child = size;
+            while (child > 0) {
+                int parent = (child - 1) >>> 1;
+                if (isWorse(base + parent, row1, row2, similarity)) {
+                    break;
+                }
+                set(base + child, base + parent);
+                child = parent;
+            }
+            rows1[base + child] = row1;
+            rows2[base + child] = row2;
+            similarities[base + child] = similarity;
+            sizes[heap] = size + 1;
+        } else if (isWorse(base, row1, row2, similarity)) {
+            int parent = 0;
+            while (true) {
+                int child = 2 * parent + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && isWorse(base + child + 1, rows1[base + child], rows2[base + child], similarities[base + child])) {
+                    child++;
+                }
+                if (!isWorse(base + child, row1, row2, similarity)) {
+                    break;
+                }
+                set(base + parent, base + child);
+                parent = child;
+            }
+            rows1[base + parent] = row1;
+            rows2[base + parent] = row2;
+            similarities[base + parent] = similarity;
+        }
+    }
+
+    private void set(int to, int from) {
+        rows1[to] = rows1[from];
+        rows2[to] = rows2[from];
+        similarities[to] = similarities[from];
+    }
+}
@@ -0,0 +1,184 @@
+package fr.frezilla.watsonhit.business.engine;
+
+import java.util.Arrays;
+import lombok.NonNull;
+
+/**
+ * Cache d'un nombre borné de paires de valeurs distinctes d'une colonne.
+ * <p>
+ * Le cache est associatif par ensembles : la paire d'identifiants, codée sur
+ * un entier long, désigne un ensemble de {@link #WAYS} cases et la paire
+ * évincée lorsque l'ensemble est plein est choisie selon la politique
+ * d'éviction. Toutes les données sont conservées dans des tableaux de types
+ * primitifs, une consultation n'alloue donc aucun objet. Chaque ensemble est
+ * protégé par un verrou parmi {@link #STRIPES}.
+ * <p>
+ * Les taux sont calculés avec le taux minimal de la paire de lignes en cours :
+ * un taux inférieur à ce taux minimal n'est qu'un majorant et n'est restitué
+ * que pour un taux minimal au moins égal.
+ */
+final class BoundedPairCache extends PairCache {
+
+    /**
+     * Nombre de cases par ensemble.
+     */
+    static final int WAYS = 8;
+
+    private static final long EMPTY = -1L;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final int STRIPES = 64;
+
+    private static long key(int id1, int id2) {
+        return ((long) Math.min(id1, id2) << 32) | Math.max(id1, id2);
+    }
+
+    /**
+     * Pour chaque case, le taux minimal avec lequel le taux a été calculé, ou
+     * moins l'infini si le taux est exact.
+     */
+    private final double[] bounds;
+
+    private final double[] hitRates;
+    private final long[] keys;
+    private final Object[] locks;
+    private final CacheEvictionPolicy policy;
+    private final int setMask;
+
+    /**
+     * Pour chaque ensemble, le compteur d'accès (LRU) ou la position de
+     * l'aiguille (CLOCK).
+     */
+    private final long[] setStates;
+
+    /**
+     * Pour chaque case, la date du dernier accès (LRU) ou le bit de référence
+     * (CLOCK).
+     */
+    private final long[] stamps;
+
+    private final int ways;
+
+    /**
+     * Constructeur
+     *
+     * @param capacity nombre maximal de paires en cache
+     * @param policy politique d'éviction
+     */
+    BoundedPairCache(int capacity, @NonNull CacheEvictionPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        this.ways = Math.min(WAYS, capacity);
+        final int nbSets = Integer.highestOneBit(capacity / ways);
+        final int size = nbSets * ways;
+
+        this.bounds = new double[size];
+        this.hitRates = new double[size];
+        this.keys = new long[size];
+        this.locks = new Object[Math.min(STRIPES, nbSets)];
+        this.policy = policy;
+        this.setMask = nbSets - 1;
+        this.setStates = new long[nbSets];
+        this.stamps = new long[size];
+
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Retourne le nombre maximal de paires en cache.
+     *
+     * @return
+     */
+    int getCapacity() {
+        return keys.length;
+    }
+
+    @Override
+    boolean isComplete() {
+        return false;
+    }
+
+    @Override
+    double lookup(int id1, int id2, double minHitRate) {
+        final long key = key(id1, id2);
+        final int set = set(key);
+        final int first = set * ways;
+        synchronized (locks[set % locks.length]) {
+            for (int i = first; i < first + ways; i++) {
+                if (keys[i] == key) {
+                    if (bounds[i] > minHitRate) {
+                        return MISSING;
+                    }
+                    touch(set, i);
+                    return hitRates[i];
+                }
+            }
+        }
+        return MISSING;
+    }
+
+    @Override
+    void put(int id1, int id2, double minHitRate, double hitRate) {
+        final long key = key(id1, id2);
+        final int set = set(key);
+        final int first = set * ways;
+        synchronized (locks[set % locks.length]) {
+            int slot = -1;
+            for (int i = first; i < first + ways && slot < 0; i++) {
+                if (keys[i] == key) {
+                    slot = i;
+                }
+            }
+            if (slot < 0) {
+                slot = victim(set, first);
+            }
+            keys[slot] = key;
+            hitRates[slot] = hitRate;
+            bounds[slot] = (hitRate >= minHitRate) ? Double.NEGATIVE_INFINITY : minHitRate;
+            touch(set, slot);
+        }
+    }
+
+    private int set(long key) {
+        return (int) ((key * HASH_MULTIPLIER) >>> 32) & setMask;
+    }
+
+    private void touch(int set, int slot) {
+        stamps[slot] = (policy == CacheEvictionPolicy.LRU) ? ++setStates[set] : 1L;
+    }
+
+    /**
+     * Choisit la case d'un ensemble qui recevra une nouvelle paire.
+     *
+     * @param set index de l'ensemble
+     * @param first index de la première case de l'ensemble
+     * @return Index de la case
+     */
+    private int victim(int set, int first) {
+        for (int i = first; i < first + ways; i++) {
+            if (keys[i] == EMPTY) {
+                return i;
+            }
+        }
+        if (policy == CacheEvictionPolicy.LRU) {
+            int oldest = first;
+            for (int i = first + 1; i < first + ways; i++) {
+                if (stamps[i] < stamps[oldest]) {
+                    oldest = i;
+                }
+            }
+            return oldest;
+        }
+        while (true) {
+            int slot = first + (int) setStates[set];
+            setStates[set] = (setStates[set] + 1) % ways;
+            if (stamps[slot] == 0L) {
+                return slot;
+            }
+            stamps[slot] = 0L;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package fr.frezilla.watsonhit.business.engine;
+
+/**
+ * Enumération des politiques d'éviction des caches de taux de similarité
+ * bornés.
+ * <p>
+ * Les politiques proposées sont :
+ * <ul>
+ *  <li>LRU : la paire évincée est celle dont le dernier accès est le plus
+ *      ancien</li>
+ *  <li>CLOCK : approximation de LRU, la paire évincée est la première paire
+ *      non consultée depuis le dernier passage de l'aiguille</li>
+ * </ul>
+ */
+public enum CacheEvictionPolicy {
+    LRU,
+    CLOCK
+}
@@ -0,0 +1,283 @@
+package fr.frezilla.watsonhit.business.engine;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+import lombok.NonNull;
+
+/**
+ * Moteur de comparaison parallèle des lignes d'un jeu de données.
+ * <p>
+ * Les paires à comparer sont décrites par un {@link PairSpace}. L'espace des
+ * paires est découpé en tuiles de lignes consécutives contenant un nombre de
+ * paires équivalent : dans le cas d'une comparaison exhaustive, les premières
+ * tuiles contiennent peu de lignes (qui ont beaucoup de partenaires) et les
+ * dernières beaucoup de lignes. Les tuiles sont exécutées par un
+ * {@link ForkJoinPool} et se subdivisent tant qu'elles dépassent la taille de
+ * grain, ce qui permet le vol de tâches entre threads.
+ * <p>
+ * Chaque tuile accumule ses résultats dans sa propre liste ; les listes sont
+ * ensuite transmises au {@link MatchHandler} par le thread appelant dans
+ * l'ordre des tuiles, le résultat est donc identique quel que soit le nombre
+ * de threads. Le nombre de tuiles en cours est borné afin de limiter la
+ * mémoire occupée par les résultats en attente d'écriture.
+ * <p>
+ * Lorsqu'un nombre de partenaires par ligne (top K) ou un nombre total de
+ * paires (top N) est demandé, les threads alimentent une
+ * {@link TopMatchSelection} partagée au lieu de conserver toutes les paires ;
+ * la sélection est transmise à la fin du traitement au {@link MatchHandler}
+ * dans l'ordre croissant des lignes.
+ */
+public final class ComparisonEngine {
+
+    /**
+     * Nombre maximal de paires d'une tuile.
+     */
+    private static final long MAX_PAIRS_PER_TILE = 1L << 20;
+
+    /**
+     * Nombre de tuiles par thread.
+     */
+    private static final int TILES_PER_THREAD = 8;
+
+    /**
+     * Retourne le builder lié à la classe
+     *
+     * @return
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Retourne l'index de la première ligne dont le cumul des paires atteint
+     * une valeur donnée.
+     *
+     * @param cumulativePairs cumul des paires par ligne
+     * @param fromRow
+     * @param toRow
+     * @param pairs
+     * @return
+     */
+    private static int searchRow(long[] cumulativePairs, int fromRow, int toRow, long pairs) {
+        int index = Arrays.binarySearch(cumulativePairs, fromRow, toRow + 1, pairs);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            while (index > fromRow && cumulativePairs[index - 1] == pairs) {
+                index--;
+            }
+        }
+        return index;
+    }
+
+    private double minSimilarity;
+    private int threads;
+    private int topK;
+    private int topN;
+
+    private ComparisonEngine() {
+        minSimilarity = 0.0;
+        threads = Runtime.getRuntime().availableProcessors();
+        topK = 0;
+        topN = 0;
+    }
+
+    /**
+     * Découpe les lignes en tuiles contenant un nombre de paires équivalent.
+     *
+     * @param cumulativePairs cumul des paires par ligne
+     * @return Bornes des tuiles (la tuile k couvre [bounds[k], bounds[k+1][)
+     */
+    private int[] computeTiles(long[] cumulativePairs) {
+        final int nbRows = cumulativePairs.length - 1;
+        final long totalPairs = cumulativePairs[nbRows];
+        long nbTiles = Math.max((long) threads * TILES_PER_THREAD, totalPairs / MAX_PAIRS_PER_TILE + 1);
+        nbTiles = Math.max(1, Math.min(nbTiles, nbRows));
+        long pairsPerTile = totalPairs / nbTiles + 1;
+
+        int[] bounds = new int[(int) nbTiles + 1];
+        int nbBounds = 1;
+        for (int row = 1; row < nbRows && nbBounds < nbTiles; row++) {
+            if (cumulativePairs[row] - cumulativePairs[bounds[nbBounds - 1]] >= pairsPerTile) {
+                bounds[nbBounds++] = row;
+            }
+        }
+        bounds[nbBounds++] = nbRows;
+
+        return Arrays.copyOf(bounds, nbBounds);
+    }
+
+    /**
+     * Compare les paires de lignes d'un ensemble de paires.
+     *
+     * @param pairSpace paires à comparer
+     * @param scorer calcul du taux de similarité
+     * @param handler traitement des paires dont le taux atteint le seuil
+     * @param progressListener reçoit le nombre de lignes traitées au fil de
+     * l'eau
+     * @throws IOException
+     */
+    public void run(@NonNull PairSpace pairSpace, @NonNull PairScorer scorer, @NonNull MatchHandler handler, @NonNull IntConsumer progressListener) throws IOException {
+        final int nbRows = pairSpace.size();
+        if (nbRows == 0) {
+            return;
+        }
+        final long[] cumulativePairs = new long[nbRows + 1];
+        for (int row = 0; row < nbRows; row++) {
+            cumulativePairs[row + 1] = cumulativePairs[row] + pairSpace.countPartners(row);
+        }
+
+        final int[] bounds = computeTiles(cumulativePairs);
+        final int nbTiles = bounds.length - 1;
+        final long grain = Math.max(nbRows, cumulativePairs[nbRows] / ((long) threads * TILES_PER_THREAD * 8));
+        final int window = threads * 2;
+
+        final TopMatchSelection selection = (topK > 0 || topN > 0) ? new TopMatchSelection(nbRows, topK, topN) : null;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Deque<ForkJoinTask<MatchBuffer>> pending = new ArrayDeque<>();
+            int nextTile = 0;
+            for (int tile = 0; tile < nbTiles; tile++) {
+                while (nextTile < nbTiles && pending.size() < window) {
+                    pending.addLast(pool.submit(new TileTask(pairSpace, cumulativePairs, bounds[nextTile], bounds[nextTile + 1], grain, scorer, selection)));
+                    nextTile++;
+                }
+                MatchBuffer matches = pending.removeFirst().join();
+                matches.flush(handler);
+                progressListener.accept(bounds[tile + 1] - bounds[tile]);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (selection != null) {
+            selection.flush(handler);
+        }
+    }
+
+    /**
+     * Tâche de comparaison des lignes [fromRow, toRow[ avec leurs partenaires.
+     */
+    private final class TileTask extends RecursiveTask<MatchBuffer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long[] cumulativePairs;
+        private final int fromRow;
+        private final long grain;
+        private final PairSpace pairSpace;
+        private final PairScorer scorer;
+        private final TopMatchSelection selection;
+        private final int toRow;
+
+        TileTask(PairSpace pairSpace, long[] cumulativePairs, int fromRow, int toRow, long grain, PairScorer scorer, TopMatchSelection selection) {
+            this.cumulativePairs = cumulativePairs;
+            this.fromRow = fromRow;
+            this.grain = grain;
+            this.pairSpace = pairSpace;
+            this.scorer = scorer;
+            this.selection = selection;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected MatchBuffer compute() {
+            long pairs = cumulativePairs[toRow] - cumulativePairs[fromRow];
+            if (toRow - fromRow > 1 && pairs > grain) {
+                int middle = searchRow(cumulativePairs, fromRow, toRow, cumulativePairs[fromRow] + pairs / 2);
+                middle = Math.max(fromRow + 1, Math.min(middle, toRow - 1));
+                TileTask left = new TileTask(pairSpace, cumulativePairs, fromRow, middle, grain, scorer, selection);
+                TileTask right = new TileTask(pairSpace, cumulativePairs, middle, toRow, grain, scorer, selection);
+                left.fork();
+                MatchBuffer rightMatches = right.compute();
+                return left.join().append(rightMatches);
+            }
+
+            final MatchBuffer matches = new MatchBuffer();
+            for (int row = fromRow; row < toRow; row++) {
+                final int row1 = row;
+                pairSpace.forEachPartner(row1, row2 -> {
+                    double similarity = scorer.score(row1, row2, minSimilarity);
+                    if (similarity >= minSimilarity) {
+                        if (selection == null) {
+                            matches.add(row1, row2, similarity);
+                        } else {
+                            selection.offer(row1, row2, similarity);
+                        }
+                    }
+                });
+            }
+            return matches;
+        }
+    }
+
+    public static class Builder {
+
+        private double minSimilarity = 0.0;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private int topK = 0;
+        private int topN = 0;
+
+        Builder() {
+        }
+
+        public ComparisonEngine build() {
+            ComparisonEngine instance = new ComparisonEngine();
+            instance.minSimilarity = minSimilarity;
+            instance.threads = threads;
+            instance.topK = topK;
+            instance.topN = topN;
+            return instance;
+        }
+
+        public Builder setMinSimilarity(double minSimilarity) {
+            this.minSimilarity = minSimilarity;
+            return this;
+        }
+
+        public Builder setThreads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads must be greater than 0");
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Limite le résultat aux meilleurs partenaires de chaque ligne.
+         *
+         * @param topK nombre de partenaires conservés par ligne, 0 pour ne pas
+         * limiter
+         * @return
+         */
+        public Builder setTopK(int topK) {
+            if (topK < 0) {
+                throw new IllegalArgumentException("topK must be greater than or equal to 0");
+            }
+            this.topK = topK;
+            return this;
+        }
+
+        /**
+         * Limite le résultat aux meilleures paires du jeu de données.
+         *
+         * @param topN nombre de paires conservées au total, 0 pour ne pas
+         * limiter
+         * @return
+         */
+        public Builder setTopN(int topN) {
+            if (topN < 0) {
+                throw new IllegalArgumentException("topN must be greater than or equal to 0");
+            }
+            this.topN = topN;
+            return this;
+        }
+    }
+}
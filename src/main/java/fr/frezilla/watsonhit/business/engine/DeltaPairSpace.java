@@ -0,0 +1,63 @@
+package fr.frezilla.watsonhit.business.engine;
+
+import java.util.function.IntConsumer;
+import lombok.NonNull;
+
+/**
+ * Restriction d'un ensemble de paires aux paires qui comportent au moins une
+ * nouvelle ligne.
+ * <p>
+ * Les nouvelles lignes sont les lignes d'index supérieur ou égal à
+ * <code>firstNewRow</code>, ajoutées à la suite des lignes d'un traitement
+ * précédent : les paires entre deux anciennes lignes, déjà comparées par le
+ * traitement précédent, sont écartées.
+ * <p>
+ * Les paires d'anciennes lignes d'un traitement complet sont celles du
+ * traitement précédent lorsque les partenaires d'une ancienne ligne ne
+ * dépendent pas des nouvelles lignes (toutes les paires, clés de blocage,
+ * MinHash). Ce n'est pas le cas du voisinage trié : les nouvelles lignes
+ * déplacent les fenêtres des anciennes lignes.
+ */
+public final class DeltaPairSpace implements PairSpace {
+
+    private final int firstNewRow;
+    private final PairSpace pairSpace;
+
+    /**
+     * Constructeur
+     *
+     * @param pairSpace ensemble des paires de toutes les lignes
+     * @param firstNewRow index de la première nouvelle ligne
+     */
+    public DeltaPairSpace(@NonNull PairSpace pairSpace, int firstNewRow) {
+        if (firstNewRow < 0 || firstNewRow > pairSpace.size()) {
+            throw new IllegalArgumentException("firstNewRow must be between 0 and the number of rows");
+        }
+        this.firstNewRow = firstNewRow;
+        this.pairSpace = pairSpace;
+    }
+
+    @Override
+    public long countPartners(int row) {
+        long count = pairSpace.countPartners(row);
+        return (row < firstNewRow) ? Math.min(count, size() - firstNewRow) : count;
+    }
+
+    @Override
+    public void forEachPartner(int row, @NonNull IntConsumer consumer) {
+        if (row < firstNewRow) {
+            pairSpace.forEachPartner(row, j -> {
+                if (j >= firstNewRow) {
+                    consumer.accept(j);
+                }
+            });
+        } else {
+            pairSpace.forEachPartner(row, consumer);
+        }
+    }
+
+    @Override
+    public int size() {
+        return pairSpace.size();
+    }
+}
@@ -0,0 +1,72 @@
+package fr.frezilla.watsonhit.business.engine;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cache de toutes les paires de valeurs distinctes d'une colonne.
+ * <p>
+ * Chaque paire de valeurs distinctes dispose d'une case dans un tableau
+ * triangulaire : le taux d'une paire n'est calculé qu'une seule fois quel que
+ * soit le nombre de lignes qui la partagent. Les taux sont conservés sous la
+ * forme de leur représentation binaire afin que lectures et écritures soient
+ * atomiques ; deux threads qui calculent la même paire en même temps écrivent
+ * la même valeur.
+ */
+final class DensePairCache extends PairCache {
+
+    /**
+     * Représentation d'une case vide, distincte de celle de tout taux calculé.
+     */
+    private static final long EMPTY = -1L;
+
+    /**
+     * Retourne le nombre de cases nécessaires pour un nombre de valeurs
+     * distinctes.
+     *
+     * @param distinctCount nombre de valeurs distinctes
+     * @return
+     */
+    static long capacity(int distinctCount) {
+        return (long) distinctCount * (distinctCount - 1) / 2;
+    }
+
+    private final AtomicLongArray hitRates;
+
+    /**
+     * Constructeur
+     *
+     * @param distinctCount nombre de valeurs distinctes de la colonne
+     */
+    DensePairCache(int distinctCount) {
+        long capacity = capacity(distinctCount);
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("distinctCount too large");
+        }
+        this.hitRates = new AtomicLongArray((int) capacity);
+        for (int i = 0; i < hitRates.length(); i++) {
+            hitRates.lazySet(i, EMPTY);
+        }
+    }
+
+    private int index(int id1, int id2) {
+        int low = Math.min(id1, id2);
+        int high = Math.max(id1, id2);
+        return (int) ((long) high * (high - 1) / 2 + low);
+    }
+
+    @Override
+    boolean isComplete() {
+        return true;
+    }
+
+    @Override
+    double lookup(int id1, int id2, double minHitRate) {
+        long bits = hitRates.get(index(id1, id2));
+        return (bits == EMPTY) ? MISSING : Double.longBitsToDouble(bits);
+    }
+
+    @Override
+    void put(int id1, int id2, double minHitRate, double hitRate) {
+        hitRates.set(index(id1, id2), Double.doubleToRawLongBits(hitRate));
+    }
+}
@@ -0,0 +1,145 @@
+package fr.frezilla.watsonhit.business.engine;
+
+import java.io.IOException;
+import java.util.Arrays;
+import lombok.NonNull;
+
+/**
+ * Liste de paires similaires stockée dans des tableaux de types primitifs.
+ * <p>
+ * Chaque tâche de comparaison remplit sa propre liste, aucune synchronisation
+ * n'est donc nécessaire.
+ */
+final class MatchBuffer {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] rows1;
+    private int[] rows2;
+    private double[] similarities;
+    private int size;
+
+    MatchBuffer() {
+        rows1 = new int[INITIAL_CAPACITY];
+        rows2 = new int[INITIAL_CAPACITY];
+        similarities = new double[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Ajoute une paire à la liste.
+     *
+     * @param row1
+     * @param row2
+     * @param similarity
+     */
+    void add(int row1, int row2, double similarity) {
+        ensureCapacity(size + 1);
+        rows1[size] = row1;
+        rows2[size] = row2;
+        similarities[size] = similarity;
+        size++;
+    }
+
+    /**
+     * Ajoute à la fin de la liste les paires d'une autre liste.
+     *
+     * @param other
+     * @return La liste contenant les paires des deux listes
+     */
+    MatchBuffer append(@NonNull MatchBuffer other) {
+        if (size == 0) {
+            return other;
+        }
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.rows1, 0, rows1, size, other.size);
+        System.arraycopy(other.rows2, 0, rows2, size, other.size);
+        System.arraycopy(other.similarities, 0, similarities, size, other.size);
+        size += other.size;
+        return this;
+    }
+
+    /**
+     * Compare les paires d'index i et j selon l'ordre des lignes.
+     */
+    private int compare(int i, int j) {
+        int c = Integer.compare(rows1[i], rows1[j]);
+        return c != 0 ? c : Integer.compare(rows2[i], rows2[j]);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > rows1.length) {
+            int newCapacity = Math.max(capacity, rows1.length * 2);
+            rows1 = Arrays.copyOf(rows1, newCapacity);
+            rows2 = Arrays.copyOf(rows2, newCapacity);
+            similarities = Arrays.copyOf(similarities, newCapacity);
+        }
+    }
+
+    /**
+     * Transmet les paires de la liste au traitement, dans l'ordre d'ajout.
+     *
+     * @param handler
+     * @throws IOException
+     */
+    void flush(@NonNull MatchHandler handler) throws IOException {
+        for (int i = 0; i < size; i++) {
+            handler.handle(rows1[i], rows2[i], similarities[i]);
+        }
+    }
+
+    private void siftDown(int parent, int length) {
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= length) {
+                return;
+            }
+            if (child + 1 < length && compare(child + 1, child) > 0) {
+                child++;
+            }
+            if (compare(child, parent) <= 0) {
+                return;
+            }
+            swap(parent, child);
+            parent = child;
+        }
+    }
+
+    /**
+     * Trie les paires dans l'ordre croissant des lignes et supprime les
+     * doublons.
+     * <p>
+     * Le tri est un tri par tas, effectué sur place.
+     */
+    void sortDistinct() {
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i, size);
+        }
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || compare(i, distinct - 1) != 0) {
+                rows1[distinct] = rows1[i];
+                rows2[distinct] = rows2[i];
+                similarities[distinct] = similarities[i];
+                distinct++;
+            }
+        }
+        size = distinct;
+    }
+
+    private void swap(int i, int j) {
+        int row1 = rows1[i];
+        int row2 = rows2[i];
+        double similarity = similarities[i];
+        rows1[i] = rows1[j];
+        rows2[i] = rows2[j];
+        similarities[i] = similarities[j];
+        rows1[j] = row1;
+        rows2[j] = row2;
+        similarities[j] = similarity;
+    }
+}
@@ -0,0 +1,25 @@
+package fr.frezilla.watsonhit.business.engine;
+
+import java.io.IOException;
+
+/**
+ * Traitement appliqué à chaque paire de lignes dont le taux de similarité
+ * atteint le seuil demandé.
+ * <p>
+ * Le moteur de comparaison appelle le traitement depuis un seul thread, dans
+ * l'ordre croissant des lignes.
+ */
+@FunctionalInterface
+public interface MatchHandler {
+
+    /**
+     * Traite une paire de lignes similaires.
+     *
+     * @param row1 index de la 1ère ligne
+     * @param row2 index de la 2ème ligne (toujours supérieur à row1)
+     * @param similarity taux de similarité entre 0 et 100
+     * @throws IOException
+     */
+    void handle(int row1, int row2, double similarity) throws IOException;
+
+}
@@ -0,0 +1,86 @@
+package fr.frezilla.watsonhit.business.engine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache des taux de similarité d'une colonne, indexé par la paire
+ * d'identifiants des valeurs comparées.
+ * <p>
+ * Le cache compte les consultations fructueuses et infructueuses.
+ * <p>
+ * Les instances peuvent être partagées entre plusieurs threads.
+ */
+abstract class PairCache {
+
+    /**
+     * Valeur retournée pour une paire absente du cache.
+     */
+    static final double MISSING = Double.NaN;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Retourne le taux en cache d'une paire d'identifiants distincts.
+     *
+     * @param id1
+     * @param id2
+     * @param minHitRate taux minimal recherché
+     * @return Taux en cache ou {@link #MISSING}
+     */
+    final double get(int id1, int id2, double minHitRate) {
+        double hitRate = lookup(id1, id2, minHitRate);
+        if (Double.isNaN(hitRate)) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return hitRate;
+    }
+
+    /**
+     * Retourne le nombre de consultations fructueuses.
+     *
+     * @return
+     */
+    final long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Retourne le nombre de consultations infructueuses.
+     *
+     * @return
+     */
+    final long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Indique si le cache conserve toutes les paires de la colonne ; les taux
+     * sont alors calculés sans taux minimal.
+     *
+     * @return
+     */
+    abstract boolean isComplete();
+
+    /**
+     * Recherche le taux d'une paire d'identifiants distincts.
+     *
+     * @param id1
+     * @param id2
+     * @param minHitRate taux minimal recherché
+     * @return Taux en cache ou {@link #MISSING}
+     */
+    abstract double lookup(int id1, int id2, double minHitRate);
+
+    /**
+     * Enregistre le taux d'une paire d'identifiants distincts.
+     *
+     * @param id1
+     * @param id2
+     * @param minHitRate taux minimal avec lequel le taux a été calculé
+     * @param hitRate taux calculé
+     */
+    abstract void put(int id1, int id2, double minHitRate, double hitRate);
+}
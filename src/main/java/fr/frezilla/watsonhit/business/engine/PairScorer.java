@@ -0,0 +1,280 @@
+package fr.frezilla.watsonhit.business.engine;
+
+import fr.frezilla.watsonhit.business.csv.CsvColumnDescription;
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import fr.frezilla.watsonhit.business.similarity.SimilarityAlgorithm;
+import java.util.List;
+import java.util.stream.IntStream;
+import lombok.NonNull;
+
+/**
+ * Calcule le taux de similarité entre deux lignes d'un jeu de données.
+ * <p>
+ * Le taux est la moyenne, pondérée par le poids des colonnes, des taux de
+ * similarité de chaque colonne comparée ; il est exprimé entre 0 et 100.
+ * <p>
+ * Lorsqu'un taux minimal est demandé, les colonnes sont évaluées par poids
+ * décroissant et l'évaluation s'arrête dès que le taux maximal encore
+ * atteignable (colonnes restantes supposées identiques) passe sous le taux
+ * minimal. Chaque algorithme reçoit le taux minimal que la colonne doit
+ * atteindre pour que la paire reste candidate, ce qui lui permet
+ * d'interrompre son calcul. Le taux des paires retenues est ensuite calculé
+ * dans l'ordre des colonnes du fichier, il est donc identique à celui d'une
+ * évaluation complète.
+ * <p>
+ * Les colonnes sont comparées sur les identifiants des valeurs normalisées du
+ * jeu de données : deux valeurs de même identifiant sont identiques. Pour les
+ * colonnes dont le nombre de valeurs distinctes le permet, le taux de chaque
+ * paire de valeurs distinctes est conservé dans un {@link DensePairCache} et
+ * n'est calculé qu'une seule fois. Les autres colonnes disposent d'un
+ * {@link BoundedPairCache} de taille fixe dont les paires sont évincées selon
+ * une {@link CacheEvictionPolicy}.
+ * <p>
+ * Les instances peuvent être partagées entre plusieurs threads.
+ */
+public final class PairScorer {
+
+    /**
+     * Nombre de paires du cache borné d'une colonne par défaut.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1 << 18;
+
+    /**
+     * Nombre maximal de paires de valeurs distinctes d'une colonne pour
+     * lequel toutes les paires sont conservées en cache.
+     */
+    public static final long MAX_CACHED_PAIRS = 1L << 21;
+
+    /**
+     * Marge appliquée au taux maximal atteignable pour absorber les écarts
+     * d'arrondi entre les deux ordres de sommation.
+     */
+    private static final double BOUND_EPSILON = 1e-9;
+
+    /**
+     * Taux retourné pour une paire abandonnée avant la fin de l'évaluation.
+     */
+    private static final double PRUNED = -1.0;
+
+    private final SimilarityAlgorithm[] algorithms;
+
+    /**
+     * Cache de chaque colonne, {@code null} si la colonne n'est pas en cache.
+     */
+    private final PairCache[] caches;
+
+    private final ThreadLocal<double[]> contributions;
+
+    /**
+     * Valeurs normalisées distinctes de chaque colonne.
+     */
+    private final String[][] dictionaries;
+
+    /**
+     * Identifiants des valeurs normalisées de chaque colonne.
+     */
+    private final int[][] ids;
+
+    /**
+     * Index des colonnes de poids non nul, par poids décroissant.
+     */
+    private final int[] order;
+
+    private final double[] weights;
+
+    /**
+     * Constructeur
+     *
+     * @param csvDescription description du fichier csv
+     * @param dataSet jeu de données
+     */
+    public PairScorer(@NonNull CsvDescription csvDescription, @NonNull DataSet dataSet) {
+        this(csvDescription, dataSet, DEFAULT_CACHE_SIZE, CacheEvictionPolicy.CLOCK);
+    }
+
+    /**
+     * Constructeur
+     *
+     * @param csvDescription description du fichier csv
+     * @param dataSet jeu de données
+     * @param cacheSize nombre de paires du cache borné de chaque colonne (0
+     * pour ne pas utiliser de cache borné)
+     * @param cachePolicy politique d'éviction des caches bornés
+     */
+    public PairScorer(@NonNull CsvDescription csvDescription, @NonNull DataSet dataSet, int cacheSize, @NonNull CacheEvictionPolicy cachePolicy) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize must be positive");
+        }
+        List<CsvColumnDescription> columnsDescriptions = csvDescription.getColumnsDescription();
+        final int nbColumns = columnsDescriptions.size();
+
+        this.algorithms = new SimilarityAlgorithm[nbColumns];
+        this.caches = new PairCache[nbColumns];
+        this.dictionaries = new String[nbColumns][];
+        this.ids = new int[nbColumns][];
+        this.weights = new double[nbColumns];
+        for (int i = 0; i < nbColumns; i++) {
+            algorithms[i] = columnsDescriptions.get(i).getAlgorithm().getAlgorithm();
+            dictionaries[i] = dataSet.getDictionary(i);
+            ids[i] = dataSet.getValueIds(i);
+            weights[i] = columnsDescriptions.get(i).getWeight();
+            if (weights[i] != 0.0) {
+                if (DensePairCache.capacity(dictionaries[i].length) <= MAX_CACHED_PAIRS) {
+                    caches[i] = new DensePairCache(dictionaries[i].length);
+                } else if (cacheSize > 0) {
+                    caches[i] = new BoundedPairCache(cacheSize, cachePolicy);
+                }
+            }
+        }
+        this.order = IntStream.range(0, nbColumns)
+                .boxed()
+                .filter(i -> weights[i] != 0.0)
+                .sorted((i, j) -> Double.compare(weights[j], weights[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.contributions = ThreadLocal.withInitial(() -> new double[nbColumns]);
+    }
+
+    /**
+     * Calcule le taux de similarité d'une colonne.
+     * <p>
+     * Le taux d'une colonne dont toutes les paires sont en cache est calculé
+     * sans taux minimal afin que la valeur conservée soit exacte.
+     *
+     * @param column index de la colonne
+     * @param id1 identifiant de la 1ère valeur
+     * @param id2 identifiant de la 2ème valeur
+     * @param minHitRate taux minimal recherché
+     * @return Taux de similarité entre 0 et 1, ou une valeur inférieure à
+     * minHitRate si ce taux ne peut pas être atteint
+     */
+    private double columnHitRate(int column, int id1, int id2, double minHitRate) {
+        if (id1 == id2) {
+            return dictionaries[column][id1].isEmpty() ? 0.0 : 1.0;
+        }
+        String value1 = dictionaries[column][id1];
+        String value2 = dictionaries[column][id2];
+        if (value1.isEmpty() || value2.isEmpty()) {
+            return 0.0;
+        }
+        PairCache cache = caches[column];
+        if (cache == null) {
+            return algorithms[column].getHitRate(value1, value2, minHitRate);
+        }
+        double hitRate = cache.get(id1, id2, minHitRate);
+        if (Double.isNaN(hitRate)) {
+            if (cache.isComplete()) {
+                hitRate = algorithms[column].getHitRate(value1, value2);
+            } else {
+                hitRate = algorithms[column].getHitRate(value1, value2, minHitRate);
+            }
+            cache.put(id1, id2, minHitRate, hitRate);
+        }
+        return hitRate;
+    }
+
+    /**
+     * Retourne le nombre de consultations fructueuses du cache d'une colonne.
+     *
+     * @param column index de la colonne
+     * @return
+     */
+    public long getCacheHits(int column) {
+        return (caches[column] == null) ? 0L : caches[column].getHits();
+    }
+
+    /**
+     * Retourne le nombre de consultations infructueuses du cache d'une
+     * colonne.
+     *
+     * @param column index de la colonne
+     * @return
+     */
+    public long getCacheMisses(int column) {
+        return (caches[column] == null) ? 0L : caches[column].getMisses();
+    }
+
+    /**
+     * Indique si le taux de similarité d'une colonne est conservé en cache.
+     *
+     * @param column index de la colonne
+     * @return
+     */
+    public boolean isCached(int column) {
+        return caches[column] != null;
+    }
+
+    /**
+     * Indique si toutes les paires de valeurs distinctes d'une colonne sont
+     * conservées en cache.
+     *
+     * @param column index de la colonne
+     * @return
+     */
+    public boolean isCacheComplete(int column) {
+        return caches[column] != null && caches[column].isComplete();
+    }
+
+    /**
+     * Calcule le taux de similarité entre deux lignes.
+     *
+     * @param row1 index de la 1ère ligne
+     * @param row2 index de la 2ème ligne
+     * @return Taux de similarité entre 0 et 100
+     */
+    public double score(int row1, int row2) {
+        return score(row1, row2, 0.0);
+    }
+
+    /**
+     * Calcule le taux de similarité entre deux lignes si celui-ci peut
+     * atteindre un taux minimal.
+     *
+     * @param row1 index de la 1ère ligne
+     * @param row2 index de la 2ème ligne
+     * @param minSimilarity taux minimal entre 0 et 100
+     * @return Taux de similarité entre 0 et 100, ou une valeur inférieure à
+     * minSimilarity si ce taux ne peut pas être atteint
+     */
+    public double score(int row1, int row2, double minSimilarity) {
+        double totalWeight = 0.0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] != 0.0 && ids[i][row1] != DataSet.NULL_ID && ids[i][row2] != DataSet.NULL_ID) {
+                totalWeight += weights[i];
+            }
+        }
+        if (totalWeight == 0.0) {
+            return 0.0;
+        }
+
+        final double minWeightedSimilarity = minSimilarity / 100.0 * totalWeight - BOUND_EPSILON;
+        final double[] values = contributions.get();
+        double remainingWeight = totalWeight;
+        double similarity = 0.0;
+        for (int i : order) {
+            values[i] = 0.0;
+            int id1 = ids[i][row1];
+            int id2 = ids[i][row2];
+            if (id1 != DataSet.NULL_ID && id2 != DataSet.NULL_ID) {
+                double weight = weights[i];
+                remainingWeight -= weight;
+                double minHitRate = (minWeightedSimilarity - similarity - remainingWeight) / weight - BOUND_EPSILON;
+                double hitRate = columnHitRate(i, id1, id2, minHitRate);
+                if (hitRate < minHitRate) {
+                    return PRUNED;
+                }
+                values[i] = weight * hitRate;
+                similarity += values[i];
+            }
+        }
+
+        similarity = 0.0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] != 0.0) {
+                similarity += values[i];
+            }
+        }
+        return similarity / totalWeight * 100.0;
+    }
+}
@@ -0,0 +1,45 @@
+package fr.frezilla.watsonhit.business.engine;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Ensemble des paires de lignes à comparer.
+ * <p>
+ * Les paires sont décrites ligne par ligne : pour chaque ligne i, l'ensemble
+ * fournit les lignes j &gt; i avec lesquelles elle doit être comparée, sans
+ * doublon et dans l'ordre croissant.
+ * <p>
+ * Les implémentations doivent pouvoir être parcourues simultanément par
+ * plusieurs threads.
+ */
+public interface PairSpace {
+
+    /**
+     * Retourne le nombre de partenaires d'une ligne, ou une estimation
+     * majorante de ce nombre.
+     * <p>
+     * La valeur sert à équilibrer la charge entre les threads du moteur de
+     * comparaison.
+     *
+     * @param row index de la ligne
+     * @return Nombre de partenaires
+     */
+    long countPartners(int row);
+
+    /**
+     * Parcourt les partenaires d'une ligne.
+     *
+     * @param row index de la ligne
+     * @param consumer traitement appelé pour chaque partenaire, dans l'ordre
+     * croissant
+     */
+    void forEachPartner(int row, IntConsumer consumer);
+
+    /**
+     * Retourne le nombre de lignes.
+     *
+     * @return
+     */
+    int size();
+
+}
@@ -0,0 +1,108 @@
+package fr.frezilla.watsonhit.business.engine;
+
+import java.util.function.IntConsumer;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Lot d'un ensemble de paires découpé en lots disjoints, traités
+ * indépendamment par plusieurs processus.
+ * <p>
+ * Chaque lot regroupe les paires d'une plage de lignes consécutives
+ * [<code>firstRow</code>, <code>endRow</code>[ : les plages sont choisies pour
+ * que les lots comportent à peu près le même nombre de paires, d'après
+ * {@link PairSpace#countPartners(int)}. Le découpage ne dépend que de
+ * l'ensemble de paires, chaque processus le calcule donc à l'identique sans
+ * coordination.
+ * <p>
+ * Les paires d'un lot restent ordonnées par lignes croissantes et les lots se
+ * suivent dans l'ordre des lignes : la fusion des résultats des lots suit
+ * l'ordre d'un traitement unique.
+ */
+public final class ShardPairSpace implements PairSpace {
+
+    /**
+     * Index de la ligne qui suit la plage du lot.
+     */
+    @Getter
+    private final int endRow;
+
+    /**
+     * Index de la première ligne de la plage du lot.
+     */
+    @Getter
+    private final int firstRow;
+
+    private final PairSpace pairSpace;
+
+    /**
+     * Constructeur
+     *
+     * @param pairSpace ensemble des paires de toutes les lignes
+     * @param shard index du lot, de 0 à <code>shards - 1</code>
+     * @param shards nombre de lots
+     */
+    public ShardPairSpace(@NonNull PairSpace pairSpace, int shard, int shards) {
+        if (shards < 1 || shard < 0 || shard >= shards) {
+            throw new IllegalArgumentException("shard must be between 0 and shards - 1");
+        }
+        final int nbRows = pairSpace.size();
+        long total = 0;
+        for (int row = 0; row < nbRows; row++) {
+            total += pairSpace.countPartners(row);
+        }
+
+        // Les lignes sont réparties selon le cumul de leurs partenaires : le
+        // lot k commence à la première ligne dont le cumul atteint k/shards
+        // du total
+        final long from = total / shards * shard + total % shards * shard / shards;
+        final long to = total / shards * (shard + 1) + total % shards * (shard + 1) / shards;
+        int first = nbRows;
+        int end = nbRows;
+        long cumulated = 0;
+        for (int row = 0; row < nbRows; row++) {
+            if (first == nbRows && cumulated >= from) {
+                first = row;
+            }
+            if (shard + 1 < shards && cumulated >= to) {
+                end = row;
+                break;
+            }
+            cumulated += pairSpace.countPartners(row);
+        }
+        this.endRow = Math.max(first, end);
+        this.firstRow = first;
+        this.pairSpace = pairSpace;
+    }
+
+    /**
+     * Retourne le nombre de paires du lot, ou une estimation majorante de ce
+     * nombre.
+     *
+     * @return
+     */
+    public long countPairs() {
+        long count = 0;
+        for (int row = firstRow; row < endRow; row++) {
+            count += pairSpace.countPartners(row);
+        }
+        return count;
+    }
+
+    @Override
+    public long countPartners(int row) {
+        return (row < firstRow || row >= endRow) ? 0 : pairSpace.countPartners(row);
+    }
+
+    @Override
+    public void forEachPartner(int row, @NonNull IntConsumer consumer) {
+        if (row >= firstRow && row < endRow) {
+            pairSpace.forEachPartner(row, consumer);
+        }
+    }
+
+    @Override
+    public int size() {
+        return pairSpace.size();
+    }
+}
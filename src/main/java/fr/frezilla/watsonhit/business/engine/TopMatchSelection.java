@@ -0,0 +1,113 @@
+package fr.frezilla.watsonhit.business.engine;
+
+import java.io.IOException;
+import lombok.NonNull;
+
+/**
+ * Sélection des meilleures paires similaires : les K meilleurs partenaires de
+ * chaque ligne et/ou les N meilleures paires de l'ensemble du jeu de données.
+ * <p>
+ * Une paire est conservée si elle fait partie des K meilleures paires de
+ * l'une de ses deux lignes. Lorsque les deux modes sont combinés, seules les
+ * N meilleures paires ainsi conservées sont retenues. La mémoire occupée est
+ * en O(n·K + N), quel que soit le nombre de paires dont le taux atteint le
+ * seuil et le nombre de threads de comparaison.
+ * <p>
+ * Une sélection est partagée par les threads de comparaison. Les tas des
+ * lignes sont protégés par des verrous répartis sur les lignes ; le tas global
+ * est protégé par un verrou unique, qui n'est pris que pour les paires
+ * meilleures que la moins bonne paire conservée une fois le tas plein. Les
+ * paires conservées ne dépendent pas de l'ordre dans lequel elles sont
+ * proposées.
+ */
+final class TopMatchSelection {
+
+    /**
+     * Nombre de verrous des tas des lignes (puissance de 2).
+     */
+    private static final int LOCK_STRIPES = 1 << 12;
+
+    private final BoundedMatchHeaps globalHeap;
+
+    /**
+     * Taux de la moins bonne paire du tas global lorsqu'il est plein : les
+     * paires de taux inférieur sont écartées sans prendre le verrou.
+     */
+    private volatile double globalFloor = Double.NEGATIVE_INFINITY;
+
+    private final Object[] locks;
+    private final BoundedMatchHeaps rowHeaps;
+    private final int topN;
+
+    /**
+     * Constructeur.
+     *
+     * @param nbRows nombre de lignes du jeu de données
+     * @param topK nombre de partenaires conservés par ligne, 0 pour ne pas
+     * limiter
+     * @param topN nombre de paires conservées au total, 0 pour ne pas limiter
+     */
+    TopMatchSelection(int nbRows, int topK, int topN) {
+        if (topK < 0 || topN < 0 || topK + topN == 0) {
+            throw new IllegalArgumentException("topK or topN must be greater than 0");
+        }
+        this.rowHeaps = topK > 0 ? new BoundedMatchHeaps(nbRows, topK) : null;
+        this.globalHeap = topK == 0 ? new BoundedMatchHeaps(1, topN) : null;
+        this.locks = new Object[topK > 0 ? LOCK_STRIPES : 0];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        this.topN = topN;
+    }
+
+    /**
+     * Transmet les paires sélectionnées au traitement, dans l'ordre croissant
+     * des lignes.
+     * <p>
+     * Les paires ne doivent plus être proposées.
+     *
+     * @param handler
+     * @throws IOException
+     */
+    void flush(@NonNull MatchHandler handler) throws IOException {
+        MatchBuffer matches = new MatchBuffer();
+        if (rowHeaps != null) {
+            rowHeaps.drainTo(matches);
+            matches.sortDistinct();
+            if (topN > 0) {
+                BoundedMatchHeaps heap = new BoundedMatchHeaps(1, topN);
+                matches.flush((row1, row2, similarity) -> heap.offer(0, row1, row2, similarity));
+                matches = new MatchBuffer();
+                heap.drainTo(matches);
+                matches.sortDistinct();
+            }
+        } else {
+            globalHeap.drainTo(matches);
+            matches.sortDistinct();
+        }
+        matches.flush(handler);
+    }
+
+    /**
+     * Propose une paire à la sélection.
+     *
+     * @param row1
+     * @param row2
+     * @param similarity
+     */
+    void offer(int row1, int row2, double similarity) {
+        if (rowHeaps != null) {
+            synchronized (locks[row1 & (LOCK_STRIPES - 1)]) {
+                rowHeaps.offer(row1, row1, row2, similarity);
+            }
+            synchronized (locks[row2 & (LOCK_STRIPES - 1)]) {
+                rowHeaps.offer(row2, row1, row2, similarity);
+            }
+        } else if (similarity >= globalFloor) {
+            synchronized (globalHeap) {
+                globalHeap.offer(0, row1, row2, similarity);
+                globalFloor = globalHeap.getWorstSimilarity(0);
+            }
+        }
+    }
+}
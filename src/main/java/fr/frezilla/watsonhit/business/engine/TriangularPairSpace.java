@@ -0,0 +1,62 @@
+package fr.frezilla.watsonhit.business.engine;
+
+import java.util.function.IntConsumer;
+import lombok.NonNull;
+
+/**
+ * Ensemble de toutes les paires (i, j) avec j &gt; i : chaque ligne est
+ * comparée à toutes les lignes qui la suivent.
+ * <p>
+ * L'ensemble peut être restreint aux paires qui comportent au moins une
+ * nouvelle ligne, d'index supérieur ou égal à <code>firstNewRow</code> (voir
+ * {@link DeltaPairSpace}) ; les partenaires sont alors parcourus directement
+ * à partir de la première nouvelle ligne.
+ */
+public final class TriangularPairSpace implements PairSpace {
+
+    private final int firstNewRow;
+    private final int nbRows;
+
+    /**
+     * Constructeur
+     *
+     * @param nbRows nombre de lignes
+     */
+    public TriangularPairSpace(int nbRows) {
+        this(nbRows, 0);
+    }
+
+    /**
+     * Constructeur
+     *
+     * @param nbRows nombre de lignes
+     * @param firstNewRow index de la première nouvelle ligne
+     */
+    public TriangularPairSpace(int nbRows, int firstNewRow) {
+        if (nbRows < 0) {
+            throw new IllegalArgumentException("nbRows must be positive");
+        }
+        if (firstNewRow < 0 || firstNewRow > nbRows) {
+            throw new IllegalArgumentException("firstNewRow must be between 0 and nbRows");
+        }
+        this.firstNewRow = firstNewRow;
+        this.nbRows = nbRows;
+    }
+
+    @Override
+    public long countPartners(int row) {
+        return nbRows - Math.max(row + 1, firstNewRow);
+    }
+
+    @Override
+    public void forEachPartner(int row, @NonNull IntConsumer consumer) {
+        for (int j = Math.max(row + 1, firstNewRow); j < nbRows; j++) {
+            consumer.accept(j);
+        }
+    }
+
+    @Override
+    public int size() {
+        return nbRows;
+    }
+}
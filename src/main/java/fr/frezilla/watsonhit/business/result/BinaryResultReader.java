@@ -0,0 +1,113 @@
+package fr.frezilla.watsonhit.business.result;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Lecture séquentielle d'un fichier de résultat au format binaire décrit par
+ * {@link BinaryResultSink}.
+ * <p>
+ * L'en-tête du fichier, lu à l'ouverture, est accessible par
+ * {@link #getNbRows()}, {@link #getShard()} et {@link #getShardCount()}.
+ * <p>
+ * Après chaque appel à {@link #next()} qui retourne {@code true}, la paire
+ * courante est accessible par {@link #getRow1()}, {@link #getRow2()} et
+ * {@link #getSimilarity()}.
+ */
+public final class BinaryResultReader implements Closeable {
+
+    private final DataInputStream in;
+
+    /**
+     * Nombre de lignes du jeu de données comparé, ou
+     * {@link BinaryResultSink#UNKNOWN_ROW_COUNT}.
+     */
+    @Getter
+    private final int nbRows;
+
+    private final byte[] record;
+
+    /**
+     * Numéro du lot, à partir de 0.
+     */
+    @Getter
+    private final int shard;
+
+    /**
+     * Nombre de lots.
+     */
+    @Getter
+    private final int shardCount;
+
+    @Getter
+    private int row1;
+
+    @Getter
+    private int row2;
+
+    @Getter
+    private double similarity;
+
+    /**
+     * Constructeur : ouvre le fichier et contrôle son en-tête.
+     *
+     * @param fileName nom du fichier de résultat
+     * @throws IOException si le fichier n'est pas un résultat binaire de
+     * version connue ou si son en-tête est invalide
+     */
+    public BinaryResultReader(@NonNull String fileName) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16));
+        record = new byte[BinaryResultSink.RECORD_SIZE];
+        try {
+            byte[] magic = new byte[BinaryResultSink.MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, BinaryResultSink.MAGIC) || in.readByte() != BinaryResultSink.VERSION) {
+                throw new IOException(fileName + " is not a binary result file");
+            }
+            nbRows = in.readInt();
+            shard = in.readInt();
+            shardCount = in.readInt();
+            if (nbRows < BinaryResultSink.UNKNOWN_ROW_COUNT || shardCount < 1 || shard < 0 || shard >= shardCount) {
+                throw new IOException(String.format("%s has an invalid header: %d rows, shard %d/%d", fileName, nbRows, shard, shardCount));
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Lit la paire suivante.
+     *
+     * @return {@code false} à la fin du fichier
+     * @throws IOException si le fichier est tronqué au milieu d'une paire
+     */
+    public boolean next() throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return false;
+        }
+        record[0] = (byte) first;
+        try {
+            in.readFully(record, 1, record.length - 1);
+        } catch (EOFException e) {
+            throw new IOException("truncated binary result record", e);
+        }
+        row1 = ((record[0] & 0xff) << 24) | ((record[1] & 0xff) << 16) | ((record[2] & 0xff) << 8) | (record[3] & 0xff);
+        row2 = ((record[4] & 0xff) << 24) | ((record[5] & 0xff) << 16) | ((record[6] & 0xff) << 8) | (record[7] & 0xff);
+        similarity = Float.intBitsToFloat(((record[8] & 0xff) << 24) | ((record[9] & 0xff) << 16) | ((record[10] & 0xff) << 8) | (record[11] & 0xff));
+        return true;
+    }
+}
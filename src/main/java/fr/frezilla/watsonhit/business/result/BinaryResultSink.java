@@ -0,0 +1,104 @@
+package fr.frezilla.watsonhit.business.result;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import lombok.NonNull;
+
+/**
+ * Ecrit les paires de lignes similaires dans un format binaire compact.
+ * <p>
+ * Le fichier commence par les 3 octets {@code WHR} suivis du numéro de
+ * version du format ({@link #VERSION}) et d'un en-tête qui identifie le
+ * résultat, en ordre big-endian :
+ * <ul>
+ *  <li>nombre de lignes du jeu de données comparé ({@code int}),
+ *      {@link #UNKNOWN_ROW_COUNT} s'il n'est pas connu au début du
+ *      traitement</li>
+ *  <li>numéro du lot ({@code int}, à partir de 0)</li>
+ *  <li>nombre de lots ({@code int}, 1 pour un traitement non découpé)</li>
+ * </ul>
+ * <p>
+ * Chaque paire est ensuite un enregistrement de {@link #RECORD_SIZE} octets,
+ * en ordre big-endian :
+ * <ul>
+ *  <li>index de la 1ère ligne dans le fichier csv ({@code int}, à partir de
+ *      0)</li>
+ *  <li>index de la 2ème ligne ({@code int})</li>
+ *  <li>taux de similarité entre 0 et 100 ({@code float})</li>
+ * </ul>
+ */
+public final class BinaryResultSink implements ResultSink {
+
+    /**
+     * En-tête du fichier, sans le numéro de version.
+     */
+    public static final byte[] MAGIC = {'W', 'H', 'R'};
+
+    /**
+     * Taille d'un enregistrement en octets.
+     */
+    public static final int RECORD_SIZE = 12;
+
+    /**
+     * Nombre de lignes enregistré lorsqu'il n'est pas connu au début du
+     * traitement, par exemple lors d'une comparaison par blocs.
+     */
+    public static final int UNKNOWN_ROW_COUNT = -1;
+
+    /**
+     * Version du format.
+     */
+    public static final byte VERSION = 2;
+
+    private final int nbRows;
+    private final DataOutputStream out;
+    private final int shard;
+    private final int shardCount;
+
+    /**
+     * Constructeur
+     *
+     * @param out flux de sortie, fermé par la destination
+     * @param nbRows nombre de lignes du jeu de données comparé, ou
+     * {@link #UNKNOWN_ROW_COUNT}
+     * @param shard numéro du lot, de 0 à <code>shardCount - 1</code>
+     * @param shardCount nombre de lots
+     */
+    BinaryResultSink(@NonNull OutputStream out, int nbRows, int shard, int shardCount) {
+        if (nbRows < UNKNOWN_ROW_COUNT || shardCount < 1 || shard < 0 || shard >= shardCount) {
+            throw new IllegalArgumentException(String.format("invalid binary result header: %d rows, shard %d/%d", nbRows, shard, shardCount));
+        }
+        this.nbRows = nbRows;
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        this.shard = shard;
+        this.shardCount = shardCount;
+    }
+
+    @Override
+    public void begin() throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.writeInt(nbRows);
+        out.writeInt(shard);
+        out.writeInt(shardCount);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    @Override
+    public void end() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void handle(int row1, int row2, double similarity) throws IOException {
+        out.writeInt(row1);
+        out.writeInt(row2);
+        out.writeFloat((float) similarity);
+    }
+}
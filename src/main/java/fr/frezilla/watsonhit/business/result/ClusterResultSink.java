@@ -0,0 +1,54 @@
+package fr.frezilla.watsonhit.business.result;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.RowSource;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Base des destinations qui écrivent des groupes de lignes similaires au lieu
+ * des paires.
+ * <p>
+ * Les paires reçues alimentent les groupes au fil de la comparaison ; les
+ * groupes d'au moins deux lignes sont écrits à la fin du traitement, dans
+ * l'ordre de leur première ligne, avec les taux minimal et maximal de leurs
+ * paires.
+ */
+abstract class ClusterResultSink extends TextResultSink {
+
+    private final DuplicateClusters clusters;
+
+    ClusterResultSink(OutputStream out, CsvDescription csvDescription, RowSource rows, int nbRows) {
+        super(out, csvDescription, rows);
+        this.clusters = new DuplicateClusters(nbRows);
+    }
+
+    @Override
+    public void handle(int row1, int row2, double similarity) throws IOException {
+        clusters.add(row1, row2, similarity);
+    }
+
+    /**
+     * Ecrit un groupe.
+     *
+     * @param cluster numéro du groupe, à partir de 0
+     * @param members index des lignes : celles du groupe sont entre
+     * <code>from</code> (inclus) et <code>to</code> (exclus), dans l'ordre
+     * croissant
+     * @param from
+     * @param to
+     * @param minSimilarity taux minimal des paires du groupe
+     * @param maxSimilarity taux maximal des paires du groupe
+     * @throws IOException
+     */
+    protected abstract void writeCluster(int cluster, int[] members, int from, int to, double minSimilarity, double maxSimilarity) throws IOException;
+
+    /**
+     * Ecrit tous les groupes.
+     *
+     * @throws IOException
+     */
+    protected void writeClusters() throws IOException {
+        clusters.forEachCluster(this::writeCluster);
+    }
+}
@@ -0,0 +1,65 @@
+package fr.frezilla.watsonhit.business.result;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.RowSource;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Ecrit les groupes de lignes similaires dans un fichier csv.
+ * <p>
+ * La 1ère ligne contient {@code groupe}, {@code taille}, {@code taux_min},
+ * {@code taux_max} puis les noms des colonnes affichées ; chaque ligne d'un
+ * groupe est ensuite écrite sur une ligne, précédée du numéro, de la taille et
+ * des taux du groupe.
+ */
+final class CsvClusterResultSink extends ClusterResultSink {
+
+    private final String delimiter;
+
+    CsvClusterResultSink(OutputStream out, CsvDescription csvDescription, RowSource rows, String delimiter, int nbRows) {
+        super(out, csvDescription, rows, nbRows);
+        this.delimiter = delimiter;
+    }
+
+    @Override
+    public void begin() throws IOException {
+        writer.write("groupe");
+        writer.write(delimiter);
+        writer.write("taille");
+        writer.write(delimiter);
+        writer.write("taux_min");
+        writer.write(delimiter);
+        writer.write("taux_max");
+        for (String name : names) {
+            writer.write(delimiter);
+            writeCsvValue(name, delimiter);
+        }
+        writer.write('\n');
+    }
+
+    @Override
+    public void end() throws IOException {
+        writeClusters();
+        writer.flush();
+    }
+
+    @Override
+    protected void writeCluster(int cluster, int[] members, int from, int to, double minSimilarity, double maxSimilarity) throws IOException {
+        for (int m = from; m < to; m++) {
+            writer.write(Integer.toString(cluster + 1));
+            writer.write(delimiter);
+            writer.write(Integer.toString(to - from));
+            writer.write(delimiter);
+            writeScore(minSimilarity, '.');
+            writer.write(delimiter);
+            writeScore(maxSimilarity, '.');
+            String[] values = rows.getRawRow(members[m]);
+            for (int column : columns) {
+                writer.write(delimiter);
+                writeCsvValue(values[column], delimiter);
+            }
+            writer.write('\n');
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package fr.frezilla.watsonhit.business.result;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.RowSource;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Ecrit les paires de lignes similaires dans un fichier csv.
+ * <p>
+ * La 1ère ligne contient les noms des colonnes affichées suffixés par
+ * {@code _1} et {@code _2}, puis {@code taux}. Les valeurs qui contiennent le
+ * délimiteur, un guillemet ou une fin de ligne sont entourées de guillemets ;
+ * le taux est écrit avec deux décimales et un point.
+ */
+final class CsvResultSink extends TextResultSink {
+
+    private final String delimiter;
+
+    CsvResultSink(OutputStream out, CsvDescription csvDescription, RowSource rows, String delimiter) {
+        super(out, csvDescription, rows);
+        this.delimiter = delimiter;
+    }
+
+    @Override
+    public void begin() throws IOException {
+        for (String name : names) {
+            writeValue(name + "_1");
+            writer.write(delimiter);
+        }
+        for (String name : names) {
+            writeValue(name + "_2");
+            writer.write(delimiter);
+        }
+        writer.write("taux\n");
+    }
+
+    @Override
+    public void end() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void handle(int row1, int row2, double similarity) throws IOException {
+        writeColumns(rows.getRawRow(row1));
+        writeColumns(rows.getRawRow(row2));
+        writeScore(similarity, '.');
+        writer.write('\n');
+    }
+
+    private void writeColumns(String[] values) throws IOException {
+        for (int column : columns) {
+            writeValue(values[column]);
+            writer.write(delimiter);
+        }
+    }
+
+    private void writeValue(String value) throws IOException {
+        writeCsvValue(value, delimiter);
+    }
+}
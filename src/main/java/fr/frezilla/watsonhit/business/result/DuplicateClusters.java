@@ -0,0 +1,167 @@
+package fr.frezilla.watsonhit.business.result;
+
+import java.io.IOException;
+import java.util.Arrays;
+import lombok.NonNull;
+
+/**
+ * Groupes de lignes similaires : composantes connexes du graphe des paires de
+ * lignes similaires.
+ * <p>
+ * Les paires sont ajoutées au fil de la comparaison dans une structure
+ * union-find (union par taille, compression de chemin) stockée dans des
+ * tableaux de types primitifs : la mémoire utilisée dépend du nombre de lignes
+ * et non du nombre de paires. Les taux minimal et maximal des paires internes
+ * sont tenus à jour pour chaque groupe.
+ * <p>
+ * La structure n'est pas thread-safe.
+ */
+final class DuplicateClusters {
+
+    /**
+     * Traitement d'un groupe de lignes.
+     */
+    @FunctionalInterface
+    interface ClusterHandler {
+
+        /**
+         * Traite un groupe.
+         *
+         * @param cluster numéro du groupe, à partir de 0
+         * @param members index des lignes : celles du groupe sont entre
+         * <code>from</code> (inclus) et <code>to</code> (exclus), dans l'ordre
+         * croissant
+         * @param from
+         * @param to
+         * @param minSimilarity taux minimal des paires du groupe
+         * @param maxSimilarity taux maximal des paires du groupe
+         * @throws IOException
+         */
+        void handle(int cluster, int[] members, int from, int to, double minSimilarity, double maxSimilarity) throws IOException;
+    }
+
+    /**
+     * Taux maximal des paires de chaque groupe, renseigné pour les racines.
+     */
+    private final double[] maxSimilarities;
+
+    /**
+     * Taux minimal des paires de chaque groupe, renseigné pour les racines.
+     */
+    private final double[] minSimilarities;
+
+    /**
+     * Parent de chaque ligne, une racine étant son propre parent.
+     */
+    private final int[] parents;
+
+    /**
+     * Nombre de lignes de chaque groupe, renseigné pour les racines.
+     */
+    private final int[] sizes;
+
+    /**
+     * Constructeur
+     *
+     * @param nbRows nombre de lignes
+     */
+    DuplicateClusters(int nbRows) {
+        this.maxSimilarities = new double[nbRows];
+        this.minSimilarities = new double[nbRows];
+        this.parents = new int[nbRows];
+        this.sizes = new int[nbRows];
+        Arrays.fill(maxSimilarities, Double.NEGATIVE_INFINITY);
+        Arrays.fill(minSimilarities, Double.POSITIVE_INFINITY);
+        Arrays.fill(sizes, 1);
+        for (int row = 0; row < nbRows; row++) {
+            parents[row] = row;
+        }
+    }
+
+    /**
+     * Ajoute une paire de lignes similaires : les groupes des deux lignes sont
+     * réunis.
+     *
+     * @param row1
+     * @param row2
+     * @param similarity taux de la paire
+     */
+    void add(int row1, int row2, double similarity) {
+        int root1 = find(row1);
+        int root2 = find(row2);
+        if (root1 != root2) {
+            if (sizes[root1] < sizes[root2]) {
+                int root = root1;
+                root1 = root2;
+                root2 = root;
+            }
+            parents[root2] = root1;
+            sizes[root1] += sizes[root2];
+            minSimilarities[root1] = Math.min(minSimilarities[root1], minSimilarities[root2]);
+            maxSimilarities[root1] = Math.max(maxSimilarities[root1], maxSimilarities[root2]);
+        }
+        minSimilarities[root1] = Math.min(minSimilarities[root1], similarity);
+        maxSimilarities[root1] = Math.max(maxSimilarities[root1], similarity);
+    }
+
+    /**
+     * Retourne la racine du groupe d'une ligne et rattache directement à
+     * cette racine les lignes du chemin parcouru.
+     *
+     * @param row
+     * @return
+     */
+    private int find(int row) {
+        int root = row;
+        while (parents[root] != root) {
+            root = parents[root];
+        }
+        while (parents[row] != root) {
+            int parent = parents[row];
+            parents[row] = root;
+            row = parent;
+        }
+        return root;
+    }
+
+    /**
+     * Parcourt les groupes d'au moins deux lignes, dans l'ordre de leur
+     * première ligne.
+     *
+     * @param handler
+     * @throws IOException
+     */
+    void forEachCluster(@NonNull ClusterHandler handler) throws IOException {
+        final int nbRows = parents.length;
+
+        // Position de chaque groupe dans le tableau des membres, attribuée
+        // à la première ligne rencontrée du groupe ; après ce parcours chaque
+        // ligne est directement rattachée à sa racine
+        final int[] positions = new int[nbRows];
+        final int[] roots = new int[nbRows / 2];
+        Arrays.fill(positions, -1);
+        int nbMembers = 0;
+        int nbClusters = 0;
+        for (int row = 0; row < nbRows; row++) {
+            int root = find(row);
+            if (sizes[root] > 1 && positions[root] < 0) {
+                positions[root] = nbMembers;
+                roots[nbClusters++] = root;
+                nbMembers += sizes[root];
+            }
+        }
+
+        final int[] members = new int[nbMembers];
+        for (int row = 0; row < nbRows; row++) {
+            int root = parents[row];
+            if (sizes[root] > 1) {
+                members[positions[root]++] = row;
+            }
+        }
+
+        for (int cluster = 0; cluster < nbClusters; cluster++) {
+            int root = roots[cluster];
+            handler.handle(cluster, members, positions[root] - sizes[root], positions[root], minSimilarities[root], maxSimilarities[root]);
+        }
+    }
+}
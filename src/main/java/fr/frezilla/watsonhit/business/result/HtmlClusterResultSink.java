@@ -0,0 +1,78 @@
+package fr.frezilla.watsonhit.business.result;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.RowSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Ecrit les groupes de lignes similaires dans un tableau HTML.
+ * <p>
+ * Chaque ligne d'un groupe occupe une ligne du tableau avec les colonnes
+ * affichées ; le numéro, la taille et les taux minimal et maximal du groupe
+ * sont affichés une seule fois, sur sa première ligne.
+ */
+final class HtmlClusterResultSink extends ClusterResultSink {
+
+    private final char decimalSeparator;
+
+    HtmlClusterResultSink(OutputStream out, CsvDescription csvDescription, RowSource rows, int nbRows) {
+        super(out, csvDescription, rows, nbRows);
+        this.decimalSeparator = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator();
+    }
+
+    @Override
+    public void begin() throws IOException {
+        HtmlResultSink.writeHead(writer, "Groupes de lignes similaires");
+        writer.write("<th>Groupe</th><th>Taille</th><th>Taux&nbsp;min</th><th>Taux&nbsp;max</th>");
+        for (String name : names) {
+            writer.write("<th>");
+            writer.write(name);
+            writer.write("</th>");
+        }
+        writer.write("</tr>");
+    }
+
+    @Override
+    public void end() throws IOException {
+        writeClusters();
+        HtmlResultSink.writeFoot(writer);
+    }
+
+    @Override
+    protected void writeCluster(int cluster, int[] members, int from, int to, double minSimilarity, double maxSimilarity) throws IOException {
+        for (int m = from; m < to; m++) {
+            if (m == from) {
+                String rowSpan = Integer.toString(to - from);
+                writer.write("<tr><td rowspan=\"");
+                writer.write(rowSpan);
+                writer.write("\">");
+                writer.write(Integer.toString(cluster + 1));
+                writer.write("</td><td rowspan=\"");
+                writer.write(rowSpan);
+                writer.write("\">");
+                writer.write(rowSpan);
+                writer.write("</td><td rowspan=\"");
+                writer.write(rowSpan);
+                writer.write("\">");
+                writeScore(minSimilarity, decimalSeparator);
+                writer.write("</td><td rowspan=\"");
+                writer.write(rowSpan);
+                writer.write("\">");
+                writeScore(maxSimilarity, decimalSeparator);
+                writer.write("</td>");
+            } else {
+                writer.write("<tr>");
+            }
+            String[] values = rows.getRawRow(members[m]);
+            for (int column : columns) {
+                writer.write("<td>");
+                writer.write(String.valueOf(values[column]));
+                writer.write("</td>");
+            }
+            writer.write("</tr>");
+        }
+    }
+}
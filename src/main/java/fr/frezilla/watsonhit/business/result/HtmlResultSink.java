@@ -0,0 +1,120 @@
+package fr.frezilla.watsonhit.business.result;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.RowSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.text.DecimalFormatSymbols;
+import java.util.Date;
+import java.util.Locale;
+import org.apache.commons.lang3.time.DateFormatUtils;
+
+/**
+ * Ecrit les paires de lignes similaires dans un tableau HTML.
+ * <p>
+ * Chaque ligne du tableau contient les colonnes affichées de la 1ère ligne,
+ * celles de la 2ème ligne et le taux avec deux décimales. Les valeurs sont
+ * écrites directement dans le flux, sans chaine intermédiaire.
+ */
+final class HtmlResultSink extends TextResultSink {
+
+    /**
+     * Ecrit le début du document HTML jusqu'à la ligne d'en-tête du tableau,
+     * ouverte.
+     *
+     * @param writer
+     * @param title titre du document
+     * @throws IOException
+     */
+    static void writeHead(Writer writer, String title) throws IOException {
+        writer.write("<!DOCTYPE html>"
+                + "<html>"
+                + "<head>"
+                + "<meta name=\"viewport\" content=\"width=device-width, initial-scale=1\">"
+                + "<style>"
+                + "table {"
+                + "border-collapse: collapse;"
+                + "border-spacing: 0;"
+                + "width: 100%;"
+                + "border: 1px solid #ddd;"
+                + "}"
+                + " "
+                + "th, td {"
+                + "text-align: left;"
+                + "padding: 8px;"
+                + "}"
+                + " "
+                + "tr:nth-child(even){background-color: #f2f2f2}"
+                + "</style>"
+                + "</head>"
+                + "<body>"
+                + " "
+                + "<h2>");
+        writer.write(title);
+        writer.write("</h2>"
+                + " "
+                + "<div style=\"overflow-x:auto;\">"
+                + "<table>"
+                + "<tr>");
+    }
+
+    /**
+     * Ecrit la fin du document HTML et vide les tampons.
+     *
+     * @param writer
+     * @throws IOException
+     */
+    static void writeFoot(Writer writer) throws IOException {
+        writer.write("</table></div><p>Document généré le ");
+        writer.write(DateFormatUtils.format(new Date(), "dd/MM/yyyy à HH:mm:ss"));
+        writer.write("</p></body>");
+        writer.flush();
+    }
+
+    private final char decimalSeparator;
+
+    HtmlResultSink(OutputStream out, CsvDescription csvDescription, RowSource rows) {
+        super(out, csvDescription, rows);
+        this.decimalSeparator = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator();
+    }
+
+    @Override
+    public void begin() throws IOException {
+        writeHead(writer, "Résultat de la recherche lignes similaires");
+        for (String name : names) {
+            writer.write("<th>");
+            writer.write(name);
+            writer.write("&nbsp;<small>(1)</small></th>");
+        }
+        for (String name : names) {
+            writer.write("<th>");
+            writer.write(name);
+            writer.write("&nbsp;<small>(2)</small></th>");
+        }
+        writer.write("<th>Taux</th></tr>");
+    }
+
+    @Override
+    public void end() throws IOException {
+        writeFoot(writer);
+    }
+
+    @Override
+    public void handle(int row1, int row2, double similarity) throws IOException {
+        writer.write("<tr>");
+        writeColumns(rows.getRawRow(row1));
+        writeColumns(rows.getRawRow(row2));
+        writer.write("<td>");
+        writeScore(similarity, decimalSeparator);
+        writer.write("</td></tr>");
+    }
+
+    private void writeColumns(String[] values) throws IOException {
+        for (int column : columns) {
+            writer.write("<td>");
+            writer.write(String.valueOf(values[column]));
+            writer.write("</td>");
+        }
+    }
+}
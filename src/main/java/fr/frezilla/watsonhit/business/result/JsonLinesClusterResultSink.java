@@ -0,0 +1,71 @@
+package fr.frezilla.watsonhit.business.result;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.RowSource;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Ecrit les groupes de lignes similaires au format JSON Lines.
+ * <p>
+ * Chaque groupe est un objet JSON sur une ligne :
+ * <pre>
+ * {"cluster":1,"size":2,"minSimilarity":81.20,"maxSimilarity":81.20,"rows":[0,12],"members":[{"id":"1",...},{"id":"13",...}]}
+ * </pre>
+ * {@code rows} contient les index des lignes dans le fichier csv (à partir de
+ * 0) ; les objets de {@code members} contiennent les colonnes affichées.
+ */
+final class JsonLinesClusterResultSink extends ClusterResultSink {
+
+    JsonLinesClusterResultSink(OutputStream out, CsvDescription csvDescription, RowSource rows, int nbRows) {
+        super(out, csvDescription, rows, nbRows);
+    }
+
+    @Override
+    public void begin() throws IOException {
+        // Pas d'en-tête : chaque ligne est autonome
+    }
+
+    @Override
+    public void end() throws IOException {
+        writeClusters();
+        writer.flush();
+    }
+
+    @Override
+    protected void writeCluster(int cluster, int[] members, int from, int to, double minSimilarity, double maxSimilarity) throws IOException {
+        writer.write("{\"cluster\":");
+        writer.write(Integer.toString(cluster + 1));
+        writer.write(",\"size\":");
+        writer.write(Integer.toString(to - from));
+        writer.write(",\"minSimilarity\":");
+        writeScore(minSimilarity, '.');
+        writer.write(",\"maxSimilarity\":");
+        writeScore(maxSimilarity, '.');
+        writer.write(",\"rows\":[");
+        for (int m = from; m < to; m++) {
+            if (m > from) {
+                writer.write(',');
+            }
+            writer.write(Integer.toString(members[m]));
+        }
+        writer.write("],\"members\":[");
+        for (int m = from; m < to; m++) {
+            if (m > from) {
+                writer.write(',');
+            }
+            String[] values = rows.getRawRow(members[m]);
+            writer.write('{');
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeJsonString(names[i]);
+                writer.write(':');
+                writeJsonString(values[columns[i]]);
+            }
+            writer.write('}');
+        }
+        writer.write("]}\n");
+    }
+}
@@ -0,0 +1,62 @@
+package fr.frezilla.watsonhit.business.result;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.RowSource;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Ecrit les paires de lignes similaires au format JSON Lines.
+ * <p>
+ * Chaque paire est un objet JSON sur une ligne :
+ * <pre>
+ * {"row1":0,"row2":12,"similarity":87.53,"columns1":{"id":"1",...},"columns2":{"id":"13",...}}
+ * </pre>
+ * {@code row1} et {@code row2} sont les index des lignes dans le fichier csv
+ * (à partir de 0) ; les objets {@code columns1} et {@code columns2} contiennent
+ * les colonnes affichées.
+ */
+final class JsonLinesResultSink extends TextResultSink {
+
+    JsonLinesResultSink(OutputStream out, CsvDescription csvDescription, RowSource rows) {
+        super(out, csvDescription, rows);
+    }
+
+    @Override
+    public void begin() throws IOException {
+        // Pas d'en-tête : chaque ligne est autonome
+    }
+
+    @Override
+    public void end() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void handle(int row1, int row2, double similarity) throws IOException {
+        writer.write("{\"row1\":");
+        writer.write(Integer.toString(row1));
+        writer.write(",\"row2\":");
+        writer.write(Integer.toString(row2));
+        writer.write(",\"similarity\":");
+        writeScore(similarity, '.');
+        writer.write(",\"columns1\":");
+        writeColumns(rows.getRawRow(row1));
+        writer.write(",\"columns2\":");
+        writeColumns(rows.getRawRow(row2));
+        writer.write("}\n");
+    }
+
+    private void writeColumns(String[] values) throws IOException {
+        writer.write('{');
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeJsonString(names[i]);
+            writer.write(':');
+            writeJsonString(values[columns[i]]);
+        }
+        writer.write('}');
+    }
+}
@@ -0,0 +1,103 @@
+package fr.frezilla.watsonhit.business.result;
+
+import java.io.IOException;
+import lombok.NonNull;
+
+/**
+ * Destination qui fusionne les paires d'un résultat précédent avec les
+ * nouvelles paires.
+ * <p>
+ * Les paires du résultat précédent et les nouvelles paires sont toutes deux
+ * ordonnées par lignes croissantes : elles sont transmises à la destination
+ * finale dans ce même ordre, sans charger le résultat précédent en mémoire.
+ * Les paires du résultat précédent ne doivent concerner que les lignes
+ * d'index inférieur à <code>firstNewRow</code> et doivent être strictement
+ * croissantes ; le résultat précédent doit être complet, c'est-à-dire ne pas
+ * être le résultat d'un seul lot.
+ */
+public final class MergingResultSink implements ResultSink {
+
+    private final int firstNewRow;
+    private boolean hasPrevious;
+    private final BinaryResultReader previous;
+    private int previousRow1 = -1;
+    private int previousRow2 = -1;
+    private final ResultSink sink;
+
+    /**
+     * Constructeur
+     *
+     * @param sink destination finale, fermée avec cette destination
+     * @param previous résultat précédent, fermé avec cette destination, ou
+     * dès le constructeur si son en-tête ne correspond pas aux lignes
+     * précédentes
+     * @param firstNewRow index de la première nouvelle ligne
+     * @throws IOException si le résultat précédent est celui d'un lot ou
+     * s'il n'a pas été calculé sur <code>firstNewRow</code> lignes
+     */
+    public MergingResultSink(@NonNull ResultSink sink, @NonNull BinaryResultReader previous, int firstNewRow) throws IOException {
+        if (previous.getShardCount() != 1 || (previous.getNbRows() != BinaryResultSink.UNKNOWN_ROW_COUNT && previous.getNbRows() != firstNewRow)) {
+            previous.close();
+            throw new IOException(String.format("previous result of shard %d/%d computed from %d rows does not match the %d previous rows", previous.getShard() + 1, previous.getShardCount(), previous.getNbRows(), firstNewRow));
+        }
+        this.firstNewRow = firstNewRow;
+        this.previous = previous;
+        this.sink = sink;
+    }
+
+    @Override
+    public void begin() throws IOException {
+        sink.begin();
+        readPrevious();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            previous.close();
+        } finally {
+            sink.close();
+        }
+    }
+
+    @Override
+    public void end() throws IOException {
+        while (hasPrevious) {
+            sink.handle(previous.getRow1(), previous.getRow2(), previous.getSimilarity());
+            readPrevious();
+        }
+        sink.end();
+    }
+
+    @Override
+    public void handle(int row1, int row2, double similarity) throws IOException {
+        while (hasPrevious && (previous.getRow1() < row1 || (previous.getRow1() == row1 && previous.getRow2() < row2))) {
+            sink.handle(previous.getRow1(), previous.getRow2(), previous.getSimilarity());
+            readPrevious();
+        }
+        sink.handle(row1, row2, similarity);
+    }
+
+    /**
+     * Lit la paire suivante du résultat précédent et contrôle qu'elle ne
+     * concerne que des lignes du traitement précédent et qu'elle suit la
+     * paire lue précédemment.
+     *
+     * @throws IOException
+     */
+    private void readPrevious() throws IOException {
+        hasPrevious = previous.next();
+        if (hasPrevious) {
+            final int row1 = previous.getRow1();
+            final int row2 = previous.getRow2();
+            if (row1 < 0 || row2 <= row1 || row2 >= firstNewRow) {
+                throw new IOException(String.format("previous result pair (%d, %d) does not match the previous rows", row1, row2));
+            }
+            if (row1 < previousRow1 || (row1 == previousRow1 && row2 <= previousRow2)) {
+                throw new IOException(String.format("previous result pair (%d, %d) follows pair (%d, %d): the previous result is not sorted", row1, row2, previousRow1, previousRow2));
+            }
+            previousRow1 = row1;
+            previousRow2 = row2;
+        }
+    }
+}
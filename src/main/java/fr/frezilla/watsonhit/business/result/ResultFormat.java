@@ -0,0 +1,121 @@
+package fr.frezilla.watsonhit.business.result;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.RowSource;
+import java.io.OutputStream;
+import lombok.NonNull;
+
+/**
+ * Enumération des formats du fichier de résultat.
+ * <p>
+ * Les formats proposés sont :
+ * <ul>
+ *  <li>HTML : tableau des colonnes affichées des deux lignes et du taux,
+ *      destiné à être consulté dans un navigateur</li>
+ *  <li>CSV : mêmes colonnes que le tableau HTML, avec le délimiteur du
+ *      fichier csv traité</li>
+ *  <li>JSONL : un objet JSON par ligne avec les index des deux lignes, le taux
+ *      et les colonnes affichées</li>
+ *  <li>BINARY : enregistrements de taille fixe (index des deux lignes et taux)
+ *      décrits par {@link BinaryResultSink}</li>
+ * </ul>
+ * <p>
+ * Les formats HTML, CSV et JSONL peuvent aussi présenter les groupes de lignes
+ * similaires au lieu des paires.
+ */
+public enum ResultFormat {
+    HTML,
+    CSV,
+    JSONL,
+    BINARY;
+
+    /**
+     * Créé la destination des paires de lignes similaires dans ce format,
+     * pour un traitement non découpé en lots dont le nombre de lignes n'est
+     * pas connu au début du traitement.
+     *
+     * @param out flux de sortie, fermé par la destination
+     * @param csvDescription description du fichier csv
+     * @param rows lignes du fichier csv comparé
+     * @param csvDelimiter délimiteur du fichier csv traité
+     * @return
+     */
+    public ResultSink create(@NonNull OutputStream out, @NonNull CsvDescription csvDescription, @NonNull RowSource rows, @NonNull String csvDelimiter) {
+        return create(out, csvDescription, rows, BinaryResultSink.UNKNOWN_ROW_COUNT, 0, 1, csvDelimiter);
+    }
+
+    /**
+     * Créé la destination des paires de lignes similaires dans ce format.
+     * <p>
+     * Le nombre de lignes et le lot ne sont enregistrés que par le format
+     * BINARY, dans l'en-tête du fichier.
+     *
+     * @param out flux de sortie, fermé par la destination
+     * @param csvDescription description du fichier csv
+     * @param rows lignes du fichier csv comparé
+     * @param nbRows nombre de lignes du fichier csv comparé, ou
+     * {@link BinaryResultSink#UNKNOWN_ROW_COUNT}
+     * @param shard numéro du lot, de 0 à <code>shardCount - 1</code>
+     * @param shardCount nombre de lots, 1 pour un traitement non découpé
+     * @param csvDelimiter délimiteur du fichier csv traité
+     * @return
+     */
+    public ResultSink create(@NonNull OutputStream out, @NonNull CsvDescription csvDescription, @NonNull RowSource rows, int nbRows, int shard, int shardCount, @NonNull String csvDelimiter) {
+        ResultSink sink;
+        switch (this) {
+            case CSV:
+                sink = new CsvResultSink(out, csvDescription, rows, csvDelimiter);
+                break;
+            case JSONL:
+                sink = new JsonLinesResultSink(out, csvDescription, rows);
+                break;
+            case BINARY:
+                sink = new BinaryResultSink(out, nbRows, shard, shardCount);
+                break;
+            default:
+                sink = new HtmlResultSink(out, csvDescription, rows);
+                break;
+        }
+        return sink;
+    }
+
+    /**
+     * Indique si le format peut présenter les groupes de lignes similaires.
+     *
+     * @return
+     */
+    public boolean isClusterSupported() {
+        return this != BINARY;
+    }
+
+    /**
+     * Créé la destination qui écrit dans ce format les groupes de lignes
+     * similaires formés par les paires reçues.
+     *
+     * @param out flux de sortie, fermé par la destination
+     * @param csvDescription description du fichier csv
+     * @param rows lignes du fichier csv comparé
+     * @param nbRows nombre de lignes du fichier csv comparé
+     * @param csvDelimiter délimiteur du fichier csv traité
+     * @return
+     * @throws UnsupportedOperationException si le format ne peut pas présenter
+     * les groupes
+     */
+    public ResultSink createClusters(@NonNull OutputStream out, @NonNull CsvDescription csvDescription, @NonNull RowSource rows, int nbRows, @NonNull String csvDelimiter) {
+        ResultSink sink;
+        switch (this) {
+            case CSV:
+                sink = new CsvClusterResultSink(out, csvDescription, rows, csvDelimiter, nbRows);
+                break;
+            case JSONL:
+                sink = new JsonLinesClusterResultSink(out, csvDescription, rows, nbRows);
+                break;
+            case HTML:
+                sink = new HtmlClusterResultSink(out, csvDescription, rows, nbRows);
+                break;
+            default:
+                throw new UnsupportedOperationException(this + " does not support clusters");
+        }
+        return sink;
+    }
+}
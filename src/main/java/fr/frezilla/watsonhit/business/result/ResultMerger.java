@@ -0,0 +1,108 @@
+package fr.frezilla.watsonhit.business.result;
+
+import java.io.IOException;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+/**
+ * Fusion de fichiers de résultat au format binaire, par exemple les résultats
+ * des lots d'un traitement découpé en lots.
+ * <p>
+ * Chaque fichier doit être ordonné par lignes croissantes ; les paires sont
+ * transmises à la destination dans ce même ordre, sans charger les fichiers en
+ * mémoire. Les en-têtes des fichiers sont contrôlés avant la fusion : chaque
+ * lot d'un même découpage doit figurer une et une seule fois, et avoir été
+ * calculé sur le même nombre de lignes.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ResultMerger {
+
+    /**
+     * Fusionne des résultats binaires et transmet leurs paires à une
+     * destination.
+     * <p>
+     * Les appels à {@link ResultSink#begin()} et {@link ResultSink#end()}
+     * restent à la charge de l'appelant.
+     *
+     * @param readers résultats à fusionner
+     * @param nbRows nombre de lignes du jeu de données
+     * @param sink destination des paires
+     * @throws IOException si un lot manque, figure plusieurs fois ou provient
+     * d'un autre découpage ou d'un autre jeu de données, si un résultat n'est
+     * pas ordonné par lignes croissantes, si une paire figure dans plusieurs
+     * résultats ou si une ligne n'appartient pas au jeu de données
+     */
+    public static void merge(@NonNull List<BinaryResultReader> readers, int nbRows, @NonNull ResultSink sink) throws IOException {
+        checkShards(readers, nbRows);
+
+        final int nbReaders = readers.size();
+        final boolean[] hasNext = new boolean[nbReaders];
+        for (int r = 0; r < nbReaders; r++) {
+            hasNext[r] = readers.get(r).next();
+        }
+
+        int lastRow1 = -1;
+        int lastRow2 = -1;
+        while (true) {
+            // Le nombre de résultats est faible : la plus petite paire est
+            // recherchée par un simple parcours
+            BinaryResultReader min = null;
+            int minIndex = -1;
+            for (int r = 0; r < nbReaders; r++) {
+                BinaryResultReader reader = readers.get(r);
+                if (hasNext[r] && (min == null || reader.getRow1() < min.getRow1() || (reader.getRow1() == min.getRow1() && reader.getRow2() < min.getRow2()))) {
+                    min = reader;
+                    minIndex = r;
+                }
+            }
+            if (min == null) {
+                return;
+            }
+            if (min.getRow1() < lastRow1 || (min.getRow1() == lastRow1 && min.getRow2() <= lastRow2)) {
+                throw new IOException(String.format("result pair (%d, %d) is out of order or duplicated", min.getRow1(), min.getRow2()));
+            }
+            if (min.getRow1() < 0 || min.getRow2() >= nbRows || min.getRow1() >= min.getRow2()) {
+                throw new IOException(String.format("result pair (%d, %d) does not belong to the data set of %d rows: the result files were not computed from this csv file", min.getRow1(), min.getRow2(), nbRows));
+            }
+            lastRow1 = min.getRow1();
+            lastRow2 = min.getRow2();
+            sink.handle(lastRow1, lastRow2, min.getSimilarity());
+            hasNext[minIndex] = min.next();
+        }
+    }
+
+    /**
+     * Contrôle que les résultats forment exactement les lots d'un même
+     * découpage du jeu de données.
+     *
+     * @param readers résultats à fusionner
+     * @param nbRows nombre de lignes du jeu de données
+     * @throws IOException
+     */
+    private static void checkShards(List<BinaryResultReader> readers, int nbRows) throws IOException {
+        if (readers.isEmpty()) {
+            return;
+        }
+        final int shardCount = readers.get(0).getShardCount();
+        final boolean[] shards = new boolean[shardCount];
+        for (BinaryResultReader reader : readers) {
+            if (reader.getShardCount() != shardCount) {
+                throw new IOException(String.format("shard %d/%d does not belong to a split in %d shards", reader.getShard() + 1, reader.getShardCount(), shardCount));
+            }
+            if (reader.getNbRows() != BinaryResultSink.UNKNOWN_ROW_COUNT && reader.getNbRows() != nbRows) {
+                throw new IOException(String.format("shard %d/%d was computed from %d rows, not %d: the result files were not computed from this csv file", reader.getShard() + 1, shardCount, reader.getNbRows(), nbRows));
+            }
+            if (shards[reader.getShard()]) {
+                throw new IOException(String.format("shard %d/%d is duplicated", reader.getShard() + 1, shardCount));
+            }
+            shards[reader.getShard()] = true;
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (!shards[shard]) {
+                throw new IOException(String.format("shard %d/%d is missing", shard + 1, shardCount));
+            }
+        }
+    }
+}
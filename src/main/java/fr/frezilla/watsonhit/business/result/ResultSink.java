@@ -0,0 +1,30 @@
+package fr.frezilla.watsonhit.business.result;
+
+import fr.frezilla.watsonhit.business.engine.MatchHandler;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination des paires de lignes similaires.
+ * <p>
+ * Le traitement appelle {@link #begin()} avant la première paire,
+ * {@link #handle(int, int, double)} pour chaque paire puis {@link #end()}
+ * après la dernière ; {@link #close()} libère le flux de sortie dans tous les
+ * cas.
+ */
+public interface ResultSink extends MatchHandler, Closeable {
+
+    /**
+     * Ecrit l'en-tête du résultat.
+     *
+     * @throws IOException
+     */
+    void begin() throws IOException;
+
+    /**
+     * Ecrit la fin du résultat et vide les tampons.
+     *
+     * @throws IOException
+     */
+    void end() throws IOException;
+}
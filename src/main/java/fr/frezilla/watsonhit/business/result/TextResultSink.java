@@ -0,0 +1,164 @@
+package fr.frezilla.watsonhit.business.result;
+
+import fr.frezilla.watsonhit.business.csv.CsvColumnDescription;
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.RowSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import lombok.NonNull;
+
+/**
+ * Base des destinations textuelles : colonnes affichées (colonnes
+ * "identifiant" et colonnes marquées comme affichées) et écriture du taux sans
+ * allocation.
+ * <p>
+ * Le texte est écrit avec le jeu de caractères par défaut de la plateforme,
+ * comme le fichier csv est lu.
+ */
+abstract class TextResultSink implements ResultSink {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Ecart à la demi-unité en deçà duquel l'arrondi est délégué à
+     * {@link BigDecimal}.
+     */
+    private static final double TIE_MARGIN = 1e-6;
+
+    /**
+     * Arrondit un taux au centième, à partir de sa représentation décimale la
+     * plus courte et au demi supérieur (arrondi de {@code String.format("%.2f")}).
+     *
+     * @param similarity taux positif
+     * @return Taux en centièmes
+     */
+    static long roundHundredths(double similarity) {
+        double scaled = similarity * 100.0;
+        if (Math.abs(scaled - Math.floor(scaled) - 0.5) > TIE_MARGIN) {
+            return (long) Math.floor(scaled + 0.5);
+        }
+        return new BigDecimal(Double.toString(similarity)).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    /**
+     * Index des colonnes affichées.
+     */
+    protected final int[] columns;
+
+    /**
+     * Noms des colonnes affichées.
+     */
+    protected final String[] names;
+
+    /**
+     * Lignes du fichier csv, accessibles par leur index.
+     */
+    protected final RowSource rows;
+
+    private final char[] scoreBuffer;
+    protected final Writer writer;
+
+    TextResultSink(@NonNull OutputStream out, @NonNull CsvDescription csvDescription, @NonNull RowSource rows) {
+        List<CsvColumnDescription> columnsDescriptions = csvDescription.getColumnsDescription();
+        this.columns = columnsDescriptions.stream()
+                .filter(d -> d.isId() || d.isDisplayed())
+                .mapToInt(d -> csvDescription.getColumnIndex(d.getName()))
+                .toArray();
+        this.names = columnsDescriptions.stream()
+                .filter(d -> d.isId() || d.isDisplayed())
+                .map(CsvColumnDescription::getName)
+                .toArray(String[]::new);
+        this.rows = rows;
+        this.scoreBuffer = new char[24];
+        this.writer = new BufferedWriter(new OutputStreamWriter(out), 1 << 16);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Ecrit une valeur csv : les valeurs qui contiennent le délimiteur, un
+     * guillemet ou une fin de ligne sont entourées de guillemets, une valeur
+     * {@code null} n'est pas écrite.
+     *
+     * @param value
+     * @param delimiter délimiteur csv
+     * @throws IOException
+     */
+    protected void writeCsvValue(String value, @NonNull String delimiter) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.contains(delimiter) || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    writer.write('"');
+                }
+                writer.write(c);
+            }
+            writer.write('"');
+        } else {
+            writer.write(value);
+        }
+    }
+
+    /**
+     * Ecrit une chaine JSON, {@code null} si la valeur est {@code null}.
+     *
+     * @param value
+     * @throws IOException
+     */
+    protected void writeJsonString(String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write("\\u00");
+                writer.write(HEX[c >> 4]);
+                writer.write(HEX[c & 0xf]);
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+    /**
+     * Ecrit un taux avec deux décimales.
+     *
+     * @param similarity taux entre 0 et 100
+     * @param decimalSeparator séparateur décimal
+     * @throws IOException
+     */
+    protected void writeScore(double similarity, char decimalSeparator) throws IOException {
+        long hundredths = roundHundredths(similarity);
+        int position = scoreBuffer.length;
+        int fraction = (int) (hundredths % 100);
+        long integer = hundredths / 100;
+        scoreBuffer[--position] = (char) ('0' + fraction % 10);
+        scoreBuffer[--position] = (char) ('0' + fraction / 10);
+        scoreBuffer[--position] = decimalSeparator;
+        do {
+            scoreBuffer[--position] = (char) ('0' + integer % 10);
+            integer /= 10;
+        } while (integer > 0);
+        writer.write(scoreBuffer, position, scoreBuffer.length - position);
+    }
+}
@@ -0,0 +1,186 @@
+package fr.frezilla.watsonhit.business.similarity;
+
+import lombok.NonNull;
+
+/**
+ * Mesure la similarité de deux chaines de caractères en appliquant la méthode
+ * du calcul de la distance de Levenshtein, calculée par vecteurs de bits.
+ * <p>
+ * Lorsque la plus courte des deux chaines compte au plus 64 caractères, la
+ * distance est calculée par l'algorithme de Myers (dans la formulation de
+ * Hyyrö pour la distance d'édition) : une colonne de la matrice des distances
+ * tient dans un entier long et est mise à jour en quelques opérations
+ * logiques par caractère de l'autre chaine. Au delà de 64 caractères, le
+ * calcul est délégué à {@link Levenshtein}.
+ * <p>
+ * Le résultat est identique à celui de {@link Levenshtein}.
+ * <p>
+ * Source : {@linkplain https://doi.org/10.1145/316542.316550}
+ */
+final class BitParallelLevenshtein implements SimilarityAlgorithm {
+
+    private static final int MAX_PATTERN_LENGTH = Long.SIZE;
+
+    private static final ThreadLocal<PatternMasks> MASKS = ThreadLocal.withInitial(PatternMasks::new);
+
+    /**
+     * Calcule le taux de similarité correspondant à une distance.
+     *
+     * @param distance
+     * @param maxLength longueur de la plus longue des deux chaines
+     * @return
+     */
+    private static double hitRate(int distance, int maxLength) {
+        return 1.0 - ((double) distance / maxLength);
+    }
+
+    private final Levenshtein fallback;
+
+    /**
+     * Constructeur
+     */
+    public BitParallelLevenshtein() {
+        fallback = new Levenshtein();
+    }
+
+    /**
+     * Calcule la distance de Levenshtein entre un motif d'au plus 64
+     * caractères et un texte si celle-ci ne dépasse pas une distance maximale.
+     *
+     * @param pattern chaine la plus courte
+     * @param text chaine la plus longue
+     * @param maxDistance distance maximale recherchée
+     * @return Distance, ou une valeur supérieure à maxDistance si la distance
+     * dépasse maxDistance
+     */
+    private int calculate(String pattern, String text, int maxDistance) {
+        final int patternLength = pattern.length();
+        final int textLength = text.length();
+
+        PatternMasks masks = MASKS.get();
+        masks.set(pattern);
+        try {
+            final long lastBit = 1L << (patternLength - 1);
+            long pv = -1L;
+            long mv = 0L;
+            int distance = patternLength;
+
+            for (int j = 0; j < textLength; j++) {
+                long eq = masks.get(text.charAt(j));
+                long xv = eq | mv;
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+                if ((ph & lastBit) != 0) {
+                    distance++;
+                } else if ((mh & lastBit) != 0) {
+                    distance--;
+                }
+                // Chaque caractère restant du texte diminue la distance de 1
+                // au plus.
+                if (distance - (textLength - 1 - j) > maxDistance) {
+                    return maxDistance + 1;
+                }
+                ph = (ph << 1) | 1L;
+                mh = mh << 1;
+                pv = mh | ~(xv | ph);
+                mv = ph & xv;
+            }
+            return distance;
+        } finally {
+            masks.clear(pattern);
+        }
+    }
+
+    @Override
+    public double getHitRate(@NonNull String s1, @NonNull String s2) {
+        return getHitRate(s1, s2, 0.0);
+    }
+
+    @Override
+    public double getHitRate(@NonNull String s1, @NonNull String s2, double minHitRate) {
+        final String pattern = (s1.length() <= s2.length()) ? s1 : s2;
+        final String text = (s1.length() <= s2.length()) ? s2 : s1;
+        final int maxLength = text.length();
+
+        if (pattern.length() > MAX_PATTERN_LENGTH) {
+            return fallback.getHitRate(s1, s2, minHitRate);
+        }
+
+        double hitRate;
+
+        if (maxLength == 0) {
+            hitRate = 1.0;
+        } else if (pattern.isEmpty()) {
+            hitRate = 0.0;
+        } else {
+            int maxDistance = Levenshtein.maxDistance(maxLength, Math.min(1.0, minHitRate));
+            if (maxLength - pattern.length() > maxDistance) {
+                hitRate = hitRate(maxDistance + 1, maxLength);
+            } else {
+                hitRate = hitRate(Math.min(calculate(pattern, text, maxDistance), maxDistance + 1), maxLength);
+            }
+        }
+
+        return hitRate;
+    }
+
+    /**
+     * Masques de bits des positions de chaque caractère du motif, propres à un
+     * thread.
+     * <p>
+     * Les caractères inférieurs à 256 sont indexés directement ; les autres
+     * sont recherchés dans une petite table contenant au plus 64 entrées.
+     */
+    private static final class PatternMasks {
+
+        private final long[] latinMasks = new long[256];
+        private final char[] otherChars = new char[MAX_PATTERN_LENGTH];
+        private final long[] otherMasks = new long[MAX_PATTERN_LENGTH];
+        private int otherSize = 0;
+
+        void clear(String pattern) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c < latinMasks.length) {
+                    latinMasks[c] = 0L;
+                }
+            }
+            otherSize = 0;
+        }
+
+        long get(char c) {
+            if (c < latinMasks.length) {
+                return latinMasks[c];
+            }
+            for (int i = 0; i < otherSize; i++) {
+                if (otherChars[i] == c) {
+                    return otherMasks[i];
+                }
+            }
+            return 0L;
+        }
+
+        void set(String pattern) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                long bit = 1L << i;
+                if (c < latinMasks.length) {
+                    latinMasks[c] |= bit;
+                } else {
+                    int index = 0;
+                    while (index < otherSize && otherChars[index] != c) {
+                        index++;
+                    }
+                    if (index == otherSize) {
+                        otherChars[otherSize] = c;
+                        otherMasks[otherSize] = 0L;
+                        otherSize++;
+                    }
+                    otherMasks[index] |= bit;
+                }
+            }
+        }
+    }
+
+}
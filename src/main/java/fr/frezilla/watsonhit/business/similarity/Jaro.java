@@ -1,7 +1,6 @@
 package fr.frezilla.watsonhit.business.similarity;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 
@@ -12,11 +11,17 @@ import lombok.NonNull;
  * Le résultat est normalisé de façon à avoir une mesure entre 0 (chaines
  * différentes) et 1 (chaines égales).
  * <p>
+ * Les tableaux de travail sont propres à chaque thread et réutilisés d'un
+ * appel à l'autre : le calcul n'alloue pas de mémoire une fois les tableaux
+ * dimensionnés à la plus longue chaine rencontrée.
+ * <p>
  * Source {@linkplain https://fr.wikipedia.org/wiki/Distance_de_Jaro-Winkler
  */
 @NoArgsConstructor
 final class Jaro implements SimilarityAlgorithm {
 
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
     /**
      * Calcule la distance de Jaro.
      *
@@ -30,30 +35,19 @@ final class Jaro implements SimilarityAlgorithm {
 
         int matchDistance = (int) (((double) Math.max(s1Length, s2Length) / 2.0) - 1);
 
-        boolean[] s1Matches = new boolean[s1Length];
-        boolean[] s2Matches = new boolean[s2Length];
+        Scratch scratch = SCRATCH.get();
+        boolean[] s1Matches = scratch.s1Matches(s1Length);
+        boolean[] s2Matches = scratch.s2Matches(s2Length);
 
         int matches = 0;
         int transpositions = 0;
 
         for (int index = 0; index < s1Length; index++) {
-            List<Integer> indexes
-                    = matches(
-                            s1.charAt(index),
-                            index,
-                            s2,
-                            matchDistance
-                    );
-
-            if (!indexes.isEmpty()) {
-                for (Integer indexMatch : indexes) {
-                    if (!s2Matches[indexMatch]) {
-                        s1Matches[index] = true;
-                        s2Matches[indexMatch] = true;
-                        matches++;
-                        break;
-                    }
-                }
+            int indexMatch = firstUnmatched(s1.charAt(index), index, s2, s2Matches, matchDistance);
+            if (indexMatch >= 0) {
+                s1Matches[index] = true;
+                s2Matches[indexMatch] = true;
+                matches++;
             }
         }
 
@@ -83,6 +77,34 @@ final class Jaro implements SimilarityAlgorithm {
         return rate;
     }
 
+    /**
+     * Retourne la première position d'une chaine (paramètre s) dont le
+     * caractère est égal à un caractère (paramètre c), qui respecte la
+     * contrainte de distance (paramètre matchDistance) et qui n'a pas déjà été
+     * associée à un caractère de l'autre chaine.
+     * <p>
+     * La recherche est effectuée dans la plage MAX[0, index - matchDistance] ->
+     * MIN[index + matchDistance + 1, longueur chaine]
+     *
+     * @param c Caractère à rechercher
+     * @param index Index d'origine de la recherche
+     * @param s Chaine dans laquelle on recherche le caractère
+     * @param sMatches Positions de la chaine déjà associées
+     * @param matchDistance Distance maximale de recherche
+     * @return Position ou -1 si aucune correspondance
+     */
+    private int firstUnmatched(char c, int index, String s, boolean[] sMatches, int matchDistance) {
+        final int startSearchIndex = Math.max(0, index - matchDistance);
+        final int endSearchIndex = Math.min(index + matchDistance + 1, s.length());
+
+        for (int i = startSearchIndex; i < endSearchIndex; i++) {
+            if (!sMatches[i] && s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     @Override
     public double getHitRate(@NonNull String s1, @NonNull String s2) {
         final int s1Length = s1.length();
@@ -99,32 +121,37 @@ final class Jaro implements SimilarityAlgorithm {
     }
 
     /**
-     * Retourne la liste des positions des caractères d'une chaine (paramètre s)
-     * égaux à un caractère (paramètre c) qui respecte la contrainte de distance
-     * (paramètre matchDistance)
-     * <p>
-     * La recherche est effectuée dans la plage MAX[0, index - matchDistance] ->
-     * MIN[index + matchDistance + 1, longueur chaine]
-     *
-     * @param c Caractère à rechercher
-     * @param index Index d'origine de la recherche
-     * @param s Chaine dans laquelle on recherche le caractère
-     * @param matchDistance Distance maximale de recherche
-     * @return Liste des positions ou liste vide si aucune correspondance
+     * Tableaux de travail d'un thread.
      */
-    private List<Integer> matches(char c, int index, @NonNull String s, int matchDistance) {
-        final int sLength = s.length();
-
-        final int startSearchIndex = Math.max(0, index - matchDistance);
-        final int endSearchIndex = Math.min(index + matchDistance + 1, sLength);
-
-        List<Integer> list = new ArrayList<>();
-        for (int i = startSearchIndex; i < endSearchIndex; i++) {
-            if (s.charAt(i) == c) {
-                list.add(i);
+    private static final class Scratch {
+
+        private boolean[] s1Matches = new boolean[64];
+        private boolean[] s2Matches = new boolean[64];
+
+        /**
+         * Retourne un tableau d'au moins length éléments dont les length
+         * premiers valent false.
+         *
+         * @param array
+         * @param length
+         * @return
+         */
+        private static boolean[] reset(boolean[] array, int length) {
+            if (array.length < length) {
+                return new boolean[Math.max(length, array.length * 2)];
             }
+            Arrays.fill(array, 0, length, false);
+            return array;
+        }
+
+        boolean[] s1Matches(int length) {
+            s1Matches = reset(s1Matches, length);
+            return s1Matches;
         }
 
-        return list;
+        boolean[] s2Matches(int length) {
+            s2Matches = reset(s2Matches, length);
+            return s2Matches;
+        }
     }
 }
@@ -16,18 +16,16 @@ import lombok.NonNull;
  */
 final class JaroWinkler implements SimilarityAlgorithm {
 
-    private final Jaro algo;
-
     /**
-     * Constructeur
+     * Applique le bonus de Winkler (préfixe commun de 4 caractères au plus) à
+     * une distance de Jaro.
+     *
+     * @param dj distance de Jaro des deux chaines
+     * @param s1
+     * @param s2
+     * @return Distance de Jaro-Winkler
      */
-    public JaroWinkler() {
-        algo = new Jaro();
-    }
-
-    @Override
-    public double getHitRate(@NonNull String s1, @NonNull String s2) {
-        double dj = algo.getHitRate(s1, s2);
+    static double applyPrefixBonus(double dj, @NonNull String s1, @NonNull String s2) {
         double p = 0.1;
 
         double l = 0;
@@ -43,4 +41,18 @@ final class JaroWinkler implements SimilarityAlgorithm {
         return dj + (l * p * (1 - dj));
     }
 
+    private final Jaro algo;
+
+    /**
+     * Constructeur
+     */
+    public JaroWinkler() {
+        algo = new Jaro();
+    }
+
+    @Override
+    public double getHitRate(@NonNull String s1, @NonNull String s2) {
+        return applyPrefixBonus(algo.getHitRate(s1, s2), s1, s2);
+    }
+
 }
@@ -0,0 +1,33 @@
+package fr.frezilla.watsonhit.business.similarity;
+
+import lombok.NonNull;
+
+/**
+ * Mesure la similarité de deux chaines de caractères en faisant la moyenne des
+ * distances de Jaro et de Jaro-Winkler.
+ * <p>
+ * La distance de Jaro n'est calculée qu'une seule fois : la distance de
+ * Jaro-Winkler en est déduite par l'application du bonus de préfixe. Le
+ * résultat est identique à la moyenne des résultats de {@link Jaro} et de
+ * {@link JaroWinkler}, pour le coût d'un seul calcul de Jaro.
+ */
+final class JaroWinklerAverage implements SimilarityAlgorithm {
+
+    private final Jaro algo;
+
+    /**
+     * Constructeur
+     */
+    public JaroWinklerAverage() {
+        algo = new Jaro();
+    }
+
+    @Override
+    public double getHitRate(@NonNull String s1, @NonNull String s2) {
+        double dj = algo.getHitRate(s1, s2);
+        double djw = JaroWinkler.applyPrefixBonus(dj, s1, s2);
+
+        return (dj + djw) / 2;
+    }
+
+}
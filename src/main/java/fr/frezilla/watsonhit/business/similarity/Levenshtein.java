@@ -1,7 +1,5 @@
 package fr.frezilla.watsonhit.business.similarity;
 
-import java.util.ArrayList;
-import java.util.List;
 import lombok.NonNull;
 
 /**
@@ -11,13 +9,51 @@ import lombok.NonNull;
  * Le résultat est normalisé de façon à avoir une mesure entre 0 (chaines
  * différentes) et 1 (chaines égales).
  * <p>
+ * Le calcul n'utilise que deux lignes de la matrice des distances, propres à
+ * chaque thread et réutilisées d'un appel à l'autre. Lorsqu'un taux minimal
+ * est demandé, seule la bande diagonale de la matrice correspondant à la
+ * distance maximale autorisée est calculée (méthode d'Ukkonen) et le calcul
+ * s'arrête dès que toutes les cellules d'une ligne dépassent cette distance.
+ * <p>
  * Source : {@linkplain https://fr.wikipedia.org/wiki/Distance_de_Levenshtein}
  */
 final class Levenshtein implements SimilarityAlgorithm {
 
+    private static final ThreadLocal<Rows> ROWS = ThreadLocal.withInitial(Rows::new);
+
+    /**
+     * Calcule le taux de similarité correspondant à une distance.
+     *
+     * @param distance
+     * @param maxLength longueur de la plus longue des deux chaines
+     * @return
+     */
+    private static double hitRate(int distance, int maxLength) {
+        return 1.0 - ((double) distance / maxLength);
+    }
+
+    /**
+     * Retourne la distance maximale pour laquelle le taux de similarité atteint
+     * un taux minimal.
+     *
+     * @param maxLength longueur de la plus longue des deux chaines
+     * @param minHitRate taux minimal
+     * @return Distance maximale ou -1 si aucune distance ne convient
+     */
+    static int maxDistance(int maxLength, double minHitRate) {
+        int distance = (int) Math.min(maxLength, Math.max(0.0, Math.floor((1.0 - minHitRate) * maxLength)));
+        while (distance < maxLength && hitRate(distance + 1, maxLength) >= minHitRate) {
+            distance++;
+        }
+        while (distance >= 0 && hitRate(distance, maxLength) < minHitRate) {
+            distance--;
+        }
+        return distance;
+    }
+
     /**
-     * Calcul la distance de Levenshtein entre deux chaînes de caractères
-     * courtes.
+     * Calcul la distance de Levenshtein entre deux chaînes de caractères si
+     * celle-ci ne dépasse pas une distance maximale.
      * <p>
      * Cet algorithme ne s'occupe pas de déplacement, il ne détecte que la
      * suppression ou l'insertion d'une lettre, ainsi que le remplacement d'une
@@ -28,82 +64,105 @@ final class Levenshtein implements SimilarityAlgorithm {
      *
      * @param s1 1ère chaine de caractères à traiter
      * @param s2 2ème chaine de caractères à traiter
-     * @return Distance
+     * @param maxDistance distance maximale recherchée
+     * @return Distance, ou maxDistance + 1 si la distance dépasse maxDistance
      */
-    private int calculate(@NonNull String s1, @NonNull String s2) {
+    private int calculate(@NonNull String s1, @NonNull String s2, int maxDistance) {
         final int s1Length = s1.length();
-        final int s2Lenght = s2.length();
-        final int nbMatrixRows = s1Length + 1;
-        final int nbMatrixLines = s2Lenght + 1;
-
-        int matrix[][] = new int[nbMatrixRows][nbMatrixLines];
+        final int s2Length = s2.length();
+        final int outOfBand = maxDistance + 1;
 
-        for (int i = 0; i < nbMatrixRows; i++) {
-            matrix[i][0] = i;
+        if (Math.abs(s1Length - s2Length) > maxDistance) {
+            return outOfBand;
         }
-        for (int i = 0; i < nbMatrixLines; i++) {
-            matrix[0][i] = i;
+
+        Rows rows = ROWS.get();
+        int[] previous = rows.previous(s2Length + 1);
+        int[] current = rows.current(s2Length + 1);
+
+        for (int j = 0; j <= s2Length; j++) {
+            previous[j] = (j <= maxDistance) ? j : outOfBand;
         }
 
         for (int i = 1; i <= s1Length; i++) {
-            for (int j = 1; j <= s2Lenght; j++) {
-                int cost = (s1.charAt(i - 1) == s2.charAt(j - 1)) ? 0 : 1;
-
-                matrix[i][j]
-                        = minimum(
-                                matrix[i - 1][j] + 1, // Effacement du nouveau caractère de s1
-                                matrix[i][j - 1] + 1, // Insertion dans s2 du nouveau caractère de s1
-                                matrix[i - 1][j - 1] + cost // Substitution
-                        );
+            final int from = Math.max(1, i - maxDistance);
+            final int to = Math.min(s2Length, i + maxDistance);
+            final char c = s1.charAt(i - 1);
+
+            current[0] = (i <= maxDistance) ? i : outOfBand;
+            current[from - 1] = (from == 1) ? current[0] : outOfBand;
+            int rowMinimum = current[from - 1];
+
+            for (int j = from; j <= to; j++) {
+                int cost = (c == s2.charAt(j - 1)) ? 0 : 1;
+
+                int value = previous[j - 1] + cost; // Substitution
+                value = Math.min(value, previous[j] + 1); // Effacement du nouveau caractère de s1
+                value = Math.min(value, current[j - 1] + 1); // Insertion dans s2 du nouveau caractère de s1
+                value = Math.min(value, outOfBand);
+
+                current[j] = value;
+                rowMinimum = Math.min(rowMinimum, value);
+            }
+            if (to < s2Length) {
+                current[to + 1] = outOfBand;
             }
+
+            if (rowMinimum > maxDistance) {
+                return outOfBand;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
         }
 
-        return matrix[s1Length][s2Lenght];
+        return previous[s2Length];
     }
 
     @Override
     public double getHitRate(@NonNull String s1, @NonNull String s2) {
-        final int s1Length = s1.length();
-        final int s2Length = s2.length();
+        return getHitRate(s1, s2, 0.0);
+    }
+
+    @Override
+    public double getHitRate(@NonNull String s1, @NonNull String s2, double minHitRate) {
+        final int maxLength = Math.max(s1.length(), s2.length());
 
         double hitRate;
 
-        if (s1Length == 0 && s2Length == 0) {
+        if (maxLength == 0) {
             hitRate = 1.0;
         } else {
-            int distance = calculate(s1, s2);
-            if (s1Length < s2Length) {
-                hitRate = 1.0 - ((double) distance / s2Length);
-            } else {
-                hitRate = 1.0 - ((double) distance / s1Length);
-            }
+            int maxDistance = maxDistance(maxLength, Math.min(1.0, minHitRate));
+            int distance = calculate(s1, s2, maxDistance);
+            hitRate = hitRate(distance, maxLength);
         }
 
         return hitRate;
     }
 
     /**
-     * Retourne la valeur minimal dans un ensemble d'entiers.
-     * 
-     * @param values Ensemble de valeurs
-     * @return valeur minimale
+     * Lignes de la matrice des distances d'un thread.
      */
-    private int minimum(@NonNull int... values) {
-        final int valuesSize = values.length;
+    private static final class Rows {
 
-        List<Integer> list = new ArrayList<>(valuesSize);
-        for (int i = 0; i < valuesSize; i++) {
-            list.add(values[i]);
-        }
+        private int[] current = new int[64];
+        private int[] previous = new int[64];
 
-        int minValue = Integer.MAX_VALUE;
-        for (Integer value : list) {
-            if (value != null && value < minValue) {
-                minValue = value;
+        int[] current(int length) {
+            if (current.length < length) {
+                current = new int[Math.max(length, current.length * 2)];
             }
+            return current;
         }
 
-        return minValue;
+        int[] previous(int length) {
+            if (previous.length < length) {
+                previous = new int[Math.max(length, previous.length * 2)];
+            }
+            return previous;
+        }
     }
 
 }
@@ -18,4 +18,25 @@ public interface SimilarityAlgorithm {
      */
     double getHitRate(String s1, String s2);
     
+    /**
+     * Calcule le taux de similarité entre deux chaines de caractères si celui-ci
+     * peut atteindre un taux minimal.
+     * <p>
+     * Lorsque le taux minimal ne peut pas être atteint, l'algorithme peut
+     * interrompre le calcul : la valeur retournée est alors inférieure à 
+     * minHitRate mais n'est pas forcément le taux exact. Lorsque le taux 
+     * atteint minHitRate, la valeur retournée est identique à celle de
+     * {@link #getHitRate(java.lang.String, java.lang.String) }.
+     * <p>
+     * L'implémentation par défaut calcule toujours le taux exact.
+     * 
+     * @param s1 1ère chaine de caractères à traiter
+     * @param s2 2ème chaine de caractères à traiter
+     * @param minHitRate taux minimal recherché
+     * @return Taux de similarité
+     */
+    default double getHitRate(String s1, String s2, double minHitRate) {
+        return getHitRate(s1, s2);
+    }
+    
 }
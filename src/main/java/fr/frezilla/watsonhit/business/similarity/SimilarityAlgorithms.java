@@ -11,14 +11,20 @@ package fr.frezilla.watsonhit.business.similarity;
  * <ul>
  *  <li>La distance de Jaro</li>
  *  <li>La distance de Jaro-Winkler</li>
+ *  <li>La moyenne des distances de Jaro et de Jaro-Winkler, calculée avec un
+ *      seul calcul de la distance de Jaro</li>
  *  <li>La distance de Levenstein (dont le résultat est adaptée pour retourner 
  *      une valeur comprise entre 0 et 1)</li>
+ *  <li>La même distance de Levenstein, calculée par vecteurs de bits pour les
+ *      chaines d'au plus 64 caractères</li>
  * </ul>
  */
 public enum SimilarityAlgorithms {
     JARO(new Jaro()),
     JARO_WINKLER(new JaroWinkler()),
-    LEVENSTEIN(new Levenshtein());
+    JARO_WINKLER_AVERAGE(new JaroWinklerAverage()),
+    LEVENSTEIN(new Levenshtein()),
+    LEVENSTEIN_BIT_PARALLEL(new BitParallelLevenshtein());
 
     private final SimilarityAlgorithm algo;
     
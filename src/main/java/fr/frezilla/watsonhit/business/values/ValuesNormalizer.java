@@ -0,0 +1,119 @@
+package fr.frezilla.watsonhit.business.values;
+
+import fr.frezilla.watsonhit.business.csv.CsvColumnDescription;
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.NonNull;
+
+/**
+ * Calcule les valeurs de comparaison des colonnes d'une ligne en fonction de
+ * la description du fichier csv.
+ * <p>
+ * Pour chaque colonne, les options de la description (identifiant, caractères
+ * spéciaux, casse) sont lues une seule fois à la construction. Les valeurs
+ * déjà normalisées sont conservées dans un cache par colonne : une valeur
+ * brute répétée dans le fichier n'est normalisée qu'une seule fois et toutes
+ * ses occurrences partagent la même instance de chaine normalisée.
+ * <p>
+ * Cette classe n'est pas thread-safe.
+ */
+public final class ValuesNormalizer {
+
+    /**
+     * Nombre maximal de valeurs conservées dans le cache d'une colonne.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1 << 16;
+
+    private final Map<String, String>[] caches;
+    private final int cacheSize;
+    private final boolean[] ids;
+    private final boolean[] ignoreSpecialCharacters;
+    private final boolean[] matchCase;
+
+    /**
+     * Constructeur
+     *
+     * @param csvDescription description du fichier csv
+     */
+    public ValuesNormalizer(@NonNull CsvDescription csvDescription) {
+        this(csvDescription, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructeur
+     *
+     * @param csvDescription description du fichier csv
+     * @param cacheSize nombre maximal de valeurs en cache par colonne
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ValuesNormalizer(@NonNull CsvDescription csvDescription, int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize must be positive");
+        }
+        List<CsvColumnDescription> columnsDescriptions = csvDescription.getColumnsDescription();
+        final int nbColumns = columnsDescriptions.size();
+
+        this.caches = new Map[nbColumns];
+        this.cacheSize = cacheSize;
+        this.ids = new boolean[nbColumns];
+        this.ignoreSpecialCharacters = new boolean[nbColumns];
+        this.matchCase = new boolean[nbColumns];
+
+        for (int i = 0; i < nbColumns; i++) {
+            CsvColumnDescription d = columnsDescriptions.get(i);
+            caches[i] = new HashMap<>();
+            ids[i] = d.isId();
+            ignoreSpecialCharacters[i] = d.isIgnoreSpecialCharacters();
+            matchCase[i] = d.isMatchCase();
+        }
+    }
+
+    /**
+     * Applique les transformations de la colonne à une valeur.
+     *
+     * @param column index de la colonne
+     * @param value valeur brute
+     * @return Valeur normalisée
+     */
+    private String format(int column, String value) {
+        String result = value;
+        if (ignoreSpecialCharacters[column]) {
+            result = ValuesUtils.replaceSpecialsCharacters(result);
+        }
+        if (!matchCase[column]) {
+            result = ValuesUtils.toUppercase(result);
+        }
+        return result;
+    }
+
+    /**
+     * Retourne la valeur de comparaison d'une colonne.
+     * <p>
+     * Les colonnes "identifiant" ne sont pas comparées, la valeur retournée est
+     * alors {@code null}.
+     *
+     * @param column index de la colonne
+     * @param value valeur brute
+     * @return Valeur normalisée
+     */
+    public String normalize(int column, String value) {
+        if (ids[column] || value == null) {
+            return null;
+        }
+        if (matchCase[column] && !ignoreSpecialCharacters[column]) {
+            return value;
+        }
+
+        Map<String, String> cache = caches[column];
+        String result = cache.get(value);
+        if (result == null) {
+            result = format(column, value);
+            if (cache.size() < cacheSize) {
+                cache.put(value, result);
+            }
+        }
+        return result;
+    }
+}
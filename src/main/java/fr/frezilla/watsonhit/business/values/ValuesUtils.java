@@ -6,6 +6,52 @@ import org.apache.commons.lang3.StringUtils;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class ValuesUtils {
+
+    /**
+     * Codes Soundex des lettres A à Z ; 0 pour les voyelles, 7 pour H et W
+     * qui ne séparent pas deux consonnes de même code.
+     */
+    private static final char[] SOUNDEX_CODES = "01230127022455012623017202".toCharArray();
+
+    /**
+     * Retourne le code phonétique Soundex (lettre initiale suivie de trois
+     * chiffres) d'une chaine de caractères.
+     * <p>
+     * Les accents sont supprimés et les caractères qui ne sont pas des lettres
+     * sont ignorés.
+     *
+     * @param s
+     * @return Code Soundex ou chaine vide si la chaine ne contient pas de
+     * lettre
+     */
+    public static String soundex(String s) {
+        if (s == null) {
+            return null;
+        }
+        String value = toUppercase(replaceSpecialsCharacters(s));
+        char[] code = {'0', '0', '0', '0'};
+        int length = 0;
+        char previous = 0;
+        for (int i = 0; i < value.length() && length < code.length; i++) {
+            char c = value.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                continue;
+            }
+            char digit = SOUNDEX_CODES[c - 'A'];
+            if (length == 0) {
+                code[length++] = c;
+                previous = digit;
+            } else if (digit == '7') {
+                continue;
+            } else {
+                if (digit != '0' && digit != previous) {
+                    code[length++] = digit;
+                }
+                previous = digit;
+            }
+        }
+        return (length == 0) ? "" : new String(code);
+    }
     
     public static String toUppercase(String s) {
         return StringUtils.upperCase(s);
@@ -14,7 +60,7 @@ public class ValuesUtils {
     public static String replaceSpecialsCharacters(String s) {
         String result = null;
         if (s != null) {
-            result = StringUtils.stripAccents(s);
+            result = StringUtils.isAsciiPrintable(s) ? s : StringUtils.stripAccents(s);
         }
         return result;
     }
@@ -0,0 +1,520 @@
+package fr.frezilla.watsonhit.reader.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import lombok.NonNull;
+
+/**
+ * Lecteur de fichier csv par projection du fichier en mémoire.
+ * <p>
+ * Le fichier est projeté par fenêtres successives ({@link FileChannel#map})
+ * et parcouru octet par octet : les délimiteurs et les fins de ligne
+ * ({@code \n}, {@code \r\n} ou {@code \r}) sont recherchés directement dans les
+ * octets, sans décodage préalable. Chaque zone de la ligne courante est
+ * exposée sous la forme d'une position et d'une longueur dans le fichier ;
+ * seules les zones demandées sont décodées en chaines de caractères.
+ * <p>
+ * Le délimiteur est une chaine littérale, éventuellement de plusieurs
+ * caractères. Le jeu de caractères doit coder les fins de ligne comme l'ASCII
+ * (UTF-8, ISO-8859-1, windows-1252...). Toutes les zones d'une ligne sont
+ * conservées, y compris les zones vides en fin de ligne.
+ * <p>
+ * Cette classe n'est pas thread-safe.
+ */
+public final class MappedCsvReader implements Closeable {
+
+    public static final String DEFAULT_DELIMITER = ",";
+
+    /**
+     * Taille par défaut d'une fenêtre de projection.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final byte CR = '\r';
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final byte LF = '\n';
+
+    public static Builder builder(String csvPath) {
+        return new Builder(csvPath);
+    }
+
+    /**
+     * Découpe un fichier en plages d'octets alignées sur les débuts de ligne.
+     * <p>
+     * Le fichier est découpé en plages de tailles voisines dont chaque borne
+     * est repoussée au début de la ligne suivante ; les plages vides sont
+     * supprimées. Chaque plage peut être lue par son propre lecteur (voir
+     * {@link Builder#setRange(long, long)}).
+     *
+     * @param csvPath chemin du fichier
+     * @param chunks nombre de plages souhaité
+     * @return Bornes des plages : la plage i commence à la position i et se
+     * termine à la position i + 1 (exclue) ; la dernière borne est la taille
+     * du fichier
+     * @throws IOException
+     */
+    public static long[] splitLines(@NonNull String csvPath, int chunks) throws IOException {
+        return splitLines(csvPath, 0, Long.MAX_VALUE, chunks);
+    }
+
+    /**
+     * Découpe une plage d'un fichier en plages d'octets alignées sur les
+     * débuts de ligne.
+     *
+     * @param csvPath chemin du fichier
+     * @param start position du début de la plage, au début d'une ligne
+     * @param end position de la fin de la plage (exclue), au début d'une
+     * ligne ou au-delà de la fin du fichier
+     * @param chunks nombre de plages souhaité
+     * @return Bornes des plages : la plage i commence à la position i et se
+     * termine à la position i + 1 (exclue) ; la dernière borne est la fin de
+     * la plage, limitée à la taille du fichier
+     * @throws IOException
+     * @see #splitLines(String, int)
+     */
+    public static long[] splitLines(@NonNull String csvPath, long start, long end, int chunks) throws IOException {
+        if (chunks < 1) {
+            throw new IllegalArgumentException("chunks must be greater than 0");
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(csvPath), StandardOpenOption.READ)) {
+            final long rangeEnd = Math.min(end, channel.size());
+            final long rangeStart = Math.min(start, rangeEnd);
+            final long rangeSize = rangeEnd - rangeStart;
+            long[] bounds = new long[chunks + 1];
+            bounds[0] = rangeStart;
+            int nbBounds = 1;
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            for (int i = 1; i < chunks; i++) {
+                long bound = lineStart(channel, buffer, Math.max(rangeStart + rangeSize / chunks * i, bounds[nbBounds - 1]), rangeEnd);
+                if (bound > bounds[nbBounds - 1] && bound < rangeEnd) {
+                    bounds[nbBounds++] = bound;
+                }
+            }
+            bounds[nbBounds++] = rangeEnd;
+            return Arrays.copyOf(bounds, nbBounds);
+        }
+    }
+
+    /**
+     * Retourne la position du premier début de ligne situé à partir d'une
+     * position donnée.
+     *
+     * @param channel
+     * @param buffer tampon de lecture
+     * @param from position dans le fichier
+     * @param fileSize taille du fichier
+     * @return Position du début de ligne ou taille du fichier
+     * @throws IOException
+     */
+    private static long lineStart(FileChannel channel, ByteBuffer buffer, long from, long fileSize) throws IOException {
+        if (from <= 0) {
+            return 0;
+        }
+        // Le caractère qui précède la position peut être la fin de la ligne
+        // précédente
+        long position = from - 1;
+        boolean afterCr = false;
+        while (position < fileSize) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (afterCr) {
+                    return (b == LF) ? position + i + 1 : position + i;
+                }
+                if (b == LF) {
+                    return position + i + 1;
+                }
+                afterCr = (b == CR);
+            }
+            position += read;
+        }
+        return fileSize;
+    }
+
+    private final FileChannel channel;
+    private final Charset charset;
+    private byte[] decodeBuffer;
+    private final byte[] delimiter;
+    private int fieldCount;
+
+    /**
+     * Longueur en octets de chaque zone de la ligne courante.
+     */
+    private int[] fieldLengths;
+
+    /**
+     * Position de chaque zone de la ligne courante dans la fenêtre.
+     */
+    private int[] fieldStarts;
+
+    private final long fileSize;
+    private String[] headerValues;
+    private long lineNumber;
+
+    /**
+     * Position dans le fichier de la prochaine ligne à lire.
+     */
+    private long position;
+
+    /**
+     * Position dans le fichier de la fin de la plage lue (exclue).
+     */
+    private final long rangeEnd;
+
+    private MappedByteBuffer window;
+    private final int windowSize;
+
+    /**
+     * Position dans le fichier du début de la fenêtre.
+     */
+    private long windowStart;
+
+    private boolean withHeader;
+
+    private MappedCsvReader(@NonNull String csvPath, @NonNull Charset charset, @NonNull String delimiter, int windowSize, long rangeStart, long rangeEnd) throws IOException {
+        if (delimiter.isEmpty()) {
+            throw new IllegalArgumentException("delimiter must not be empty");
+        }
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be greater than 0");
+        }
+        this.channel = FileChannel.open(Paths.get(csvPath), StandardOpenOption.READ);
+        this.charset = charset;
+        this.decodeBuffer = new byte[256];
+        this.delimiter = delimiter.getBytes(charset);
+        this.fieldCount = 0;
+        this.fieldLengths = new int[16];
+        this.fieldStarts = new int[16];
+        this.fileSize = channel.size();
+        this.headerValues = null;
+        this.lineNumber = 0;
+        this.position = Math.min(rangeStart, fileSize);
+        this.rangeEnd = Math.min(rangeEnd, fileSize);
+        this.window = null;
+        this.windowSize = windowSize;
+        this.windowStart = 0;
+        this.withHeader = false;
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldLengths = Arrays.copyOf(fieldLengths, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldLengths[fieldCount] = end - start;
+        fieldCount++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Décode une zone de la ligne courante.
+     *
+     * @param index index de la zone
+     * @return Valeur de la zone
+     */
+    public String getField(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("index: " + index + ", fieldCount: " + fieldCount);
+        }
+        final int length = fieldLengths[index];
+        if (length == 0) {
+            return "";
+        }
+        if (decodeBuffer.length < length) {
+            decodeBuffer = new byte[Math.max(length, decodeBuffer.length * 2)];
+        }
+        window.position(fieldStarts[index]);
+        window.get(decodeBuffer, 0, length);
+        return new String(decodeBuffer, 0, length, charset);
+    }
+
+    /**
+     * Retourne le nombre de zones de la ligne courante.
+     *
+     * @return
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Retourne la longueur en octets d'une zone de la ligne courante.
+     *
+     * @param index index de la zone
+     * @return
+     */
+    public int getFieldLength(int index) {
+        return fieldLengths[index];
+    }
+
+    /**
+     * Retourne la position dans le fichier du premier octet d'une zone de la
+     * ligne courante.
+     *
+     * @param index index de la zone
+     * @return
+     */
+    public long getFieldOffset(int index) {
+        return windowStart + fieldStarts[index];
+    }
+
+    /**
+     * Décode toutes les zones de la ligne courante.
+     *
+     * @return Valeurs des zones
+     */
+    public String[] getFields() {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = getField(i);
+        }
+        return fields;
+    }
+
+    /**
+     * Décode les zones demandées de la ligne courante.
+     *
+     * @param decoded pour chaque index de zone, {@code true} si la zone doit
+     * être décodée
+     * @return Valeurs des zones, {@code null} pour les zones non décodées
+     */
+    public String[] getFields(@NonNull boolean[] decoded) {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            if (i >= decoded.length || decoded[i]) {
+                fields[i] = getField(i);
+            }
+        }
+        return fields;
+    }
+
+    public String[] getHeader() {
+        return (headerValues == null) ? null : headerValues.clone();
+    }
+
+    /**
+     * Retourne le numéro (à partir de 1) de la ligne courante dans la plage
+     * lue, c'est-à-dire dans le fichier lorsque tout le fichier est lu.
+     *
+     * @return
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Calcule une empreinte sur 64 bits des octets d'une zone de la ligne
+     * courante, sans la décoder.
+     * <p>
+     * Deux zones de mêmes octets ont la même empreinte.
+     *
+     * @param index index de la zone
+     * @return Empreinte de la zone
+     */
+    public long hashField(int index) {
+        final int start = fieldStarts[index];
+        final int end = start + fieldLengths[index];
+        long h = FNV_OFFSET_BASIS;
+        for (int i = start; i < end; i++) {
+            h = (h ^ (window.get(i) & 0xff)) * FNV_PRIME;
+        }
+        // Mélange final (MurmurHash3) pour répartir les bits de poids fort
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Projette une fenêtre du fichier qui commence à une position donnée.
+     *
+     * @param start position dans le fichier
+     * @param minSize taille minimale de la fenêtre
+     * @throws IOException
+     */
+    private void map(long start, long minSize) throws IOException {
+        long size = Math.min(Math.max(windowSize, minSize), fileSize - start);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("line " + (lineNumber + 1) + " is too long");
+        }
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        windowStart = start;
+    }
+
+    /**
+     * Passe à la ligne suivante.
+     *
+     * @return {@code false} si la fin du fichier est atteinte
+     * @throws IOException
+     */
+    public boolean next() throws IOException {
+        if (position >= rangeEnd) {
+            fieldCount = 0;
+            return false;
+        }
+        if (window == null || position >= windowStart + window.limit()) {
+            map(position, 0);
+        }
+
+        int end;
+        while ((end = scan((int) (position - windowStart))) < 0) {
+            // La ligne se poursuit au-delà de la fenêtre : on projette une
+            // nouvelle fenêtre à partir du début de la ligne.
+            map(position, 2L * (windowStart + window.limit() - position));
+        }
+
+        int next = end;
+        if (end < window.limit()) {
+            next++;
+            if (window.get(end) == CR && next < window.limit() && window.get(next) == LF) {
+                next++;
+            }
+        }
+        position = windowStart + next;
+        lineNumber++;
+
+        if (withHeader && headerValues == null) {
+            headerValues = getFields();
+        }
+        return true;
+    }
+
+    /**
+     * Découpe la ligne qui commence à une position de la fenêtre.
+     *
+     * @param start position du début de ligne dans la fenêtre
+     * @return Position de la fin de ligne dans la fenêtre, ou -1 si la ligne
+     * se poursuit au-delà de la fenêtre
+     */
+    private int scan(int start) {
+        final MappedByteBuffer w = window;
+        final int limit = w.limit();
+        final boolean lastWindow = (windowStart + limit == fileSize);
+        final byte first = delimiter[0];
+        final int delimiterLength = delimiter.length;
+
+        fieldCount = 0;
+        int fieldStart = start;
+        int i = start;
+        while (i < limit) {
+            byte b = w.get(i);
+            if (b == LF || b == CR) {
+                if (b == CR && i + 1 == limit && !lastWindow) {
+                    // Le \n éventuel se trouve dans la fenêtre suivante
+                    return -1;
+                }
+                addField(fieldStart, i);
+                return i;
+            }
+            if (b == first && matchesDelimiter(w, i, limit, delimiterLength)) {
+                addField(fieldStart, i);
+                i += delimiterLength;
+                fieldStart = i;
+            } else {
+                i++;
+            }
+        }
+        if (!lastWindow) {
+            return -1;
+        }
+        addField(fieldStart, limit);
+        return limit;
+    }
+
+    private boolean matchesDelimiter(MappedByteBuffer w, int i, int limit, int delimiterLength) {
+        if (i + delimiterLength > limit) {
+            return false;
+        }
+        for (int k = 1; k < delimiterLength; k++) {
+            if (w.get(i + k) != delimiter[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static class Builder {
+
+        private Charset charset;
+        private final String csvPath;
+        private String delimiter;
+        private long rangeEnd;
+        private long rangeStart;
+        private int windowSize;
+        private boolean withHeader;
+
+        Builder(@NonNull String csvPath) {
+            this.charset = Charset.defaultCharset();
+            this.csvPath = csvPath;
+            this.delimiter = DEFAULT_DELIMITER;
+            this.rangeEnd = Long.MAX_VALUE;
+            this.rangeStart = 0;
+            this.windowSize = DEFAULT_WINDOW_SIZE;
+            this.withHeader = false;
+        }
+
+        public MappedCsvReader build() throws IOException {
+            MappedCsvReader instance = new MappedCsvReader(csvPath, charset, delimiter, windowSize, rangeStart, rangeEnd);
+            instance.withHeader = withHeader;
+
+            return instance;
+        }
+
+        public Builder setCharset(@NonNull Charset charset) {
+            this.charset = charset;
+            return this;
+        }
+
+        public Builder setDelimiter(@NonNull String delimiter) {
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        /**
+         * Limite la lecture aux lignes qui commencent dans une plage d'octets.
+         *
+         * @param start position du début de la plage, qui doit être un début
+         * de ligne
+         * @param end position de la fin de la plage (exclue)
+         * @return
+         */
+        public Builder setRange(long start, long end) {
+            if (start < 0 || end < start) {
+                throw new IllegalArgumentException("invalid range");
+            }
+            this.rangeStart = start;
+            this.rangeEnd = end;
+            return this;
+        }
+
+        public Builder setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        public Builder withHeader() {
+            this.withHeader = true;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package fr.frezilla.watsonhit.test;
+
+import fr.frezilla.watsonhit.business.blocking.BlockingIndex;
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.CsvFormatException;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import fr.frezilla.watsonhit.business.engine.BlockNestedLoop;
+import fr.frezilla.watsonhit.business.engine.ComparisonEngine;
+import fr.frezilla.watsonhit.business.engine.PairScorer;
+import fr.frezilla.watsonhit.business.engine.PairSpace;
+import fr.frezilla.watsonhit.business.engine.TriangularPairSpace;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class BlockNestedLoopTU {
+
+    private static final ComparisonEngine ENGINE = ComparisonEngine.builder().setMinSimilarity(60.0).setThreads(3).build();
+
+    /**
+     * Compare les lignes par blocs et retourne les paires triées, en
+     * contrôlant que les lignes accessibles pendant la comparaison sont
+     * celles du fichier.
+     */
+    private static List<String> runBlocks(BlockNestedLoop blockNestedLoop, DataSet dataSet, CsvDescription csvDescription, Function<DataSet, PairSpace> pairSpaceFactory) throws Exception {
+        List<String> matches = new ArrayList<>();
+        int[] blockPairs = {0};
+        blockNestedLoop.run(ENGINE, d -> new PairScorer(csvDescription, d), pairSpaceFactory, (row1, row2, similarity) -> {
+            Assertions.assertArrayEquals(dataSet.getRawRow(row1), blockNestedLoop.getRows().getRawRow(row1));
+            Assertions.assertArrayEquals(dataSet.getRawRow(row2), blockNestedLoop.getRows().getRawRow(row2));
+            matches.add(row1 + " " + row2 + " " + similarity);
+        }, n -> blockPairs[0] += n);
+        Assertions.assertEquals(blockNestedLoop.getBlockPairCount(), blockPairs[0]);
+        Collections.sort(matches);
+        return matches;
+    }
+
+    /**
+     * Retourne un ensemble de lignes sans aucune paire.
+     */
+    private static PairSpace noPairs(int size) {
+        return new PairSpace() {
+            @Override
+            public long countPartners(int row) {
+                return 0;
+            }
+
+            @Override
+            public void forEachPartner(int row, IntConsumer consumer) {
+                // Aucun partenaire
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static void checkBlocks(String extra, Function<CsvDescription, Function<DataSet, PairSpace>> index) throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, extra));
+        File csv = TestUtils.writeTempFile(".csv", TestUtils.persons(600, 22));
+        DataSet dataSet = DataSet.builder(csv.getPath()).setCsvDescription(csvDescription).setThreads(1).load();
+        Function<DataSet, PairSpace> pairSpaceFactory = (index == null) ? null : index.apply(csvDescription);
+        List<String> expected = TestUtils.run(ENGINE, (pairSpaceFactory == null) ? new TriangularPairSpace(dataSet.size()) : pairSpaceFactory.apply(dataSet), new PairScorer(csvDescription, dataSet));
+        Collections.sort(expected);
+        Assertions.assertFalse(expected.isEmpty());
+
+        TreeSet<Integer> blockCounts = new TreeSet<>();
+        for (long memoryBudget : new long[]{Long.MAX_VALUE / 2, 200000, 40000, 4000}) {
+            BlockNestedLoop blockNestedLoop = BlockNestedLoop.builder(csv.getPath()).setCsvDescription(csvDescription).setThreads(2).setMemoryBudget(memoryBudget).build();
+            blockCounts.add(blockNestedLoop.getBlockCount());
+            Assertions.assertEquals(expected, runBlocks(blockNestedLoop, dataSet, csvDescription, pairSpaceFactory), "memoryBudget=" + memoryBudget);
+        }
+        Assertions.assertEquals(4, blockCounts.size());
+        Assertions.assertEquals(1, (int) blockCounts.first());
+        Assertions.assertTrue(blockCounts.last() > 20, blockCounts.toString());
+    }
+
+    @Test
+    public void testTriangular() throws Exception {
+        checkBlocks("", null);
+    }
+
+    @Test
+    public void testBlocking() throws Exception {
+        checkBlocks("<blocking><key column=\"nom\" type=\"soundex\"/><key column=\"ville\" type=\"prefix\" length=\"2\"/></blocking>",
+                d -> dataSet -> BlockingIndex.builder(dataSet).setCsvDescription(d).build());
+    }
+
+    @Test
+    public void testErrorLine() throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, ""));
+
+        // Fichier de plus de 8 Mo : l'échantillon ne couvre pas la fin du
+        // fichier, où se trouve la ligne erronée
+        final int nbRows = 320000;
+        final int badRow = nbRows - 100;
+        String content = TestUtils.persons(nbRows, 23);
+        int start = 0;
+        for (int row = 0; row < badRow; row++) {
+            start = content.indexOf('\n', start) + 1;
+        }
+        File csv = TestUtils.writeTempFile(".csv", content.substring(0, start) + "x," + content.substring(start));
+        Assertions.assertTrue(csv.length() > 8 << 20);
+
+        BlockNestedLoop blockNestedLoop = BlockNestedLoop.builder(csv.getPath()).setCsvDescription(csvDescription).setThreads(2).setMemoryBudget(4 << 20).build();
+        Assertions.assertTrue(blockNestedLoop.getBlockCount() > 10, String.valueOf(blockNestedLoop.getBlockCount()));
+
+        // Aucune paire n'est comparée : seule la lecture des blocs importe
+        CsvFormatException e = Assertions.assertThrows(CsvFormatException.class, () -> blockNestedLoop.run(ENGINE, d -> new PairScorer(csvDescription, d), d -> noPairs(d.size()), (row1, row2, similarity) -> {
+        }, n -> {
+        }));
+        Assertions.assertEquals(badRow + 1, e.getLineNumber());
+        Assertions.assertEquals(5, e.getExpectedColumns());
+        Assertions.assertEquals(6, e.getActualColumns());
+    }
+}
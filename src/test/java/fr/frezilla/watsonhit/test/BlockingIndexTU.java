@@ -0,0 +1,65 @@
+package fr.frezilla.watsonhit.test;
+
+import fr.frezilla.watsonhit.business.blocking.BlockingIndex;
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class BlockingIndexTU {
+
+    @Test
+    public void testCandidates() throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS,
+                "<blocking><key column=\"nom\" type=\"soundex\"/><key column=\"ville\" type=\"prefix\" length=\"3\"/></blocking>"));
+        DataSet dataSet = TestUtils.loadDataSet(
+                "1,DUPONT,JEAN,PARIS,75001\n"
+                + "2,DUPOND,PAUL,LYON,69001\n"
+                + "3,MARTIN,JEAN,PARIGNY,42000\n"
+                + "4,,LUC,,\n"
+                + "5,THOMAS,ZOE,LYONS,69002\n"
+                + "6,DUPONT,MARIE,PARIS,75002\n", csvDescription);
+        BlockingIndex index = BlockingIndex.builder(dataSet).setCsvDescription(csvDescription).build();
+
+        // La paire (0, 5) partage les deux clés mais n'est proposée qu'une
+        // fois ; la ligne sans valeur n'appartient à aucun bloc
+        Assertions.assertEquals(Arrays.asList("0 1", "0 2", "0 5", "1 4", "1 5", "2 5"), TestUtils.pairs(index));
+        Assertions.assertEquals(2, index.getKeyCount());
+        Assertions.assertEquals(3, index.getBlockCount(0));
+        Assertions.assertEquals(3, index.getMaxBlockSize(0));
+        Assertions.assertEquals(2, index.getBlockCount(1));
+        Assertions.assertEquals(3, index.getMaxBlockSize(1));
+        Assertions.assertEquals(7, index.countCandidatePairs());
+    }
+
+    @Test
+    public void testRandomCandidates() throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS,
+                "<blocking><key column=\"cp\"/><key column=\"ville\" type=\"prefix\" length=\"2\"/><key column=\"prenom\" type=\"prefix\" length=\"4\"/></blocking>"));
+        DataSet dataSet = TestUtils.loadDataSet(TestUtils.persons(200, 4), csvDescription);
+        BlockingIndex index = BlockingIndex.builder(dataSet).setCsvDescription(csvDescription).build();
+
+        // Référence : paires qui partagent une valeur de clé non vide
+        final int[] columns = {4, 3, 2};
+        final int[] lengths = {Integer.MAX_VALUE, 2, 4};
+        List<String> expected = new ArrayList<>();
+        for (int row1 = 0; row1 < dataSet.size(); row1++) {
+            for (int row2 = row1 + 1; row2 < dataSet.size(); row2++) {
+                for (int k = 0; k < columns.length; k++) {
+                    String key1 = StringUtils.left(dataSet.getFormattedValue(row1, columns[k]), lengths[k]);
+                    String key2 = StringUtils.left(dataSet.getFormattedValue(row2, columns[k]), lengths[k]);
+                    if (StringUtils.isNotEmpty(key1) && key1.equals(key2)) {
+                        expected.add(row1 + " " + row2);
+                        break;
+                    }
+                }
+            }
+        }
+        Assertions.assertEquals(expected, TestUtils.pairs(index));
+        Assertions.assertTrue(expected.size() < dataSet.size() * (dataSet.size() - 1) / 2);
+    }
+}
@@ -0,0 +1,48 @@
+package fr.frezilla.watsonhit.test;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import fr.frezilla.watsonhit.business.engine.ComparisonEngine;
+import fr.frezilla.watsonhit.business.engine.PairScorer;
+import fr.frezilla.watsonhit.business.engine.TriangularPairSpace;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class ComparisonEngineTU {
+
+    @Test
+    public void testThreads() throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, ""));
+        DataSet dataSet = TestUtils.loadDataSet(TestUtils.persons(300, 3), csvDescription);
+        PairScorer scorer = new PairScorer(csvDescription, dataSet);
+
+        for (double minSimilarity : new double[]{0.0, 60.0, 90.0}) {
+            List<String> expected = new ArrayList<>();
+            for (int row1 = 0; row1 < dataSet.size(); row1++) {
+                for (int row2 = row1 + 1; row2 < dataSet.size(); row2++) {
+                    double similarity = scorer.score(row1, row2);
+                    if (similarity >= minSimilarity) {
+                        expected.add(row1 + " " + row2 + " " + similarity);
+                    }
+                }
+            }
+
+            for (int threads : new int[]{1, 2, 3, 8}) {
+                ComparisonEngine engine = ComparisonEngine.builder().setMinSimilarity(minSimilarity).setThreads(threads).build();
+                Assertions.assertEquals(expected, TestUtils.run(engine, new TriangularPairSpace(dataSet.size()), scorer), "threads=" + threads + ", min=" + minSimilarity);
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, ""));
+        for (String csv : new String[]{"", "1,DUPONT,JEAN,PARIS,75001\n"}) {
+            DataSet dataSet = TestUtils.loadDataSet(csv, csvDescription);
+            ComparisonEngine engine = ComparisonEngine.builder().setThreads(4).build();
+            Assertions.assertTrue(TestUtils.run(engine, new TriangularPairSpace(dataSet.size()), new PairScorer(csvDescription, dataSet)).isEmpty());
+        }
+    }
+}
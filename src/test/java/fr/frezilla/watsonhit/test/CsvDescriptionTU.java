@@ -0,0 +1,110 @@
+package fr.frezilla.watsonhit.test;
+
+import fr.frezilla.watsonhit.business.csv.CsvBlockingKeyDescription;
+import fr.frezilla.watsonhit.business.csv.CsvBlockingKeyType;
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.csv.CsvMinHashDescription;
+import fr.frezilla.watsonhit.business.csv.CsvSortedNeighbourhoodDescription;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class CsvDescriptionTU {
+
+    /**
+     * Colonnes dont le code postal n'est ni pondéré ni affiché.
+     */
+    private static final String COLUMNS = TestUtils.PERSONS_COLUMNS.replace("<column name=\"cp\" weight=\"0.2\"/>", "<column name=\"cp\"/>");
+
+    private static void assertKey(CsvBlockingKeyDescription key, String column, CsvBlockingKeyType type, int length) {
+        Assertions.assertEquals(column, key.getColumn());
+        Assertions.assertEquals(type, key.getType());
+        Assertions.assertEquals(length, key.getLength());
+    }
+
+    @Test
+    public void testBlocking() throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS,
+                "<blocking><key column=\"nom\" type=\"soundex\"/><key column=\"ville\" type=\"prefix\" length=\"3\"/><key column=\"cp\"/></blocking>"));
+        List<CsvBlockingKeyDescription> keys = csvDescription.getBlockingKeysDescription();
+        Assertions.assertEquals(3, keys.size());
+        assertKey(keys.get(0), "nom", CsvBlockingKeyType.SOUNDEX, 1);
+        assertKey(keys.get(1), "ville", CsvBlockingKeyType.PREFIX, 3);
+        assertKey(keys.get(2), "cp", CsvBlockingKeyType.EXACT, 1);
+        Assertions.assertNull(csvDescription.getSortedNeighbourhoodDescription());
+        Assertions.assertNull(csvDescription.getMinHashDescription());
+
+        // Le code postal n'est utilisé que par une clé
+        Assertions.assertTrue(csvDescription.isColumnRequired(4));
+        Assertions.assertFalse(TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS, "")).isColumnRequired(4));
+        Assertions.assertTrue(TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS, "")).getBlockingKeysDescription().isEmpty());
+
+        Assertions.assertThrows(ConfigurationException.class, () -> TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS, "<blocking><key column=\"inconnue\"/></blocking>")));
+        Assertions.assertThrows(ConfigurationException.class, () -> TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS, "<blocking><key column=\"nom\" type=\"phonex\"/></blocking>")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS, "<blocking><key column=\"nom\" type=\"prefix\" length=\"0\"/></blocking>")));
+    }
+
+    @Test
+    public void testSortedNeighbourhood() throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS,
+                "<sortedNeighbourhood window=\"20\"><pass><key column=\"nom\" type=\"soundex\"/><key column=\"prenom\" type=\"prefix\" length=\"2\"/></pass><pass><key column=\"cp\"/></pass></sortedNeighbourhood>"));
+        CsvSortedNeighbourhoodDescription sortedNeighbourhood = csvDescription.getSortedNeighbourhoodDescription();
+        Assertions.assertEquals(20, sortedNeighbourhood.getWindow());
+        Assertions.assertEquals(2, sortedNeighbourhood.getPasses().size());
+        Assertions.assertEquals(2, sortedNeighbourhood.getPasses().get(0).size());
+        assertKey(sortedNeighbourhood.getPasses().get(0).get(0), "nom", CsvBlockingKeyType.SOUNDEX, 1);
+        assertKey(sortedNeighbourhood.getPasses().get(0).get(1), "prenom", CsvBlockingKeyType.PREFIX, 2);
+        assertKey(sortedNeighbourhood.getPasses().get(1).get(0), "cp", CsvBlockingKeyType.EXACT, 1);
+        Assertions.assertTrue(csvDescription.getBlockingKeysDescription().isEmpty());
+        Assertions.assertNull(csvDescription.getMinHashDescription());
+        Assertions.assertTrue(csvDescription.isColumnRequired(4));
+
+        // Fenêtre ou passes invalides
+        Assertions.assertThrows(ConfigurationException.class, () -> TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS, "<sortedNeighbourhood><pass><key column=\"nom\"/></pass></sortedNeighbourhood>")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS, "<sortedNeighbourhood window=\"0\"><pass><key column=\"nom\"/></pass></sortedNeighbourhood>")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS, "<sortedNeighbourhood window=\"5\"></sortedNeighbourhood>")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS, "<sortedNeighbourhood window=\"5\"><pass/></sortedNeighbourhood>")));
+        Assertions.assertThrows(ConfigurationException.class, () -> TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS, "<sortedNeighbourhood window=\"5\"><pass><key column=\"inconnue\"/></pass></sortedNeighbourhood>")));
+
+        // Clés de blocage et voisinage trié sont exclusifs
+        ConfigurationException e = Assertions.assertThrows(ConfigurationException.class, () -> TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS,
+                "<blocking><key column=\"nom\"/></blocking><sortedNeighbourhood window=\"5\"><pass><key column=\"nom\"/></pass></sortedNeighbourhood>")));
+        Assertions.assertTrue(e.getMessage().contains("ne peuvent pas être utilisés ensemble"), e.getMessage());
+    }
+
+    @Test
+    public void testMinHash() throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS,
+                "<minHash bands=\"10\" rows=\"4\" qgram=\"2\"><column name=\"nom\"/><column name=\"cp\"/></minHash>"));
+        CsvMinHashDescription minHash = csvDescription.getMinHashDescription();
+        Assertions.assertEquals(10, minHash.getBands());
+        Assertions.assertEquals(4, minHash.getRows());
+        Assertions.assertEquals(2, minHash.getQgram());
+        Assertions.assertEquals(Arrays.asList("nom", "cp"), minHash.getColumns());
+        Assertions.assertTrue(csvDescription.getBlockingKeysDescription().isEmpty());
+        Assertions.assertNull(csvDescription.getSortedNeighbourhoodDescription());
+        Assertions.assertTrue(csvDescription.isColumnRequired(4));
+
+        // Valeurs par défaut
+        minHash = TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS, "<minHash><column name=\"nom\"/></minHash>")).getMinHashDescription();
+        Assertions.assertEquals(20, minHash.getBands());
+        Assertions.assertEquals(5, minHash.getRows());
+        Assertions.assertEquals(3, minHash.getQgram());
+
+        // Paramètres ou colonnes invalides
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS, "<minHash bands=\"0\"><column name=\"nom\"/></minHash>")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS, "<minHash rows=\"0\"><column name=\"nom\"/></minHash>")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS, "<minHash qgram=\"0\"><column name=\"nom\"/></minHash>")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS, "<minHash/>")));
+        Assertions.assertThrows(ConfigurationException.class, () -> TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS, "<minHash><column name=\"inconnue\"/></minHash>")));
+
+        // MinHash exclut les clés de blocage et le voisinage trié
+        for (String other : new String[]{"<blocking><key column=\"nom\"/></blocking>", "<sortedNeighbourhood window=\"5\"><pass><key column=\"nom\"/></pass></sortedNeighbourhood>"}) {
+            ConfigurationException e = Assertions.assertThrows(ConfigurationException.class, () -> TestUtils.loadCsvDescription(TestUtils.descriptor(COLUMNS,
+                    other + "<minHash><column name=\"nom\"/></minHash>")));
+            Assertions.assertTrue(e.getMessage().contains("MinHash ne peut pas être utilisé"), e.getMessage());
+        }
+    }
+}
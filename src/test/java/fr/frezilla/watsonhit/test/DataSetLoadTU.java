@@ -0,0 +1,78 @@
+package fr.frezilla.watsonhit.test;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.CsvFormatException;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import java.io.File;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class DataSetLoadTU {
+
+    /**
+     * Nombre de lignes du fichier : plus de 5 Mo, soit plusieurs plages lues
+     * en parallèle.
+     */
+    private static final int NB_ROWS = 200000;
+
+    private static DataSet load(File csv, CsvDescription csvDescription, int threads) throws Exception {
+        return DataSet.builder(csv.getPath()).setCsvDescription(csvDescription).setDelimiter(",").setThreads(threads).load();
+    }
+
+    private static long errorLine(String content, CsvDescription csvDescription, int threads) throws Exception {
+        File csv = TestUtils.writeTempFile(".csv", content);
+        return Assertions.assertThrows(CsvFormatException.class, () -> load(csv, csvDescription, threads)).getLineNumber();
+    }
+
+    /**
+     * Remplace une ligne par une ligne comportant une colonne de trop.
+     */
+    private static String withBadLine(String content, int row) {
+        int start = 0;
+        for (int i = 0; i < row; i++) {
+            start = content.indexOf('\n', start) + 1;
+        }
+        return content.substring(0, start) + "x," + content.substring(start);
+    }
+
+    @Test
+    public void testParallelLoad() throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, ""));
+        File csv = TestUtils.writeTempFile(".csv", TestUtils.persons(NB_ROWS, 16));
+        Assertions.assertTrue(csv.length() > 5 << 20);
+
+        DataSet expected = load(csv, csvDescription, 1);
+        DataSet actual = load(csv, csvDescription, 4);
+        Assertions.assertEquals(NB_ROWS, expected.size());
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (int c = 0; c < expected.getColumnCount(); c++) {
+            Assertions.assertArrayEquals(expected.getDictionary(c), actual.getDictionary(c));
+            Assertions.assertArrayEquals(expected.getValueIds(c), actual.getValueIds(c));
+            Assertions.assertEquals(expected.getColumnStatistics(c).getValueCount(), actual.getColumnStatistics(c).getValueCount());
+            Assertions.assertEquals(expected.getColumnStatistics(c).getEmptyCount(), actual.getColumnStatistics(c).getEmptyCount());
+            Assertions.assertEquals(expected.getColumnStatistics(c).getMaxLength(), actual.getColumnStatistics(c).getMaxLength());
+            Assertions.assertEquals(expected.getColumnStatistics(c).getDistinctEstimate(), actual.getColumnStatistics(c).getDistinctEstimate());
+        }
+        for (int row = 0; row < expected.size(); row++) {
+            Assertions.assertArrayEquals(expected.getRawRow(row), actual.getRawRow(row));
+        }
+    }
+
+    @Test
+    public void testErrorLine() throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, ""));
+        String content = TestUtils.persons(NB_ROWS, 17);
+
+        // Ligne erronée dans la dernière plage
+        String badContent = withBadLine(content, NB_ROWS - 10);
+        for (int threads : new int[]{1, 4}) {
+            Assertions.assertEquals(NB_ROWS - 9, errorLine(badContent, csvDescription, threads), "threads=" + threads);
+        }
+
+        // La première ligne erronée du fichier est signalée
+        badContent = withBadLine(badContent, NB_ROWS / 2);
+        for (int threads : new int[]{1, 4}) {
+            Assertions.assertEquals(NB_ROWS / 2 + 1, errorLine(badContent, csvDescription, threads), "threads=" + threads);
+        }
+    }
+}
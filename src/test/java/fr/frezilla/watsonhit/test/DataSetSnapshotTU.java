@@ -0,0 +1,105 @@
+package fr.frezilla.watsonhit.test;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.ColumnStatistics;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import fr.frezilla.watsonhit.business.data.DataSetSnapshot;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class DataSetSnapshotTU {
+
+    /**
+     * Colonnes des personnes, le code postal n'étant pas utilisé : ses
+     * valeurs brutes ne sont pas décodées.
+     */
+    private static final String COLUMNS = TestUtils.PERSONS_COLUMNS.replace("<column name=\"cp\" weight=\"0.2\"/>", "<column name=\"cp\"/>");
+
+    private static DataSetSnapshot snapshot(File csv, File xml, String delimiter) throws IOException {
+        new File(csv.getPath() + DataSetSnapshot.EXTENSION).deleteOnExit();
+        return DataSetSnapshot.builder(csv.getPath()).setDescriptionFileName(xml.getPath()).setDelimiter(delimiter).build();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        File csv = TestUtils.writeTempFile(".csv", TestUtils.persons(500, 20));
+        File xml = TestUtils.writeTempFile(".xml", TestUtils.descriptor(COLUMNS, ""));
+        CsvDescription csvDescription = CsvDescription.builder(xml.getPath()).load();
+        DataSet expected = DataSet.builder(csv.getPath()).setCsvDescription(csvDescription).setDelimiter(",").load();
+
+        DataSetSnapshot snapshot = snapshot(csv, xml, ",");
+        Assertions.assertNull(snapshot.load());
+        snapshot.save(expected);
+        DataSet actual = snapshot(csv, xml, ",").load();
+        Assertions.assertNotNull(actual);
+
+        Assertions.assertEquals(expected.size(), actual.size());
+        Assertions.assertEquals(expected.getColumnCount(), actual.getColumnCount());
+        for (int c = 0; c < expected.getColumnCount(); c++) {
+            Assertions.assertArrayEquals(expected.getDictionary(c), actual.getDictionary(c));
+            Assertions.assertArrayEquals(expected.getValueIds(c), actual.getValueIds(c));
+            ColumnStatistics expectedStatistics = expected.getColumnStatistics(c);
+            ColumnStatistics actualStatistics = actual.getColumnStatistics(c);
+            Assertions.assertEquals(expectedStatistics.getValueCount(), actualStatistics.getValueCount());
+            Assertions.assertEquals(expectedStatistics.getEmptyCount(), actualStatistics.getEmptyCount());
+            Assertions.assertEquals(expectedStatistics.getMaxLength(), actualStatistics.getMaxLength());
+            Assertions.assertEquals(expectedStatistics.getDistinctEstimate(), actualStatistics.getDistinctEstimate());
+            Assertions.assertEquals(expectedStatistics.merge(expected.getColumnStatistics(0)).getDistinctEstimate(), actualStatistics.merge(expected.getColumnStatistics(0)).getDistinctEstimate());
+        }
+
+        // Valeurs brutes non décodées, égales ou non à la valeur normalisée
+        int nullCount = 0;
+        int normalizedCount = 0;
+        int rawCount = 0;
+        for (int row = 0; row < expected.size(); row++) {
+            String[] expectedRow = expected.getRawRow(row);
+            Assertions.assertArrayEquals(expectedRow, actual.getRawRow(row));
+            for (int c = 0; c < expectedRow.length; c++) {
+                int id = expected.getValueIds(c)[row];
+                if (expectedRow[c] == null) {
+                    nullCount++;
+                } else if (id != DataSet.NULL_ID && expectedRow[c].equals(expected.getDictionary(c)[id])) {
+                    normalizedCount++;
+                } else {
+                    rawCount++;
+                }
+            }
+        }
+        Assertions.assertEquals(expected.size(), nullCount);
+        Assertions.assertTrue(normalizedCount > 0);
+        Assertions.assertTrue(rawCount > 0);
+    }
+
+    @Test
+    public void testStale() throws Exception {
+        String content = TestUtils.persons(50, 21);
+        File csv = TestUtils.writeTempFile(".csv", content);
+        File xml = TestUtils.writeTempFile(".xml", TestUtils.descriptor(COLUMNS, ""));
+        CsvDescription csvDescription = CsvDescription.builder(xml.getPath()).load();
+        snapshot(csv, xml, ",").save(DataSet.builder(csv.getPath()).setCsvDescription(csvDescription).setDelimiter(",").load());
+        Assertions.assertNotNull(snapshot(csv, xml, ",").load());
+
+        // Délimiteur
+        Assertions.assertNull(snapshot(csv, xml, ";").load());
+
+        // Description
+        File otherXml = TestUtils.writeTempFile(".xml", TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, ""));
+        Assertions.assertNull(snapshot(csv, otherXml, ",").load());
+        FileUtils.writeStringToFile(xml, TestUtils.descriptor(COLUMNS, " "), StandardCharsets.UTF_8);
+        Assertions.assertNull(snapshot(csv, xml, ",").load());
+        FileUtils.writeStringToFile(xml, TestUtils.descriptor(COLUMNS, ""), StandardCharsets.UTF_8);
+        Assertions.assertNotNull(snapshot(csv, xml, ",").load());
+
+        // Contenu du fichier csv, de même taille ou non
+        FileUtils.writeStringToFile(csv, content.replaceFirst("0,", "9,"), StandardCharsets.UTF_8);
+        Assertions.assertNull(snapshot(csv, xml, ",").load());
+        FileUtils.writeStringToFile(csv, content + "50,DUPONT,JEAN,PARIS,75001\n", StandardCharsets.UTF_8);
+        Assertions.assertNull(snapshot(csv, xml, ",").load());
+        FileUtils.writeStringToFile(csv, content, StandardCharsets.UTF_8);
+        Assertions.assertNotNull(snapshot(csv, xml, ",").load());
+    }
+}
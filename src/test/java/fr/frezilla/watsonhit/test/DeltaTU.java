@@ -0,0 +1,168 @@
+package fr.frezilla.watsonhit.test;
+
+import fr.frezilla.watsonhit.business.blocking.BlockingIndex;
+import fr.frezilla.watsonhit.business.blocking.MinHashIndex;
+import fr.frezilla.watsonhit.business.blocking.SortedNeighbourhoodIndex;
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import fr.frezilla.watsonhit.business.engine.ComparisonEngine;
+import fr.frezilla.watsonhit.business.engine.DeltaPairSpace;
+import fr.frezilla.watsonhit.business.engine.PairScorer;
+import fr.frezilla.watsonhit.business.engine.PairSpace;
+import fr.frezilla.watsonhit.business.engine.TriangularPairSpace;
+import fr.frezilla.watsonhit.business.result.BinaryResultReader;
+import fr.frezilla.watsonhit.business.result.MergingResultSink;
+import fr.frezilla.watsonhit.business.result.ResultFormat;
+import fr.frezilla.watsonhit.business.result.ResultSink;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.function.Function;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class DeltaTU {
+
+    private static final int NB_OLD_ROWS = 1200;
+    private static final int NB_NEW_ROWS = 300;
+
+    private static final ComparisonEngine ENGINE = ComparisonEngine.builder().setMinSimilarity(60.0).setThreads(3).build();
+
+    /**
+     * Compare les paires et retourne le résultat au format BINARY,
+     * éventuellement fusionné avec un résultat précédent.
+     */
+    private static byte[] run(PairSpace pairSpace, DataSet dataSet, CsvDescription csvDescription, File previous, int firstNewRow) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultSink resultSink = ResultFormat.BINARY.create(out, csvDescription, dataSet, dataSet.size(), 0, 1, ",");
+        if (previous != null) {
+            resultSink = new MergingResultSink(resultSink, new BinaryResultReader(previous.getPath()), firstNewRow);
+        }
+        try (ResultSink sink = resultSink) {
+            sink.begin();
+            ENGINE.run(pairSpace, new PairScorer(csvDescription, dataSet), sink, n -> {
+            });
+            sink.end();
+        }
+        return out.toByteArray();
+    }
+
+    private static File write(byte[] content) throws IOException {
+        File file = File.createTempFile("watsonHit", ".bin");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+        return file;
+    }
+
+    /**
+     * Retourne le résultat complet et le résultat du mode delta, fusionné
+     * avec le résultat précédent.
+     *
+     * @param extra éléments de la description suivant les colonnes
+     * @param index ensemble des paires des lignes d'un jeu de données
+     * @param triangular restreint les paires aux nouvelles lignes par
+     * {@link TriangularPairSpace} au lieu de {@link DeltaPairSpace}
+     */
+    private static byte[][] runDelta(String extra, Function<CsvDescription, Function<DataSet, PairSpace>> index, boolean triangular) throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, extra));
+        Function<DataSet, PairSpace> pairSpace = index.apply(csvDescription);
+        String content = TestUtils.persons(NB_OLD_ROWS + NB_NEW_ROWS, 21);
+        int split = 0;
+        for (int row = 0; row < NB_OLD_ROWS; row++) {
+            split = content.indexOf('\n', split) + 1;
+        }
+        DataSet full = TestUtils.loadDataSet(content, csvDescription);
+        DataSet previous = TestUtils.loadDataSet(content.substring(0, split), csvDescription);
+        DataSet dataSet = previous.append(TestUtils.loadDataSet(content.substring(split), csvDescription));
+
+        // Les lignes ajoutées sont celles du fichier complet
+        Assertions.assertEquals(full.size(), dataSet.size());
+        for (int c = 0; c < full.getColumnCount(); c++) {
+            Assertions.assertArrayEquals(full.getDictionary(c), dataSet.getDictionary(c));
+            Assertions.assertArrayEquals(full.getValueIds(c), dataSet.getValueIds(c));
+        }
+        for (int row = 0; row < full.size(); row++) {
+            Assertions.assertArrayEquals(full.getRawRow(row), dataSet.getRawRow(row));
+        }
+
+        File previousResult = write(run(pairSpace.apply(previous), previous, csvDescription, null, 0));
+        return new byte[][]{
+            run(pairSpace.apply(full), full, csvDescription, null, 0),
+            run(triangular ? new TriangularPairSpace(dataSet.size(), NB_OLD_ROWS) : new DeltaPairSpace(pairSpace.apply(dataSet), NB_OLD_ROWS), dataSet, csvDescription, previousResult, NB_OLD_ROWS)
+        };
+    }
+
+    @Test
+    public void testDelta() throws Exception {
+        for (boolean triangular : new boolean[]{false, true}) {
+            byte[][] results = runDelta("", d -> dataSet -> new TriangularPairSpace(dataSet.size()), triangular);
+            Assertions.assertArrayEquals(results[0], results[1]);
+            Assertions.assertTrue(results[0].length > 10000);
+        }
+
+        byte[][] results = runDelta("<blocking><key column=\"nom\" type=\"soundex\"/><key column=\"ville\" type=\"prefix\" length=\"2\"/></blocking>",
+                d -> dataSet -> BlockingIndex.builder(dataSet).setCsvDescription(d).build(), false);
+        Assertions.assertArrayEquals(results[0], results[1]);
+
+        results = runDelta("<minHash bands=\"20\" rows=\"2\" qgram=\"2\"><column name=\"nom\"/><column name=\"prenom\"/></minHash>",
+                d -> dataSet -> MinHashIndex.builder(dataSet).setCsvDescription(d).build(), false);
+        Assertions.assertArrayEquals(results[0], results[1]);
+    }
+
+    /**
+     * Le voisinage trié diverge : les nouvelles lignes déplacent les fenêtres
+     * des anciennes lignes, le résultat fusionné comporte des paires
+     * d'anciennes lignes qu'un traitement complet ne compare pas. Le résultat
+     * précédent n'est donc pas accepté avec le voisinage trié.
+     */
+    @Test
+    public void testSortedNeighbourhoodDivergence() throws Exception {
+        byte[][] results = runDelta("<sortedNeighbourhood window=\"3\"><pass><key column=\"nom\"/></pass></sortedNeighbourhood>",
+                d -> dataSet -> SortedNeighbourhoodIndex.builder(dataSet).setCsvDescription(d).build(), false);
+        Assertions.assertTrue(results[1].length > results[0].length);
+    }
+
+    @Test
+    public void testPreviousErrors() throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, ""));
+        DataSet dataSet = TestUtils.loadDataSet(TestUtils.persons(20, 22), csvDescription);
+        PairSpace pairSpace = new TriangularPairSpace(dataSet.size(), 10);
+        int[][][] previousPairs = {
+            {{0, 1}, {2, 3}, {1, 5}},
+            {{0, 1}, {0, 1}},
+            {{0, 1}, {3, 12}}
+        };
+        String[] messages = {"not sorted", "not sorted", "does not match"};
+        for (int i = 0; i < previousPairs.length; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (ResultSink sink = ResultFormat.BINARY.create(out, csvDescription, dataSet, ",")) {
+                sink.begin();
+                for (int[] pair : previousPairs[i]) {
+                    sink.handle(pair[0], pair[1], 90.0);
+                }
+                sink.end();
+            }
+            File previous = write(out.toByteArray());
+            IOException e = Assertions.assertThrows(IOException.class, () -> run(pairSpace, dataSet, csvDescription, previous, 10));
+            Assertions.assertTrue(e.getMessage().contains(messages[i]), e.getMessage());
+        }
+
+        // Résultat précédent d'un lot, ou calculé sur un autre nombre de
+        // lignes
+        int[][] headers = {{10, 0, 2}, {10, 1, 2}, {20, 0, 1}, {9, 0, 1}};
+        for (int[] header : headers) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (ResultSink sink = ResultFormat.BINARY.create(out, csvDescription, dataSet, header[0], header[1], header[2], ",")) {
+                sink.begin();
+                sink.handle(0, 1, 90.0);
+                sink.end();
+            }
+            File previous = write(out.toByteArray());
+            IOException e = Assertions.assertThrows(IOException.class, () -> run(pairSpace, dataSet, csvDescription, previous, 10));
+            Assertions.assertTrue(e.getMessage().contains("does not match the 10 previous rows"), e.getMessage());
+        }
+    }
+}
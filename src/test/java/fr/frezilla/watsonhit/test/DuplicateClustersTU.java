@@ -0,0 +1,128 @@
+package fr.frezilla.watsonhit.test;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.RowSource;
+import fr.frezilla.watsonhit.business.result.ResultFormat;
+import fr.frezilla.watsonhit.business.result.ResultSink;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class DuplicateClustersTU {
+
+    private static final RowSource ROWS = row -> new String[]{String.valueOf(row), "NOM" + row, "PRENOM", "VILLE", null};
+
+    /**
+     * Ecrit les groupes formés par des paires et retourne, pour chaque groupe,
+     * son numéro, sa taille, ses taux minimal et maximal et ses lignes.
+     */
+    private static List<String> clusters(int nbRows, double[][] pairs) throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, ""));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ResultSink sink = ResultFormat.JSONL.createClusters(out, csvDescription, ROWS, nbRows, ",")) {
+            sink.begin();
+            for (double[] pair : pairs) {
+                sink.handle((int) pair[0], (int) pair[1], pair[2]);
+            }
+            sink.end();
+        }
+        String content = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        List<String> clusters = new ArrayList<>();
+        for (String line : content.split("\n")) {
+            if (!line.isEmpty()) {
+                String cluster = line.replaceAll("\\{\"cluster\":(\\d+),\"size\":(\\d+),\"minSimilarity\":([0-9.]+),\"maxSimilarity\":([0-9.]+),\"rows\":\\[([0-9,]*)\\].*", "$1 $2 $3 $4 $5");
+                String members = Arrays.stream(cluster.substring(cluster.lastIndexOf(' ') + 1).split(","))
+                        .map(row -> "{\"id\":\"" + row + "\",\"nom\":\"NOM" + row + "\",\"prenom\":\"PRENOM\",\"ville\":\"VILLE\"}")
+                        .collect(Collectors.joining(","));
+                Assertions.assertTrue(line.endsWith(",\"members\":[" + members + "]}"), line);
+                clusters.add(cluster);
+            }
+        }
+        return clusters;
+    }
+
+    /**
+     * Groupes de référence : composantes connexes calculées par parcours du
+     * graphe des paires.
+     */
+    private static List<String> expected(int nbRows, double[][] pairs) {
+        int[] components = new int[nbRows];
+        Arrays.fill(components, -1);
+        List<String> clusters = new ArrayList<>();
+        for (int row = 0; row < nbRows; row++) {
+            if (components[row] >= 0) {
+                continue;
+            }
+            TreeSet<Integer> members = new TreeSet<>();
+            List<Integer> pending = new ArrayList<>();
+            pending.add(row);
+            components[row] = row;
+            while (!pending.isEmpty()) {
+                int r = pending.remove(pending.size() - 1);
+                members.add(r);
+                for (double[] pair : pairs) {
+                    int other = (pair[0] == r) ? (int) pair[1] : (pair[1] == r) ? (int) pair[0] : -1;
+                    if (other >= 0 && components[other] < 0) {
+                        components[other] = row;
+                        pending.add(other);
+                    }
+                }
+            }
+            if (members.size() > 1) {
+                double min = Arrays.stream(pairs).filter(p -> members.contains((int) p[0])).mapToDouble(p -> p[2]).min().getAsDouble();
+                double max = Arrays.stream(pairs).filter(p -> members.contains((int) p[0])).mapToDouble(p -> p[2]).max().getAsDouble();
+                clusters.add((clusters.size() + 1) + " " + members.size() + " " + String.format(Locale.ROOT, "%.2f", min) + " " + String.format(Locale.ROOT, "%.2f", max)
+                        + " " + members.stream().map(String::valueOf).collect(Collectors.joining(",")));
+            }
+        }
+        return clusters;
+    }
+
+    @Test
+    public void testClusters() throws Exception {
+        double[][] pairs = {
+            {5, 7, 90.0},
+            {0, 3, 80.5},
+            {3, 5, 99.5},
+            {8, 9, 70.0},
+            {1, 2, 81.204999},
+            {0, 7, 85.0}
+        };
+        List<String> clusters = clusters(11, pairs);
+        Assertions.assertEquals(Arrays.asList(
+                "1 4 80.50 99.50 0,3,5,7",
+                "2 2 81.20 81.20 1,2",
+                "3 2 70.00 70.00 8,9"), clusters);
+        Assertions.assertEquals(expected(11, pairs), clusters);
+
+        Assertions.assertEquals(0, clusters(5, new double[0][]).size());
+    }
+
+    @Test
+    public void testRandomClusters() throws Exception {
+        Random random = new Random(24);
+        for (int test = 0; test < 20; test++) {
+            int nbRows = 2 + random.nextInt(60);
+            double[][] pairs = new double[random.nextInt(nbRows)][];
+            for (int i = 0; i < pairs.length; i++) {
+                int row1 = random.nextInt(nbRows - 1);
+                int row2 = row1 + 1 + random.nextInt(nbRows - row1 - 1);
+                pairs[i] = new double[]{row1, row2, 50.0 + random.nextDouble() * 50.0};
+            }
+            Assertions.assertEquals(expected(nbRows, pairs), clusters(nbRows, pairs));
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        Assertions.assertTrue(clusters(0, new double[0][]).isEmpty());
+    }
+}
@@ -0,0 +1,54 @@
+package fr.frezilla.watsonhit.test;
+
+import fr.frezilla.watsonhit.reader.file.MappedCsvReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class MappedCsvReaderTU {
+
+    private static List<String> read(String content, String delimiter, int windowSize) throws IOException {
+        File f = File.createTempFile("watsonHit", ".csv");
+        try {
+            FileUtils.writeStringToFile(f, content, StandardCharsets.UTF_8);
+            List<String> lines = new ArrayList<>();
+            try (MappedCsvReader reader = MappedCsvReader.builder(f.getPath()).setCharset(StandardCharsets.UTF_8).setDelimiter(delimiter).setWindowSize(windowSize).build()) {
+                while (reader.next()) {
+                    lines.add(reader.getLineNumber() + ":" + String.join("|", reader.getFields()));
+                }
+            }
+            return lines;
+        } finally {
+            f.delete();
+        }
+    }
+
+    @Test
+    public void testLines() throws IOException {
+        String content = "1,DUPONT,Jéan\r\n2,MARTIN,,\n\r3,,Zoé";
+        for (int windowSize : new int[]{1, 2, 3, 7, 1024}) {
+            List<String> lines = read(content, ",", windowSize);
+            Assertions.assertEquals(4, lines.size());
+            Assertions.assertEquals("1:1|DUPONT|Jéan", lines.get(0));
+            Assertions.assertEquals("2:2|MARTIN||", lines.get(1));
+            Assertions.assertEquals("3:", lines.get(2));
+            Assertions.assertEquals("4:3||Zoé", lines.get(3));
+        }
+    }
+
+    @Test
+    public void testDelimiter() throws IOException {
+        for (int windowSize : new int[]{1, 4, 1024}) {
+            List<String> lines = read("a;;b;c\n|x|;;\n", ";;", windowSize);
+            Assertions.assertEquals(2, lines.size());
+            Assertions.assertEquals("1:a|b;c", lines.get(0));
+            Assertions.assertEquals("2:|x||", lines.get(1));
+        }
+        Assertions.assertTrue(read("", ",", 16).isEmpty());
+    }
+}
@@ -0,0 +1,49 @@
+package fr.frezilla.watsonhit.test;
+
+import fr.frezilla.watsonhit.business.blocking.MinHashIndex;
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class MinHashIndexTU {
+
+    private static final String MIN_HASH = "<minHash bands=\"20\" rows=\"2\" qgram=\"2\"><column name=\"nom\"/><column name=\"prenom\"/></minHash>";
+
+    @Test
+    public void testCandidates() throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, MIN_HASH));
+        DataSet dataSet = TestUtils.loadDataSet(
+                "1,DUPONTEL,JEAN-PIERRE,PARIS,75001\n"
+                + "2,DUPONTELS,JEAN-PIERRE,LYON,69001\n"
+                + "3,XYZW,KLMH,PARIS,75001\n"
+                + "4,,,PARIS,75001\n"
+                + "5,DUPONTEL,JEAN-PIERRE,LILLE,59000\n"
+                + "6,XYZW,KLMHQ,,\n"
+                + "7,,,PARIS,75001\n", csvDescription);
+        MinHashIndex index = MinHashIndex.builder(dataSet).setCsvDescription(csvDescription).build();
+
+        Assertions.assertEquals(20, index.getBands());
+        Assertions.assertEquals(2, index.getRows());
+        Assertions.assertEquals(dataSet.size(), index.size());
+
+        // Doublons exacts ou proches : au moins une bande commune ; lignes
+        // sans q-gramme commun ou sans valeur : aucune
+        List<String> pairs = TestUtils.pairs(index);
+        Assertions.assertEquals(Arrays.asList("0 1", "0 4", "1 4", "2 5"), pairs);
+        Assertions.assertTrue(index.countCandidatePairs() >= pairs.size());
+    }
+
+    @Test
+    public void testProbability() throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, MIN_HASH));
+        MinHashIndex index = MinHashIndex.builder(TestUtils.loadDataSet("", csvDescription)).setCsvDescription(csvDescription).build();
+        Assertions.assertEquals(0, index.size());
+        Assertions.assertEquals(0.0, index.candidateProbability(0.0));
+        Assertions.assertEquals(1.0, index.candidateProbability(1.0));
+        Assertions.assertEquals(0.5, index.candidateProbability(Math.sqrt(1.0 - Math.pow(0.5, 1.0 / 20))), 1e-9);
+        Assertions.assertEquals(Math.pow(1.0 / 20, 1.0 / 2), index.getThreshold(), 1e-12);
+    }
+}
@@ -0,0 +1,209 @@
+package fr.frezilla.watsonhit.test;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import fr.frezilla.watsonhit.business.engine.CacheEvictionPolicy;
+import fr.frezilla.watsonhit.business.engine.PairScorer;
+import fr.frezilla.watsonhit.business.similarity.SimilarityAlgorithms;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class PairScorerTU {
+
+    /**
+     * Nombre de lignes au-delà duquel la colonne des noms de
+     * {@link #words(int, long)} ne tient plus dans un cache complet.
+     */
+    private static final int LARGE_DICTIONARY = 2100;
+
+    /**
+     * Indique si le calcul du taux d'une paire de lignes a trouvé le taux de
+     * la colonne des noms en cache.
+     */
+    private static boolean isHit(PairScorer scorer, int row1, int row2, double minSimilarity) {
+        long hits = scorer.getCacheHits(1);
+        long misses = scorer.getCacheMisses(1);
+        scorer.score(row1, row2, minSimilarity);
+        Assertions.assertEquals(1, scorer.getCacheHits(1) - hits + scorer.getCacheMisses(1) - misses);
+        return scorer.getCacheHits(1) > hits;
+    }
+
+    private static String columns(SimilarityAlgorithms algorithm) {
+        return "<columns>"
+                + "<column name=\"id\" id=\"1\"/>"
+                + "<column name=\"nom\" weight=\"0.8\" algorithm=\"" + algorithm + "\"/>"
+                + "<column name=\"prenom\" weight=\"0.5\" algorithm=\"" + algorithm + "\"/>"
+                + "<column name=\"ville\" weight=\"0.3\"/>"
+                + "<column name=\"cp\" weight=\"0.2\"/>"
+                + "</columns>";
+    }
+
+    /**
+     * Description dont seule la colonne des noms est pondérée.
+     */
+    private static CsvDescription names() throws Exception {
+        return TestUtils.loadCsvDescription(TestUtils.descriptor("<columns>"
+                + "<column name=\"id\" id=\"1\"/>"
+                + "<column name=\"nom\" weight=\"1\" algorithm=\"LEVENSTEIN\"/>"
+                + "<column name=\"prenom\"/>"
+                + "<column name=\"ville\"/>"
+                + "<column name=\"cp\"/>"
+                + "</columns>", ""));
+    }
+
+    /**
+     * Génère un fichier csv de personnes dont les noms sont des mots
+     * aléatoires proches les uns des autres.
+     *
+     * @param nbRows
+     * @param seed
+     * @return
+     */
+    private static String words(int nbRows, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < nbRows; row++) {
+            sb.append(row).append(',');
+            int length = 4 + random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                sb.append("ABDEIMNORT".charAt(random.nextInt(10)));
+            }
+            sb.append(',').append(random.nextBoolean() ? "JEAN" : "JEANNE").append(",PARIS,").append(75000 + random.nextInt(3)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Vérifie que le taux calculé avec un taux minimal est exact pour les
+     * paires qui l'atteignent et que les paires abandonnées ne l'atteignent
+     * pas.
+     */
+    private static void checkPruning(PairScorer scorer, int nbRows) {
+        for (double minSimilarity : new double[]{0.0, 30.0, 55.5, 70.0, 85.0, 99.0, 100.0}) {
+            int kept = 0;
+            for (int row1 = 0; row1 < nbRows; row1++) {
+                for (int row2 = row1 + 1; row2 < nbRows; row2++) {
+                    double exact = scorer.score(row1, row2);
+                    double similarity = scorer.score(row1, row2, minSimilarity);
+                    if (similarity >= minSimilarity) {
+                        Assertions.assertEquals(exact, similarity, row1 + "/" + row2 + ", min=" + minSimilarity);
+                        kept++;
+                    } else {
+                        Assertions.assertTrue(exact < minSimilarity, row1 + "/" + row2 + ", min=" + minSimilarity);
+                    }
+                }
+            }
+            if (minSimilarity == 0.0) {
+                Assertions.assertEquals(nbRows * (nbRows - 1) / 2, kept);
+            }
+        }
+    }
+
+    @Test
+    public void testPruning() throws Exception {
+        for (SimilarityAlgorithms algorithm : SimilarityAlgorithms.values()) {
+            CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(columns(algorithm), ""));
+
+            // Colonnes en cache complet
+            DataSet dataSet = TestUtils.loadDataSet(TestUtils.persons(150, 7), csvDescription);
+            checkPruning(new PairScorer(csvDescription, dataSet), dataSet.size());
+
+            // Noms calculés par l'algorithme avec le taux minimal, sans cache
+            // ou avec un cache borné
+            dataSet = TestUtils.loadDataSet(words(LARGE_DICTIONARY, 7), csvDescription);
+            for (int cacheSize : new int[]{0, 64}) {
+                PairScorer scorer = new PairScorer(csvDescription, dataSet, cacheSize, CacheEvictionPolicy.LRU);
+                Assertions.assertEquals(cacheSize > 0, scorer.isCached(1));
+                checkPruning(scorer, 150);
+            }
+        }
+    }
+
+    @Test
+    public void testDenseCache() throws Exception {
+        CsvDescription csvDescription = names();
+        DataSet dataSet = TestUtils.loadDataSet("1,DUPONT,,,\n2,DUPOND,,,\n3,MARTIN,,,\n4,DUPOND,,,\n5,DUPONT,,,\n6,,,,\n7,MARTINEZ,,,\n", csvDescription);
+        PairScorer scorer = new PairScorer(csvDescription, dataSet, 0, CacheEvictionPolicy.LRU);
+        Assertions.assertTrue(scorer.isCacheComplete(1));
+
+        Assertions.assertFalse(isHit(scorer, 0, 1, 0.0));
+        Assertions.assertTrue(isHit(scorer, 0, 1, 0.0));
+        Assertions.assertTrue(isHit(scorer, 1, 0, 0.0));
+        Assertions.assertTrue(isHit(scorer, 3, 4, 0.0));
+        Assertions.assertTrue(isHit(scorer, 0, 3, 0.0));
+        Assertions.assertFalse(isHit(scorer, 0, 2, 0.0));
+
+        // Le taux d'une paire consultée avec un taux minimal élevé est
+        // conservé exact
+        Assertions.assertFalse(isHit(scorer, 2, 6, 99.0));
+        Assertions.assertEquals(75.0, scorer.score(2, 6));
+
+        // Valeurs identiques ou vides : pas de consultation du cache
+        long accesses = scorer.getCacheHits(1) + scorer.getCacheMisses(1);
+        Assertions.assertEquals(100.0, scorer.score(0, 4));
+        Assertions.assertEquals(0.0, scorer.score(0, 5));
+        Assertions.assertEquals(accesses, scorer.getCacheHits(1) + scorer.getCacheMisses(1));
+    }
+
+    @Test
+    public void testBoundedCacheEviction() throws Exception {
+        CsvDescription csvDescription = names();
+        DataSet dataSet = TestUtils.loadDataSet(words(LARGE_DICTIONARY, 13), csvDescription);
+        Assertions.assertEquals(10, Arrays.stream(dataSet.getValueIds(1), 0, 10).distinct().count());
+
+        // 8 paires : un seul ensemble de 8 cases ; la paire (0, k) est la
+        // k-ième paire mise en cache
+        for (CacheEvictionPolicy policy : CacheEvictionPolicy.values()) {
+            PairScorer scorer = new PairScorer(csvDescription, dataSet, 8, policy);
+            Assertions.assertFalse(scorer.isCacheComplete(1));
+            for (int row = 1; row <= 8; row++) {
+                Assertions.assertFalse(isHit(scorer, 0, row, 0.0));
+            }
+            for (int row = 1; row <= 8; row++) {
+                Assertions.assertTrue(isHit(scorer, row, 0, 0.0));
+            }
+            Assertions.assertTrue(isHit(scorer, 0, 1, 0.0));
+            Assertions.assertFalse(isHit(scorer, 0, 9, 0.0));
+            if (policy == CacheEvictionPolicy.LRU) {
+                // La paire la moins récemment consultée est évincée
+                Assertions.assertTrue(isHit(scorer, 0, 1, 0.0));
+                Assertions.assertFalse(isHit(scorer, 0, 2, 0.0));
+            } else {
+                // Tous les bits de référence sont levés : l'aiguille les
+                // remet à zéro puis évince la case de la 1ère paire
+                Assertions.assertTrue(isHit(scorer, 0, 2, 0.0));
+                Assertions.assertFalse(isHit(scorer, 0, 1, 0.0));
+            }
+            Assertions.assertTrue(isHit(scorer, 0, 9, 0.0));
+        }
+    }
+
+    @Test
+    public void testBoundedCacheTruncatedScore() throws Exception {
+        CsvDescription csvDescription = names();
+        DataSet dataSet = TestUtils.loadDataSet(words(LARGE_DICTIONARY, 13), csvDescription);
+        PairScorer exact = new PairScorer(csvDescription, dataSet, 0, CacheEvictionPolicy.LRU);
+
+        for (CacheEvictionPolicy policy : CacheEvictionPolicy.values()) {
+            PairScorer scorer = new PairScorer(csvDescription, dataSet, 1024, policy);
+            for (int row = 1; row < 200; row++) {
+                double similarity = exact.score(0, row);
+                if (similarity < 90.0) {
+                    // Taux tronqué, conservé comme majorant du taux minimal
+                    Assertions.assertFalse(isHit(scorer, 0, row, 90.0));
+                    Assertions.assertTrue(scorer.score(0, row, 90.0) < 90.0);
+                    Assertions.assertTrue(isHit(scorer, 0, row, 95.0));
+
+                    // Un taux minimal inférieur impose un nouveau calcul,
+                    // dont le taux est exact
+                    Assertions.assertFalse(isHit(scorer, 0, row, similarity / 2));
+                    Assertions.assertTrue(isHit(scorer, 0, row, 0.0));
+                    Assertions.assertEquals(similarity, scorer.score(0, row));
+                    Assertions.assertEquals(similarity, scorer.score(0, row, similarity / 2));
+                }
+            }
+        }
+    }
+}
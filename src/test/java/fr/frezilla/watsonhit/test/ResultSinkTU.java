@@ -0,0 +1,171 @@
+package fr.frezilla.watsonhit.test;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.RowSource;
+import fr.frezilla.watsonhit.business.result.BinaryResultReader;
+import fr.frezilla.watsonhit.business.result.BinaryResultSink;
+import fr.frezilla.watsonhit.business.result.ResultFormat;
+import fr.frezilla.watsonhit.business.result.ResultSink;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class ResultSinkTU {
+
+    /**
+     * Ecrit des paires de lignes et retourne le contenu écrit.
+     */
+    private static byte[] write(ResultFormat format, RowSource rows, String delimiter, int[][] pairs, double[] similarities) throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, ""));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ResultSink sink = format.create(out, csvDescription, rows, delimiter)) {
+            sink.begin();
+            for (int i = 0; i < pairs.length; i++) {
+                sink.handle(pairs[i][0], pairs[i][1], similarities[i]);
+            }
+            sink.end();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Contrôle que les taux écrits sont arrondis comme par
+     * <code>String.format("%.2f")</code>.
+     */
+    private static void checkScores(double[] similarities) throws Exception {
+        RowSource rows = row -> new String[]{String.valueOf(row), "NOM", "PRENOM", "VILLE", "75001"};
+        int[][] pairs = new int[similarities.length][];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = new int[]{i, i + 1};
+        }
+
+        String[] jsonLines = new String(write(ResultFormat.JSONL, rows, ",", pairs, similarities)).split("\n");
+        String[] csvLines = new String(write(ResultFormat.CSV, rows, ",", pairs, similarities)).split("\n");
+        Assertions.assertEquals(similarities.length, jsonLines.length);
+        Assertions.assertEquals(similarities.length + 1, csvLines.length);
+        for (int i = 0; i < similarities.length; i++) {
+            String expected = String.format(Locale.ROOT, "%.2f", similarities[i]);
+            Assertions.assertEquals(expected, jsonLines[i].replaceAll(".*\"similarity\":([0-9.]+),.*", "$1"), Double.toString(similarities[i]));
+            Assertions.assertEquals(expected, csvLines[i + 1].substring(csvLines[i + 1].lastIndexOf(',') + 1), Double.toString(similarities[i]));
+        }
+    }
+
+    @Test
+    public void testScores() throws Exception {
+        // Valeurs proches d'un demi-centième, exactes ou non en binaire
+        double[] ties = new double[20001];
+        for (int i = 0; i < ties.length; i++) {
+            ties[i] = i / 200.0;
+        }
+        checkScores(ties);
+        double[] thousandths = new double[100001];
+        for (int i = 0; i < thousandths.length; i++) {
+            thousandths[i] = i / 1000.0;
+        }
+        checkScores(thousandths);
+
+        // Taux calculés et valeurs quelconques
+        Random random = new Random(17);
+        double[] values = new double[50000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i % 2 == 0) ? random.nextDouble() * 100.0 : 100.0 * (1 + random.nextInt(50)) / (1 + random.nextInt(100)) * 0.5;
+        }
+        checkScores(values);
+        checkScores(new double[]{0.0, 0.004999999, 0.005, 0.995, 1.005, 2.675, 50.125, 81.204999, 99.995, 99.9949999, 100.0});
+    }
+
+    @Test
+    public void testCsvQuoting() throws Exception {
+        RowSource rows = row -> (row == 0)
+                ? new String[]{"1", "DU;PONT", "JE\"AN", "PA\nRIS", null}
+                : new String[]{"2", "MARTIN", null, "LY\rON", "69001"};
+        String content = new String(write(ResultFormat.CSV, rows, ";", new int[][]{{0, 1}}, new double[]{87.5}));
+        Assertions.assertEquals("id_1;nom_1;prenom_1;ville_1;id_2;nom_2;prenom_2;ville_2;taux\n"
+                + "1;\"DU;PONT\";\"JE\"\"AN\";\"PA\nRIS\";2;MARTIN;;\"LY\rON\";87.50\n", content);
+
+        // Le délimiteur de plusieurs caractères n'entraîne pas de guillemets
+        // pour un seul de ses caractères
+        content = new String(write(ResultFormat.CSV, rows, "||", new int[][]{{0, 1}}, new double[]{87.5}));
+        Assertions.assertTrue(content.endsWith("\n1||DU;PONT||\"JE\"\"AN\"||\"PA\nRIS\"||2||MARTIN||||\"LY\rON\"||87.50\n"), content);
+    }
+
+    @Test
+    public void testJsonEscaping() throws Exception {
+        RowSource rows = row -> (row == 0)
+                ? new String[]{"1", "DU\"PONT", "JEAN\\PAUL", "PARIS\n\t\u0001\u001f", null}
+                : new String[]{"2", "MARTIN", null, "EVRY", "91000"};
+        String content = new String(write(ResultFormat.JSONL, rows, ",", new int[][]{{0, 1}}, new double[]{87.5}));
+        Assertions.assertEquals("{\"row1\":0,\"row2\":1,\"similarity\":87.50,"
+                + "\"columns1\":{\"id\":\"1\",\"nom\":\"DU\\\"PONT\",\"prenom\":\"JEAN\\\\PAUL\",\"ville\":\"PARIS\\u000a\\u0009\\u0001\\u001f\"},"
+                + "\"columns2\":{\"id\":\"2\",\"nom\":\"MARTIN\",\"prenom\":null,\"ville\":\"EVRY\"}}\n", content);
+    }
+
+    @Test
+    public void testBinary() throws Exception {
+        Random random = new Random(18);
+        int[][] pairs = new int[1000][];
+        double[] similarities = new double[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            int row1 = random.nextInt(Integer.MAX_VALUE - 1);
+            pairs[i] = new int[]{row1, row1 + 1 + random.nextInt(Integer.MAX_VALUE - row1 - 1)};
+            similarities[i] = random.nextDouble() * 100.0;
+        }
+        similarities[0] = 0.0;
+        similarities[1] = 100.0;
+        File file = File.createTempFile("watsonHit", ".bin");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(write(ResultFormat.BINARY, row -> null, ",", pairs, similarities));
+        }
+
+        List<String> actual = new ArrayList<>();
+        try (BinaryResultReader reader = new BinaryResultReader(file.getPath())) {
+            Assertions.assertEquals(BinaryResultSink.UNKNOWN_ROW_COUNT, reader.getNbRows());
+            Assertions.assertEquals(0, reader.getShard());
+            Assertions.assertEquals(1, reader.getShardCount());
+            while (reader.next()) {
+                actual.add(reader.getRow1() + " " + reader.getRow2() + " " + reader.getSimilarity());
+            }
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < pairs.length; i++) {
+            expected.add(pairs[i][0] + " " + pairs[i][1] + " " + (double) (float) similarities[i]);
+        }
+        Assertions.assertEquals(expected, actual);
+
+        // En-tête d'un lot
+        try (ResultSink sink = ResultFormat.BINARY.create(new FileOutputStream(file), TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, "")), row -> null, 1000, 2, 3, ",")) {
+            sink.begin();
+            sink.end();
+        }
+        try (BinaryResultReader reader = new BinaryResultReader(file.getPath())) {
+            Assertions.assertEquals(1000, reader.getNbRows());
+            Assertions.assertEquals(2, reader.getShard());
+            Assertions.assertEquals(3, reader.getShardCount());
+            Assertions.assertFalse(reader.next());
+        }
+
+        // Fichier tronqué au milieu d'une paire, ou qui n'est pas un résultat
+        byte[] content = write(ResultFormat.BINARY, row -> null, ",", pairs, similarities);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(Arrays.copyOf(content, content.length - 5));
+        }
+        try (BinaryResultReader reader = new BinaryResultReader(file.getPath())) {
+            IOException e = Assertions.assertThrows(IOException.class, () -> {
+                while (reader.next()) {
+                    // Lecture jusqu'à l'erreur
+                }
+            });
+            Assertions.assertTrue(e.getMessage().contains("truncated"), e.getMessage());
+        }
+        Assertions.assertThrows(IOException.class, () -> new BinaryResultReader(TestUtils.writeTempFile(".bin", "id,nom\n").getPath()).close());
+    }
+}
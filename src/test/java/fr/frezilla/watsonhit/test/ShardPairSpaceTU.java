@@ -0,0 +1,156 @@
+package fr.frezilla.watsonhit.test;
+
+import fr.frezilla.watsonhit.business.blocking.BlockingIndex;
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import fr.frezilla.watsonhit.business.engine.ComparisonEngine;
+import fr.frezilla.watsonhit.business.engine.PairScorer;
+import fr.frezilla.watsonhit.business.engine.PairSpace;
+import fr.frezilla.watsonhit.business.engine.ShardPairSpace;
+import fr.frezilla.watsonhit.business.engine.TriangularPairSpace;
+import fr.frezilla.watsonhit.business.result.BinaryResultReader;
+import fr.frezilla.watsonhit.business.result.ResultFormat;
+import fr.frezilla.watsonhit.business.result.ResultMerger;
+import fr.frezilla.watsonhit.business.result.ResultSink;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class ShardPairSpaceTU {
+
+    private static final double MIN_SIMILARITY = 60.0;
+
+    private static void checkCoverage(PairSpace pairSpace) {
+        Set<Long> expected = new HashSet<>();
+        long total = 0;
+        for (int row = 0; row < pairSpace.size(); row++) {
+            final int row1 = row;
+            pairSpace.forEachPartner(row1, row2 -> expected.add((long) row1 * pairSpace.size() + row2));
+            total += pairSpace.countPartners(row);
+        }
+
+        for (int shards = 1; shards <= 9; shards++) {
+            final String message = "shards=" + shards;
+            Set<Long> actual = new HashSet<>();
+            long count = 0;
+            int nextRow = 0;
+            for (int shard = 0; shard < shards; shard++) {
+                ShardPairSpace shardPairSpace = new ShardPairSpace(pairSpace, shard, shards);
+                Assertions.assertEquals(pairSpace.size(), shardPairSpace.size());
+                Assertions.assertEquals(nextRow, shardPairSpace.getFirstRow());
+                nextRow = shardPairSpace.getEndRow();
+                count += shardPairSpace.countPairs();
+                for (int row = 0; row < pairSpace.size(); row++) {
+                    final int row1 = row;
+                    shardPairSpace.forEachPartner(row1, row2 -> {
+                        Assertions.assertTrue(row1 >= shardPairSpace.getFirstRow() && row1 < shardPairSpace.getEndRow());
+                        Assertions.assertTrue(actual.add((long) row1 * pairSpace.size() + row2), message);
+                    });
+                }
+            }
+            Assertions.assertEquals(pairSpace.size(), nextRow);
+            Assertions.assertEquals(total, count);
+            Assertions.assertEquals(expected, actual, message);
+        }
+    }
+
+    private static byte[] run(ComparisonEngine engine, PairSpace pairSpace, PairScorer scorer, DataSet dataSet, CsvDescription csvDescription, int shard, int shards) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ResultSink sink = ResultFormat.BINARY.create(out, csvDescription, dataSet, dataSet.size(), shard, shards, ",")) {
+            sink.begin();
+            engine.run(pairSpace, scorer, sink, n -> {
+            });
+            sink.end();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] merge(List<File> files, int nbRows, DataSet dataSet, CsvDescription csvDescription) throws IOException {
+        List<BinaryResultReader> readers = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ResultSink sink = ResultFormat.BINARY.create(out, csvDescription, dataSet, dataSet.size(), 0, 1, ",")) {
+            for (File file : files) {
+                readers.add(new BinaryResultReader(file.getPath()));
+            }
+            sink.begin();
+            ResultMerger.merge(readers, nbRows, sink);
+            sink.end();
+        } finally {
+            for (BinaryResultReader reader : readers) {
+                reader.close();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Compare les paires de chaque lot et retourne les résultats des lots,
+     * du dernier au premier.
+     */
+    private static List<File> shardFiles(ComparisonEngine engine, PairSpace pairSpace, PairScorer scorer, DataSet dataSet, CsvDescription csvDescription, int shards) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (int shard = shards - 1; shard >= 0; shard--) {
+            File file = File.createTempFile("watsonHit", ".bin");
+            file.deleteOnExit();
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(run(engine, new ShardPairSpace(pairSpace, shard, shards), scorer, dataSet, csvDescription, shard, shards));
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    @Test
+    public void testCoverage() throws Exception {
+        for (int nbRows : new int[]{0, 1, 2, 3, 10, 101}) {
+            checkCoverage(new TriangularPairSpace(nbRows));
+            checkCoverage(new TriangularPairSpace(nbRows, nbRows / 2));
+        }
+
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, "<blocking><key column=\"nom\" type=\"soundex\"/><key column=\"ville\" type=\"exact\"/></blocking>"));
+        DataSet dataSet = TestUtils.loadDataSet(TestUtils.persons(150, 23), csvDescription);
+        checkCoverage(BlockingIndex.builder(dataSet).setCsvDescription(csvDescription).build());
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, ""));
+        DataSet dataSet = TestUtils.loadDataSet(TestUtils.persons(200, 23), csvDescription);
+        PairScorer scorer = new PairScorer(csvDescription, dataSet);
+        ComparisonEngine engine = ComparisonEngine.builder().setMinSimilarity(MIN_SIMILARITY).setThreads(3).build();
+        PairSpace pairSpace = new TriangularPairSpace(dataSet.size());
+        byte[] expected = run(engine, pairSpace, scorer, dataSet, csvDescription, 0, 1);
+
+        for (int shards : new int[]{1, 2, 5}) {
+            List<File> files = shardFiles(engine, pairSpace, scorer, dataSet, csvDescription, shards);
+            Assertions.assertArrayEquals(expected, merge(files, dataSet.size(), dataSet, csvDescription), "shards=" + shards);
+
+            // Résultats d'un jeu de données plus grand
+            IOException e = Assertions.assertThrows(IOException.class, () -> merge(files, dataSet.size() - 1, dataSet, csvDescription));
+            Assertions.assertTrue(e.getMessage().contains("was computed from " + dataSet.size() + " rows"), e.getMessage());
+
+            // Lot fusionné deux fois, lot manquant, lot d'un autre découpage
+            List<File> duplicated = new ArrayList<>(files);
+            duplicated.add(files.get(0));
+            e = Assertions.assertThrows(IOException.class, () -> merge(duplicated, dataSet.size(), dataSet, csvDescription));
+            Assertions.assertTrue(e.getMessage().contains("shard " + shards + "/" + shards + " is duplicated"), e.getMessage());
+            if (shards > 1) {
+                List<File> missing = new ArrayList<>(files);
+                missing.remove(shards - 2);
+                e = Assertions.assertThrows(IOException.class, () -> merge(missing, dataSet.size(), dataSet, csvDescription));
+                Assertions.assertTrue(e.getMessage().contains("shard 2/" + shards + " is missing"), e.getMessage());
+            }
+            List<File> foreign = new ArrayList<>(files);
+            foreign.add(shardFiles(engine, pairSpace, scorer, dataSet, csvDescription, shards + 1).get(shards));
+            e = Assertions.assertThrows(IOException.class, () -> merge(foreign, dataSet.size(), dataSet, csvDescription));
+            Assertions.assertTrue(e.getMessage().contains("does not belong to a split in"), e.getMessage());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package fr.frezilla.watsonhit.test;
 
 import fr.frezilla.watsonhit.business.similarity.SimilarityAlgorithm;
 import fr.frezilla.watsonhit.business.similarity.SimilarityAlgorithms;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 import org.junit.jupiter.api.Assertions;
 
@@ -27,4 +28,34 @@ public class SimilarityAlgorithmsTU {
         Assertions.assertEquals(0.896, TestUtils.floor(algo.getHitRate("JELLYFISH", "SMELLYFISH")));
     }
     
+    @Test
+    public void testJaroWinklerAverage() {
+        SimilarityAlgorithm algo = SimilarityAlgorithms.JARO_WINKLER_AVERAGE.getAlgorithm();
+        SimilarityAlgorithm jaro = SimilarityAlgorithms.JARO.getAlgorithm();
+        SimilarityAlgorithm jaroWinkler = SimilarityAlgorithms.JARO_WINKLER.getAlgorithm();
+        
+        Assertions.assertEquals(0.789, TestUtils.floor(algo.getHitRate("DIXON", "DICKSONX")));
+        Assertions.assertEquals(0.831, TestUtils.floor(algo.getHitRate("DWAYNE", "DUANE")));
+        Assertions.assertEquals(0.952, TestUtils.floor(algo.getHitRate("MARTHA", "MARHTA")));
+        Assertions.assertEquals(0.896, TestUtils.floor(algo.getHitRate("JELLYFISH", "SMELLYFISH")));
+        Assertions.assertEquals((jaro.getHitRate("MARTHA", "MARHTA") + jaroWinkler.getHitRate("MARTHA", "MARHTA")) / 2, algo.getHitRate("MARTHA", "MARHTA"));
+    }
+    
+    @Test
+    public void testLevenshtein() {
+        String longValue = StringUtils.repeat('A', 70);
+        
+        for (SimilarityAlgorithms algorithm : new SimilarityAlgorithms[]{SimilarityAlgorithms.LEVENSTEIN, SimilarityAlgorithms.LEVENSTEIN_BIT_PARALLEL}) {
+            SimilarityAlgorithm algo = algorithm.getAlgorithm();
+            
+            Assertions.assertEquals(0.833, TestUtils.floor(algo.getHitRate("CHIEN", "CHIENS")));
+            Assertions.assertEquals(0.166, TestUtils.floor(algo.getHitRate("NICHE", "CHIENS")));
+            Assertions.assertEquals(0.571, TestUtils.floor(algo.getHitRate("KITTEN", "SITTING")));
+            Assertions.assertEquals(0.985, TestUtils.floor(algo.getHitRate(longValue + "B", longValue + "C")));
+            Assertions.assertEquals(1.0, algo.getHitRate("", ""));
+            Assertions.assertEquals(algo.getHitRate("KITTEN", "SITTING"), algo.getHitRate("KITTEN", "SITTING", 0.5));
+            Assertions.assertTrue(algo.getHitRate("NICHE", "CHIENS", 0.5) < 0.5);
+        }
+    }
+    
 }
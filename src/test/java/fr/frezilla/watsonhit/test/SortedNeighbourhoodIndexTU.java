@@ -0,0 +1,103 @@
+package fr.frezilla.watsonhit.test;
+
+import fr.frezilla.watsonhit.business.blocking.SortedNeighbourhoodIndex;
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class SortedNeighbourhoodIndexTU {
+
+    private static SortedNeighbourhoodIndex index(String sortedNeighbourhood, String csv) throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, sortedNeighbourhood));
+        return SortedNeighbourhoodIndex.builder(TestUtils.loadDataSet(csv, csvDescription)).setCsvDescription(csvDescription).build();
+    }
+
+    @Test
+    public void testWindow() throws Exception {
+        // Ordre trié sur le nom : 1 (A), 3 (B), 5 (C), 2 (D), 0 (E), 4 (F)
+        String csv = "1,EEE,JEAN,PARIS,75001\n"
+                + "2,AAA,PAUL,LYON,69001\n"
+                + "3,DDD,LUC,LILLE,59000\n"
+                + "4,BBB,ZOE,PARIS,75002\n"
+                + "5,FFF,JEAN,NANTES,44000\n"
+                + "6,CCC,MARIE,LYON,69002\n";
+
+        // Fenêtre de 1 : lignes consécutives dans l'ordre trié
+        SortedNeighbourhoodIndex index = index("<sortedNeighbourhood window=\"1\"><pass><key column=\"nom\"/></pass></sortedNeighbourhood>", csv);
+        Assertions.assertEquals(1, index.getWindow());
+        Assertions.assertEquals(1, index.getPassCount());
+        Assertions.assertEquals(Arrays.asList("0 2", "0 4", "1 3", "2 5", "3 5"), TestUtils.pairs(index));
+        Assertions.assertEquals(5, index.countCandidatePairs());
+
+        // Fenêtre de 2 : les lignes distantes de 3 rangs ne sont pas comparées
+        index = index("<sortedNeighbourhood window=\"2\"><pass><key column=\"nom\"/></pass></sortedNeighbourhood>", csv);
+        Assertions.assertEquals(Arrays.asList("0 2", "0 4", "0 5", "1 3", "1 5", "2 3", "2 4", "2 5", "3 5"), TestUtils.pairs(index));
+        Assertions.assertEquals(9, index.countCandidatePairs());
+
+        // Fenêtre plus grande que le fichier : toutes les paires
+        index = index("<sortedNeighbourhood window=\"10\"><pass><key column=\"nom\"/></pass></sortedNeighbourhood>", csv);
+        Assertions.assertEquals(15, TestUtils.pairs(index).size());
+        Assertions.assertEquals(15, index.countCandidatePairs());
+
+        // Deux passes : les paires communes ne sont proposées qu'une fois
+        index = index("<sortedNeighbourhood window=\"1\"><pass><key column=\"nom\"/></pass><pass><key column=\"nom\"/></pass></sortedNeighbourhood>", csv);
+        Assertions.assertEquals(2, index.getPassCount());
+        Assertions.assertEquals(Arrays.asList("0 2", "0 4", "1 3", "2 5", "3 5"), TestUtils.pairs(index));
+        Assertions.assertEquals(10, index.countCandidatePairs());
+    }
+
+    @Test
+    public void testRandomWindow() throws Exception {
+        final int window = 3;
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS,
+                "<sortedNeighbourhood window=\"" + window + "\"><pass><key column=\"nom\"/></pass><pass><key column=\"ville\" type=\"prefix\" length=\"2\"/></pass></sortedNeighbourhood>"));
+        DataSet dataSet = TestUtils.loadDataSet(TestUtils.persons(150, 5), csvDescription);
+        SortedNeighbourhoodIndex index = SortedNeighbourhoodIndex.builder(dataSet).setCsvDescription(csvDescription).build();
+
+        // Référence : rangs des lignes triées par clé puis par numéro de ligne
+        final int nbRows = dataSet.size();
+        final int[] columns = {1, 3};
+        final int[] lengths = {Integer.MAX_VALUE, 2};
+        int[][] ranks = new int[columns.length][nbRows];
+        for (int p = 0; p < columns.length; p++) {
+            String[] keys = new String[nbRows];
+            Integer[] sorted = new Integer[nbRows];
+            for (int row = 0; row < nbRows; row++) {
+                keys[row] = StringUtils.defaultString(StringUtils.left(dataSet.getFormattedValue(row, columns[p]), lengths[p]));
+                sorted[row] = row;
+            }
+            Arrays.sort(sorted, Comparator.<Integer, String>comparing(row -> keys[row]).thenComparing(row -> row));
+            for (int r = 0; r < nbRows; r++) {
+                ranks[p][sorted[r]] = r;
+            }
+        }
+        List<String> expected = new ArrayList<>();
+        for (int row1 = 0; row1 < nbRows; row1++) {
+            for (int row2 = row1 + 1; row2 < nbRows; row2++) {
+                for (int[] rank : ranks) {
+                    if (Math.abs(rank[row1] - rank[row2]) <= window) {
+                        expected.add(row1 + " " + row2);
+                        break;
+                    }
+                }
+            }
+        }
+        Assertions.assertEquals(expected, TestUtils.pairs(index));
+        Assertions.assertEquals(2L * (3 * nbRows - 6), index.countCandidatePairs());
+        Assertions.assertTrue(expected.size() <= index.countCandidatePairs());
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        SortedNeighbourhoodIndex index = index("<sortedNeighbourhood window=\"3\"><pass><key column=\"nom\"/></pass></sortedNeighbourhood>", "");
+        Assertions.assertEquals(0, index.size());
+        Assertions.assertEquals(0, index.countCandidatePairs());
+        Assertions.assertTrue(TestUtils.pairs(index).isEmpty());
+    }
+}
@@ -1,11 +1,137 @@
 package fr.frezilla.watsonhit.test;
 
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import fr.frezilla.watsonhit.business.engine.ComparisonEngine;
+import fr.frezilla.watsonhit.business.engine.PairScorer;
+import fr.frezilla.watsonhit.business.engine.PairSpace;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import lombok.NoArgsConstructor;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.commons.io.FileUtils;
+import org.jdom2.JDOMException;
+import org.junit.jupiter.api.Assertions;
 
 @NoArgsConstructor
 class TestUtils {
-    
+
+    /**
+     * Colonnes du fichier csv de personnes généré par
+     * {@link #persons(int, long)}.
+     */
+    public static final String PERSONS_COLUMNS = "<columns>"
+            + "<column name=\"id\" id=\"1\"/>"
+            + "<column name=\"nom\" display=\"1\" weight=\"0.8\" ignoreSpecialCharacters=\"1\" matchCase=\"0\"/>"
+            + "<column name=\"prenom\" display=\"1\" weight=\"0.5\" ignoreSpecialCharacters=\"1\"/>"
+            + "<column name=\"ville\" display=\"1\" weight=\"0.3\" matchCase=\"0\"/>"
+            + "<column name=\"cp\" weight=\"0.2\"/>"
+            + "</columns>";
+
+    private static final String[] FIRST_NAMES = {"JEAN", "JEANNE", "MARIE", "MARIO", "PIERRE", "PAUL", "PAULE", "LUC", "Zoé", ""};
+    private static final String[] NAMES = {"DUPONT", "DUPOND", "MARTIN", "MARTINS", "BERNARD", "BERNART", "DUBOIS", "THOMAS", "ROBERT", "Lefèvre", ""};
+    private static final String[] TOWNS = {"PARIS", "Paris", "LYON", "LILLE", "NANTES", ""};
+
     public static double floor(double d) {
         return (int) (d * 1000) / 1000.0;
     }
+
+    /**
+     * Retourne le contenu d'un fichier xml de description.
+     *
+     * @param columns élément <code>columns</code>
+     * @param extra éléments suivant les colonnes (blocage...)
+     * @return
+     */
+    public static String descriptor(String columns, String extra) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><csv>" + columns + extra + "</csv>";
+    }
+
+    public static CsvDescription loadCsvDescription(String xml) throws ConfigurationException, IOException, JDOMException {
+        return CsvDescription.builder(writeTempFile(".xml", xml).getPath()).load();
+    }
+
+    public static DataSet loadDataSet(String csv, CsvDescription csvDescription) throws IOException {
+        return DataSet.builder(writeTempFile(".csv", csv).getPath()).setCsvDescription(csvDescription).setThreads(1).load();
+    }
+
+    /**
+     * Retourne les paires d'un ensemble de paires, en contrôlant que les
+     * partenaires de chaque ligne la suivent, sans doublon et dans l'ordre
+     * croissant.
+     *
+     * @param pairSpace
+     * @return paires au format <code>row1 row2</code>
+     */
+    public static List<String> pairs(PairSpace pairSpace) {
+        List<String> pairs = new ArrayList<>();
+        for (int row = 0; row < pairSpace.size(); row++) {
+            final int row1 = row;
+            final int[] last = {row};
+            pairSpace.forEachPartner(row1, row2 -> {
+                Assertions.assertTrue(row2 > last[0] && row2 < pairSpace.size(), row1 + " " + row2);
+                last[0] = row2;
+                pairs.add(row1 + " " + row2);
+            });
+            Assertions.assertTrue(pairSpace.countPartners(row) >= pairs.stream().filter(p -> p.startsWith(row1 + " ")).count());
+        }
+        return pairs;
+    }
+
+    /**
+     * Génère un fichier csv de personnes (id, nom, prénom, ville, code
+     * postal) comportant de nombreux doublons proches ou exacts.
+     *
+     * @param nbRows
+     * @param seed
+     * @return
+     */
+    public static String persons(int nbRows, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < nbRows; row++) {
+            sb.append(row).append(',')
+                    .append(NAMES[random.nextInt(NAMES.length)]).append(',')
+                    .append(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]).append(',')
+                    .append(TOWNS[random.nextInt(TOWNS.length)]).append(',')
+                    .append(random.nextInt(3) == 0 ? "" : String.valueOf(75000 + random.nextInt(4))).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Compare les paires et retourne les paires transmises au traitement,
+     * dans l'ordre de transmission.
+     *
+     * @param engine
+     * @param pairSpace
+     * @param scorer
+     * @return paires au format <code>row1 row2 similarity</code>
+     * @throws IOException
+     */
+    public static List<String> run(ComparisonEngine engine, PairSpace pairSpace, PairScorer scorer) throws IOException {
+        List<String> matches = new ArrayList<>();
+        engine.run(pairSpace, scorer, (row1, row2, similarity) -> matches.add(row1 + " " + row2 + " " + similarity), n -> {
+        });
+        return matches;
+    }
+
+    /**
+     * Crée un fichier temporaire, supprimé à l'arrêt de la JVM.
+     *
+     * @param suffix
+     * @param content
+     * @return
+     * @throws IOException
+     */
+    public static File writeTempFile(String suffix, String content) throws IOException {
+        File f = File.createTempFile("watsonHit", suffix);
+        f.deleteOnExit();
+        FileUtils.writeStringToFile(f, content, StandardCharsets.UTF_8);
+        return f;
+    }
 }
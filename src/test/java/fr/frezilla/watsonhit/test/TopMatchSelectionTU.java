@@ -0,0 +1,103 @@
+package fr.frezilla.watsonhit.test;
+
+import fr.frezilla.watsonhit.business.csv.CsvDescription;
+import fr.frezilla.watsonhit.business.data.DataSet;
+import fr.frezilla.watsonhit.business.engine.ComparisonEngine;
+import fr.frezilla.watsonhit.business.engine.PairScorer;
+import fr.frezilla.watsonhit.business.engine.TriangularPairSpace;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class TopMatchSelectionTU {
+
+    private static final double MIN_SIMILARITY = 40.0;
+
+    /**
+     * Ordre de préférence des paires : taux décroissant puis index de lignes
+     * croissants.
+     */
+    private static final Comparator<double[]> BEST_FIRST = Comparator.<double[]>comparingDouble(m -> -m[2]).thenComparingDouble(m -> m[0]).thenComparingDouble(m -> m[1]);
+
+    private static final Comparator<double[]> ROW_ORDER = Comparator.<double[]>comparingDouble(m -> m[0]).thenComparingDouble(m -> m[1]);
+
+    /**
+     * Sélection de référence calculée par force brute.
+     */
+    private static List<String> expected(List<double[]> matches, int nbRows, int topK, int topN) {
+        List<double[]> kept = new ArrayList<>();
+        if (topK > 0) {
+            Set<double[]> selected = new HashSet<>();
+            for (int row = 0; row < nbRows; row++) {
+                final int r = row;
+                matches.stream().filter(m -> m[0] == r || m[1] == r).sorted(BEST_FIRST).limit(topK).forEach(selected::add);
+            }
+            kept.addAll(selected);
+        } else {
+            kept.addAll(matches);
+        }
+        if (topN > 0) {
+            kept = kept.stream().sorted(BEST_FIRST).limit(topN).collect(Collectors.toList());
+        }
+        return kept.stream().sorted(ROW_ORDER).map(m -> (int) m[0] + " " + (int) m[1] + " " + m[2]).collect(Collectors.toList());
+    }
+
+    private static List<double[]> matches(PairScorer scorer, int nbRows) {
+        List<double[]> matches = new ArrayList<>();
+        for (int row1 = 0; row1 < nbRows; row1++) {
+            for (int row2 = row1 + 1; row2 < nbRows; row2++) {
+                double similarity = scorer.score(row1, row2);
+                if (similarity >= MIN_SIMILARITY) {
+                    matches.add(new double[]{row1, row2, similarity});
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static void check(int topK, int topN) throws Exception {
+        CsvDescription csvDescription = TestUtils.loadCsvDescription(TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, ""));
+        DataSet dataSet = TestUtils.loadDataSet(TestUtils.persons(120, 18), csvDescription);
+        PairScorer scorer = new PairScorer(csvDescription, dataSet);
+        List<String> expected = expected(matches(scorer, dataSet.size()), dataSet.size(), topK, topN);
+        Assertions.assertFalse(expected.isEmpty());
+
+        // Le nombre de threads modifie l'ordre dans lequel les paires sont
+        // proposées et le nombre de sélections fusionnées
+        for (int threads : new int[]{1, 2, 3, 8}) {
+            ComparisonEngine engine = ComparisonEngine.builder().setMinSimilarity(MIN_SIMILARITY).setThreads(threads).setTopK(topK).setTopN(topN).build();
+            List<String> actual = TestUtils.run(engine, new TriangularPairSpace(dataSet.size()), scorer);
+            Assertions.assertEquals(expected, actual, "threads=" + threads);
+            Assertions.assertEquals(actual.size(), new TreeSet<>(actual.stream().map(m -> m.substring(0, m.lastIndexOf(' '))).collect(Collectors.toList())).size());
+        }
+    }
+
+    @Test
+    public void testTopK() throws Exception {
+        // Avec K = 1 la plupart des paires sont conservées par leurs deux
+        // lignes et ne doivent être transmises qu'une fois
+        for (int topK : new int[]{1, 2, 5}) {
+            check(topK, 0);
+        }
+    }
+
+    @Test
+    public void testTopN() throws Exception {
+        for (int topN : new int[]{1, 10, 200}) {
+            check(0, topN);
+        }
+    }
+
+    @Test
+    public void testTopKAndTopN() throws Exception {
+        check(1, 15);
+        check(3, 100);
+        check(2, 100000);
+    }
+}
@@ -0,0 +1,158 @@
+package fr.frezilla.watsonhit.test;
+
+import fr.frezilla.watsonhit.WatsonHit;
+import fr.frezilla.watsonhit.business.data.DataSetSnapshot;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+public class WatsonHitTU {
+
+    /**
+     * Traitement lancé dans une JVM distincte, dont la sortie standard et la
+     * sortie d'erreur sont lues à la fin.
+     */
+    private static final class Run {
+
+        private final Process process;
+        private final File stdout;
+        private final File stderr;
+
+        Run(File directory, String... args) throws IOException {
+            // Le classpath est rendu absolu, le traitement étant lancé dans
+            // le répertoire de travail
+            StringBuilder classPath = new StringBuilder();
+            for (String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+                classPath.append(classPath.length() == 0 ? "" : File.pathSeparator).append(new File(path).getAbsolutePath());
+            }
+            List<String> command = new ArrayList<>(Arrays.asList(
+                    new File(new File(System.getProperty("java.home"), "bin"), "java").getPath(),
+                    "-cp", classPath.toString(), WatsonHit.class.getName()));
+            command.addAll(Arrays.asList(args));
+            stdout = File.createTempFile("watsonHit", ".out");
+            stdout.deleteOnExit();
+            stderr = File.createTempFile("watsonHit", ".err");
+            stderr.deleteOnExit();
+            process = new ProcessBuilder(command).directory(directory).redirectOutput(stdout).redirectError(stderr).start();
+        }
+
+        byte[] getOutput() throws IOException {
+            return Files.readAllBytes(stdout.toPath());
+        }
+
+        String getMessages() throws IOException {
+            return new String(Files.readAllBytes(stderr.toPath()), StandardCharsets.ISO_8859_1) + new String(getOutput(), StandardCharsets.ISO_8859_1);
+        }
+
+        Run waitFor() throws Exception {
+            Assertions.assertTrue(process.waitFor(2, TimeUnit.MINUTES));
+            return this;
+        }
+    }
+
+    /**
+     * Crée un répertoire de travail contenant le fichier csv et sa
+     * description.
+     */
+    private static File directory(String csv) throws IOException {
+        File directory = Files.createTempDirectory("watsonHit").toFile();
+        FileUtils.forceDeleteOnExit(directory);
+        FileUtils.writeStringToFile(new File(directory, "persons.csv"), csv, StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(directory, "persons.xml"), TestUtils.descriptor(TestUtils.PERSONS_COLUMNS, ""), StandardCharsets.UTF_8);
+        return directory;
+    }
+
+    private static String[] args(String resultFile) {
+        return new String[]{"-desc", "persons.xml", "-csvin", "persons.csv", "-taux", "60", "-fmt", "CSV", "-th", "2", "-res", resultFile};
+    }
+
+    /**
+     * Retourne les fichiers de travail restant dans le répertoire.
+     */
+    private static List<String> workingFiles(File directory) {
+        List<String> workingFiles = new ArrayList<>();
+        for (String name : directory.list()) {
+            if (name.endsWith(".tmp")) {
+                workingFiles.add(name);
+            }
+        }
+        return workingFiles;
+    }
+
+    @Test
+    public void testResultFile() throws Exception {
+        File directory = directory(TestUtils.persons(300, 19));
+        byte[] expected = new Run(directory, args("-")).waitFor().getOutput();
+        Assertions.assertTrue(new String(expected, StandardCharsets.UTF_8).startsWith("id_1,nom_1,prenom_1,ville_1,id_2,nom_2,prenom_2,ville_2,taux\n"));
+        Assertions.assertTrue(expected.length > 1000);
+
+        // Le fichier de résultat existant est remplacé
+        File resultFile = new File(directory, "result.csv");
+        FileUtils.writeStringToFile(resultFile, "ancien résultat", StandardCharsets.UTF_8);
+        Run run = new Run(directory, args(resultFile.getName())).waitFor();
+        Assertions.assertTrue(run.getMessages().contains("Fin du traitement"), run.getMessages());
+        Assertions.assertArrayEquals(expected, Files.readAllBytes(resultFile.toPath()));
+        Assertions.assertTrue(workingFiles(directory).isEmpty(), workingFiles(directory).toString());
+
+        // Traitements simultanés écrivant le même fichier de résultat
+        Run[] runs = new Run[4];
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = new Run(directory, args(resultFile.getName()));
+        }
+        for (Run r : runs) {
+            r.waitFor();
+            Assertions.assertTrue(r.getMessages().contains("Fin du traitement"), r.getMessages());
+        }
+        Assertions.assertArrayEquals(expected, Files.readAllBytes(resultFile.toPath()));
+        Assertions.assertTrue(workingFiles(directory).isEmpty(), workingFiles(directory).toString());
+
+        // Un traitement en erreur ne modifie pas le fichier de résultat
+        FileUtils.writeStringToFile(new File(directory, "persons.csv"), "1,DUPONT\n", StandardCharsets.UTF_8);
+        run = new Run(directory, args(resultFile.getName())).waitFor();
+        Assertions.assertTrue(run.getMessages().contains("[KO]"), run.getMessages());
+        Assertions.assertArrayEquals(expected, Files.readAllBytes(resultFile.toPath()));
+        Assertions.assertTrue(workingFiles(directory).isEmpty(), workingFiles(directory).toString());
+    }
+
+    @Test
+    public void testStandardOutput() throws Exception {
+        File directory = directory(TestUtils.persons(300, 19));
+        Run run = new Run(directory, args("-")).waitFor();
+
+        // Seul le résultat est écrit sur la sortie standard, les messages
+        // du traitement sur la sortie d'erreur
+        String output = new String(run.getOutput(), StandardCharsets.UTF_8);
+        Assertions.assertTrue(output.startsWith("id_1,"), output);
+        Assertions.assertFalse(output.contains("[OK]"), output);
+        String errors = new String(Files.readAllBytes(run.stderr.toPath()), StandardCharsets.ISO_8859_1);
+        Assertions.assertTrue(errors.contains("Fin du traitement"), errors);
+        Assertions.assertTrue(workingFiles(directory).isEmpty(), workingFiles(directory).toString());
+    }
+
+    @Test
+    public void testSnapshotNotSaved() throws Exception {
+        File directory = directory(TestUtils.persons(300, 19));
+        byte[] expected = new Run(directory, args("-")).waitFor().getOutput();
+
+        // Un répertoire non vide à la place de l'instantané empêche son
+        // enregistrement, sans interrompre le traitement
+        File snapshot = new File(directory, "persons.csv" + DataSetSnapshot.EXTENSION);
+        FileUtils.writeStringToFile(new File(snapshot, "persons.csv"), "", StandardCharsets.UTF_8);
+        List<String> args = new ArrayList<>(Arrays.asList(args("-")));
+        args.add("-snap");
+        Run run = new Run(directory, args.toArray(new String[0])).waitFor();
+        Assertions.assertTrue(run.getMessages().contains("[ECHEC]"), run.getMessages());
+        Assertions.assertTrue(run.getMessages().contains("Fin du traitement"), run.getMessages());
+        Assertions.assertArrayEquals(expected, run.getOutput());
+        Assertions.assertTrue(snapshot.isDirectory());
+        Assertions.assertTrue(workingFiles(directory).isEmpty(), workingFiles(directory).toString());
+    }
+}